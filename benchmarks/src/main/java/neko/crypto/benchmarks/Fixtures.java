@@ -0,0 +1,43 @@
+package neko.crypto.benchmarks;
+
+import neko.crypto.bot.telegram.PriceNotificationService;
+import org.springframework.context.MessageSource;
+import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.zip.GZIPInputStream;
+
+// Записанные ответы Binance (см. generate-fixtures.py), бенчмарки не ходят в сеть
+public final class Fixtures {
+    public static final String EXCHANGE_INFO = "exchangeInfo.json.gz";
+    public static final String TICKER_PRICE = "ticker-price.json.gz";
+
+    private Fixtures() {
+    }
+
+    public static byte[] load(String name) {
+        try (InputStream in = Fixtures.class.getResourceAsStream("/fixtures/" + name)) {
+            if (in == null) {
+                throw new IllegalStateException("Fixture " + name + " is not on the classpath");
+            }
+            try (InputStream gzip = new GZIPInputStream(in)) {
+                return gzip.readAllBytes();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Как в BotConfig, но messages.properties берётся именно из jar бота: у scrapper файл с тем же именем
+    public static MessageSource botMessageSource() {
+        URL location = PriceNotificationService.class.getProtectionDomain().getCodeSource().getLocation();
+        String root = location.getPath().endsWith(".jar") ? "jar:" + location + "!/" : location.toString();
+        ReloadableResourceBundleMessageSource messageSource = new ReloadableResourceBundleMessageSource();
+        messageSource.setBasename(root + "messages");
+        messageSource.setDefaultEncoding("UTF-8");
+        return messageSource;
+    }
+}
@@ -0,0 +1,49 @@
+package neko.crypto.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.MessageSource;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Ответы бота через MessageSource: текст без аргументов и шаблон с MessageFormat
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MessageSourceBenchmark {
+    private MessageSource messageSource;
+    private final Object[] priceArgs = {"BTC", "67012.35"};
+    private final Object[] alertArgs = {42L, "BTCUSDT", ">", "70000"};
+
+    @Setup
+    public void setUp() {
+        messageSource = Fixtures.botMessageSource();
+    }
+
+    @Benchmark
+    public String plainMessage() {
+        return messageSource.getMessage("prices.notification", null, Locale.getDefault());
+    }
+
+    @Benchmark
+    public String priceMessage() {
+        return messageSource.getMessage("price.success", priceArgs, Locale.getDefault());
+    }
+
+    @Benchmark
+    public String alertMessage() {
+        return messageSource.getMessage("alert.success", alertArgs, Locale.getDefault());
+    }
+}
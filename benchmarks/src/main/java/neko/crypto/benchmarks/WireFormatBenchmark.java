@@ -0,0 +1,116 @@
+package neko.crypto.benchmarks;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import neko.crypto.bot.client.scrapper.dto.PriceQuote;
+import neko.crypto.scrapper.model.CryptoPrice;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+// Ответ /prices между scrapper и ботом: прежний JSON со строковыми ценами против типизированных JSON и CBOR.
+// Кодирует сторона scrapper (CryptoPrice), декодирует сторона бота (PriceQuote)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WireFormatBenchmark {
+    private static final TypeReference<Map<String, String>> STRING_PRICES = new TypeReference<>() {};
+
+    private final ObjectMapper jsonMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ObjectMapper cborMapper = new CBORMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+    private final ObjectReader jsonQuotes = jsonMapper.readerForListOf(PriceQuote.class);
+    private final ObjectReader cborQuotes = cborMapper.readerForListOf(PriceQuote.class);
+
+    private List<CryptoPrice> prices;
+    private Map<String, String> stringPrices;
+    private byte[] stringJson;
+    private byte[] typedJson;
+    private byte[] typedCbor;
+
+    @Setup
+    public void setUp() throws IOException {
+        long now = System.currentTimeMillis();
+        prices = new ArrayList<>();
+        stringPrices = new LinkedHashMap<>();
+        for (JsonNode price : jsonMapper.readTree(Fixtures.load(Fixtures.TICKER_PRICE))) {
+            CryptoPrice cryptoPrice = new CryptoPrice(price.get("symbol").asText(), price.get("price").asDouble(), now);
+            prices.add(cryptoPrice);
+            stringPrices.put(cryptoPrice.ticker(), String.valueOf(cryptoPrice.price()));
+        }
+        stringJson = jsonMapper.writeValueAsBytes(stringPrices);
+        typedJson = jsonMapper.writeValueAsBytes(prices);
+        typedCbor = cborMapper.writeValueAsBytes(prices);
+    }
+
+    // Размер ответа идёт в отчёт JMH вторичной метрикой encode*:payloadBytes рядом со временем кодирования
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Payload {
+        public long payloadBytes;
+    }
+
+    @Benchmark
+    public byte[] encodeStringJson(Payload payload) throws IOException {
+        byte[] encoded = jsonMapper.writeValueAsBytes(stringPrices);
+        payload.payloadBytes = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public byte[] encodeTypedJson(Payload payload) throws IOException {
+        byte[] encoded = jsonMapper.writeValueAsBytes(prices);
+        payload.payloadBytes = encoded.length;
+        return encoded;
+    }
+
+    @Benchmark
+    public byte[] encodeTypedCbor(Payload payload) throws IOException {
+        byte[] encoded = cborMapper.writeValueAsBytes(prices);
+        payload.payloadBytes = encoded.length;
+        return encoded;
+    }
+
+    // Бот раньше сам разбирал строку цены
+    @Benchmark
+    public double decodeStringJson() throws IOException {
+        double sum = 0;
+        for (String price : jsonMapper.readValue(stringJson, STRING_PRICES).values()) {
+            sum += Double.parseDouble(price);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public List<PriceQuote> decodeTypedJson() throws IOException {
+        return jsonQuotes.readValue(typedJson);
+    }
+
+    @Benchmark
+    public List<PriceQuote> decodeTypedCbor() throws IOException {
+        return cborQuotes.readValue(typedCbor);
+    }
+}
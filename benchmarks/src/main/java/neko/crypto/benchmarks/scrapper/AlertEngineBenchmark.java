@@ -0,0 +1,94 @@
+package neko.crypto.benchmarks.scrapper;
+
+import neko.crypto.scrapper.model.AlertDirection;
+import neko.crypto.scrapper.model.FiredAlert;
+import neko.crypto.scrapper.model.PriceAlert;
+import neko.crypto.scrapper.service.AlertEngine;
+import neko.crypto.scrapper.service.PriceTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// Тик по тикеру с тысячами уведомлений: обычный тик ничего не пересекает, crossing срабатывает одно уведомление
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class AlertEngineBenchmark {
+    private static final double PRICE = 100;
+    private static final int WALK = 1024;
+
+    @Param({"1000", "10000"})
+    private int alerts;
+
+    private AlertEngine engine;
+    private int index;
+    private double[] walk;
+    private int cursor;
+    private PriceAlert crossingAlert;
+    private final List<FiredAlert> fired = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        PriceTable priceTable = new PriceTable(16);
+        index = priceTable.register("BTCUSDT");
+        engine = new AlertEngine(priceTable, Duration.ofSeconds(30));
+        engine.onPrice(index, PRICE, System.currentTimeMillis());
+
+        // Уведомления лежат за пределами коридора ±5%, в котором ходит цена
+        Random random = new Random(42);
+        for (int i = 0; i < alerts; i++) {
+            boolean above = i % 2 == 0;
+            double threshold = above ? PRICE * (1.05 + random.nextDouble()) : PRICE * (0.95 - random.nextDouble() * 0.9);
+            engine.add(index, alert(i + 1L, above ? AlertDirection.ABOVE : AlertDirection.BELOW, threshold));
+        }
+        walk = new double[WALK];
+        for (int i = 0; i < WALK; i++) {
+            walk[i] = PRICE * (0.96 + random.nextDouble() * 0.08);
+        }
+        crossingAlert = alert(alerts + 1L, AlertDirection.ABOVE, PRICE * 1.045);
+    }
+
+    @Benchmark
+    public void quietTick() {
+        engine.onPrice(index, walk[cursor++ & (WALK - 1)], System.currentTimeMillis());
+    }
+
+    @Benchmark
+    public int crossing() {
+        long now = System.currentTimeMillis();
+        engine.onPrice(index, PRICE, now);
+        engine.add(index, crossingAlert);
+        engine.onPrice(index, PRICE * 1.046, now);
+        int drained = engine.drainFired(fired, Integer.MAX_VALUE);
+        engine.ack(List.of(crossingAlert.getId()));
+        fired.clear();
+        return drained;
+    }
+
+    private static PriceAlert alert(long id, AlertDirection direction, double threshold) {
+        PriceAlert alert = new PriceAlert();
+        alert.setId(id);
+        alert.setChatId(id);
+        alert.setTicker("BTCUSDT");
+        alert.setDirection(direction);
+        alert.setThreshold(threshold);
+        return alert;
+    }
+}
@@ -0,0 +1,162 @@
+package neko.crypto.benchmarks.scrapper;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import neko.crypto.benchmarks.Fixtures;
+import neko.crypto.scrapper.client.api.ExchangeInfoParser;
+import neko.crypto.scrapper.client.api.TickerPriceParser;
+import neko.crypto.scrapper.service.PriceTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+// Разбор ответов Binance: потоковые парсеры против дерева JsonNode, которым scrapper пользовался раньше
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BinanceParsingBenchmark {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] exchangeInfo;
+    private byte[] tickerPrice;
+    private PriceTable priceTable;
+
+    @Setup
+    public void setUp() throws IOException {
+        exchangeInfo = Fixtures.load(Fixtures.EXCHANGE_INFO);
+        tickerPrice = Fixtures.load(Fixtures.TICKER_PRICE);
+        priceTable = new PriceTable(4096);
+        for (JsonNode price : objectMapper.readTree(tickerPrice)) {
+            priceTable.register(price.get("symbol").asText());
+        }
+    }
+
+    // Пик кучи за один разбор: перед каждой итерацией сборка мусора и сброс пиков пулов кучи, итерация - один вызов.
+    // Пики пулов складываются, поэтому это верхняя оценка. В JSON отчёт JMH не попадает, сводка печатается в вывод прогона
+    @State(Scope.Thread)
+    public static class HeapPeak {
+        @Param({"exchangeInfoStreaming", "exchangeInfoTree", "tickerPriceStreaming", "tickerPriceTree"})
+        public String parser;
+
+        private final List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        private final List<Long> peaks = new ArrayList<>();
+        private boolean measured;
+        private long baseline;
+
+        @Setup(Level.Iteration)
+        public void reset(IterationParams params) {
+            measured = params.getType() == IterationType.MEASUREMENT;
+            System.gc();
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            baseline = used(MemoryPoolMXBean::getUsage);
+        }
+
+        @TearDown(Level.Iteration)
+        public void record() {
+            if (measured) {
+                peaks.add(used(MemoryPoolMXBean::getPeakUsage) - baseline);
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void report() {
+            if (peaks.isEmpty()) {
+                return;
+            }
+            List<Long> sorted = peaks.stream().sorted().toList();
+            System.out.printf("%nPeak heap for %s: median %d KB, max %d KB over %d runs%n", parser,
+                    sorted.get(sorted.size() / 2) / 1024, sorted.get(sorted.size() - 1) / 1024, sorted.size());
+        }
+
+        private long used(Function<MemoryPoolMXBean, MemoryUsage> usage) {
+            long used = 0;
+            for (MemoryPoolMXBean pool : heapPools) {
+                used += usage.apply(pool).getUsed();
+            }
+            return used;
+        }
+    }
+
+    @Benchmark
+    public Set<String> exchangeInfoStreaming() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(exchangeInfo)) {
+            return ExchangeInfoParser.parseTradingUsdtPairs(parser);
+        }
+    }
+
+    @Benchmark
+    public Set<String> exchangeInfoTree() throws IOException {
+        Set<String> pairs = new HashSet<>();
+        for (JsonNode symbol : objectMapper.readTree(exchangeInfo).get("symbols")) {
+            if ("TRADING".equals(symbol.get("status").asText()) && "USDT".equals(symbol.get("quoteAsset").asText())) {
+                pairs.add(symbol.get("symbol").asText());
+            }
+        }
+        return pairs;
+    }
+
+    @Benchmark
+    public int tickerPriceStreaming() throws IOException {
+        long now = System.currentTimeMillis();
+        try (JsonParser parser = objectMapper.getFactory().createParser(tickerPrice)) {
+            return TickerPriceParser.parse(parser, (symbol, price) -> priceTable.update(symbol, price, now));
+        }
+    }
+
+    @Benchmark
+    public int tickerPriceTree() throws IOException {
+        long now = System.currentTimeMillis();
+        int updated = 0;
+        for (JsonNode price : objectMapper.readTree(tickerPrice)) {
+            if (priceTable.update(price.get("symbol").asText(), price.get("price").asDouble(), now)) {
+                updated++;
+            }
+        }
+        return updated;
+    }
+
+    // Прогрев пачками, чтобы замер шёл на скомпилированном коде: от JIT зависит, какие объекты вообще создаются
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 5, batchSize = 200)
+    @Measurement(iterations = 20, batchSize = 1)
+    public Object peakHeap(HeapPeak heap) throws IOException {
+        return switch (heap.parser) {
+            case "exchangeInfoStreaming" -> exchangeInfoStreaming();
+            case "exchangeInfoTree" -> exchangeInfoTree();
+            case "tickerPriceStreaming" -> tickerPriceStreaming();
+            case "tickerPriceTree" -> tickerPriceTree();
+            default -> throw new IllegalArgumentException("Unknown parser: " + heap.parser);
+        };
+    }
+}
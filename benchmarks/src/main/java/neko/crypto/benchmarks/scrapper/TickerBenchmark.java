@@ -0,0 +1,91 @@
+package neko.crypto.benchmarks.scrapper;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import neko.crypto.benchmarks.Fixtures;
+import neko.crypto.scrapper.client.api.ExchangeInfoParser;
+import neko.crypto.scrapper.model.PairSnapshot;
+import neko.crypto.scrapper.service.PriceTable;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Нормализация и проверка тикеров, как их вводит пользователь, и постраничная выдача /pairs
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TickerBenchmark {
+    private static final int PAGE_SIZE = 20;
+    private static final int INPUTS = 1024;
+
+    private PairSnapshot snapshot;
+    private PriceTable priceTable;
+    private String[] tickers;
+    private int cursor;
+    private int page;
+
+    @Setup
+    public void setUp() throws IOException {
+        Set<String> pairs;
+        try (JsonParser parser = new JsonFactory().createParser(Fixtures.load(Fixtures.EXCHANGE_INFO))) {
+            pairs = ExchangeInfoParser.parseTradingUsdtPairs(parser);
+        }
+        snapshot = PairSnapshot.of(pairs, 1);
+        priceTable = new PriceTable(4096);
+        snapshot.getSorted().forEach(priceTable::register);
+
+        // btc, BTC, BTCUSDT и несуществующий тикер вперемешку
+        List<String> sorted = snapshot.getSorted();
+        Random random = new Random(42);
+        tickers = new String[INPUTS];
+        for (int i = 0; i < INPUTS; i++) {
+            String pair = sorted.get(random.nextInt(sorted.size()));
+            String base = pair.substring(0, pair.length() - "USDT".length());
+            tickers[i] = switch (i % 4) {
+                case 0 -> base.toLowerCase(Locale.ROOT);
+                case 1 -> base;
+                case 2 -> pair;
+                default -> base.toLowerCase(Locale.ROOT) + "zz";
+            };
+        }
+    }
+
+    @Benchmark
+    public boolean isValidUsdtPair() {
+        return snapshot.containsTicker(nextTicker());
+    }
+
+    @Benchmark
+    public int priceTableIndexOf() {
+        return priceTable.indexOf(nextTicker());
+    }
+
+    // То же, что отдаёт GET /pairs
+    @Benchmark
+    public String usdtPairsPage() {
+        String result = String.join("\n", snapshot.page(page, PAGE_SIZE));
+        page = (page + 1) % ((snapshot.size() + PAGE_SIZE - 1) / PAGE_SIZE);
+        return result;
+    }
+
+    private String nextTicker() {
+        return tickers[cursor++ & (INPUTS - 1)];
+    }
+}
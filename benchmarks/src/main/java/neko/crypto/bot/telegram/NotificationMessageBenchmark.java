@@ -0,0 +1,92 @@
+package neko.crypto.bot.telegram;
+
+import com.pengrad.telegrambot.TelegramBot;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import neko.crypto.benchmarks.Fixtures;
+import neko.crypto.bot.client.scrapper.LocalPriceCache;
+import neko.crypto.bot.client.scrapper.ScrapperClient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.MessageSource;
+import org.springframework.web.client.RestTemplate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+// Сборка уведомления о ценах: строка на тикер один раз на пачку и сообщение на каждый чат.
+// Лежит в пакете бота, чтобы вызывать package-private методы PriceNotificationService
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class NotificationMessageBenchmark {
+    private static final int TICKERS = 600;
+
+    @Param({"5", "50"})
+    private int watchlistSize;
+
+    private PriceNotificationService service;
+    private String header;
+    private String[] tickers;
+    private double[] prices;
+    private Map<String, String> lines;
+    private List<String> watchlist;
+    private int cursor;
+
+    @Setup
+    public void setUp() {
+        // Сеть не нужна: все строки готовы заранее, scrapper и Telegram не вызываются
+        ScrapperClient scrapperClient = new ScrapperClient("http://localhost:0", new RestTemplate());
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        LocalPriceCache priceCache = new LocalPriceCache(scrapperClient, meterRegistry, Duration.ofSeconds(30), Duration.ofMinutes(5));
+        MessageSource messageSource = Fixtures.botMessageSource();
+        // Sender не запускается (@PostConstruct не вызывается): ни outbox, ни потока отправки
+        TelegramSender sender = new TelegramSender(new TelegramBot("benchmark"), new TelegramRateLimiter(30, 1), meterRegistry,
+                10_000, 64, 5, Duration.ofMillis(500), Duration.ofSeconds(30), "target/outbox");
+        service = new PriceNotificationService(priceCache, sender, new LastSentPrices(meterRegistry, "snapshot", "target/last-sent.dat"),
+                messageSource, meterRegistry, "snapshot", 1.0);
+        header = messageSource.getMessage("prices.notification", null, Locale.getDefault());
+
+        Random random = new Random(42);
+        tickers = new String[TICKERS];
+        prices = new double[TICKERS];
+        lines = new ConcurrentHashMap<>();
+        for (int i = 0; i < TICKERS; i++) {
+            tickers[i] = "T" + i + "USDT";
+            prices[i] = Math.pow(10, random.nextDouble() * 11 - 6);
+            lines.put(tickers[i], service.renderPriceLine(tickers[i], prices[i]));
+        }
+        watchlist = new ArrayList<>(watchlistSize);
+        for (int i = 0; i < watchlistSize; i++) {
+            watchlist.add(tickers[random.nextInt(TICKERS)]);
+        }
+    }
+
+    @Benchmark
+    public String renderPriceLine() {
+        int i = cursor++ % TICKERS;
+        return service.renderPriceLine(tickers[i], prices[i]);
+    }
+
+    @Benchmark
+    public String buildMessage() {
+        return service.buildMessage(header, watchlist, lines);
+    }
+}
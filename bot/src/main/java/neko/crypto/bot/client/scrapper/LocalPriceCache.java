@@ -0,0 +1,127 @@
+package neko.crypto.bot.client.scrapper;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.bot.client.scrapper.dto.PriceQuote;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Локальные цены, которые держит в актуальном состоянии PriceStreamClient.
+// Пока поток жив, ответ из памяти; если он молчит или цена старая - обычный запрос к scrapper.
+@Component
+@Slf4j
+public class LocalPriceCache {
+    private final ScrapperClient scrapperClient;
+    private final long staleAfterMillis;
+    private final long maxQuoteAgeMillis;
+
+    private final Counter hits;
+    private final Counter misses;
+
+    private volatile Map<String, PriceQuote> quotes = new ConcurrentHashMap<>();
+    private volatile boolean synced;
+    private volatile long lastEventAt;
+
+    public LocalPriceCache(ScrapperClient scrapperClient, MeterRegistry meterRegistry,
+                           @Value("${prices.stream.stale-after:30s}") Duration staleAfter,
+                           @Value("${prices.local.max-age:5m}") Duration maxQuoteAge) {
+        this.scrapperClient = scrapperClient;
+        this.staleAfterMillis = staleAfter.toMillis();
+        this.maxQuoteAgeMillis = maxQuoteAge.toMillis();
+        this.hits = meterRegistry.counter("prices.local.lookups", "result", "hit");
+        this.misses = meterRegistry.counter("prices.local.lookups", "result", "miss");
+        Gauge.builder("prices.stream.synced", this, cache -> cache.isFresh() ? 1 : 0).register(meterRegistry);
+    }
+
+    public PriceQuote getPrice(String ticker) {
+        PriceQuote quote = local(ticker, System.currentTimeMillis());
+        if (quote != null) {
+            hits.increment();
+            return quote;
+        }
+        misses.increment();
+        return scrapperClient.getPrice(ticker);
+    }
+
+    // Порядок ответа не гарантирован, как и у scrapper
+    public List<PriceQuote> getPrices(Collection<String> tickers) {
+        long now = System.currentTimeMillis();
+        List<PriceQuote> result = new ArrayList<>(tickers.size());
+        List<String> missing = new ArrayList<>();
+        for (String ticker : tickers) {
+            PriceQuote quote = local(ticker, now);
+            if (quote != null) {
+                result.add(quote);
+            } else {
+                missing.add(ticker);
+            }
+        }
+        hits.increment(result.size());
+        misses.increment(missing.size());
+        if (!missing.isEmpty()) {
+            log.debug("{} of {} prices are not fresh locally, asking scrapper", missing.size(), tickers.size());
+            result.addAll(scrapperClient.getPrices(missing));
+        }
+        return result;
+    }
+
+    public boolean isFresh() {
+        return synced && System.currentTimeMillis() - lastEventAt <= staleAfterMillis;
+    }
+
+    public long getLastEventAt() {
+        return lastEventAt;
+    }
+
+    // Полная замена после (пере)подключения: цены, пропущенные за время обрыва, не доживут
+    void replaceAll(List<PriceQuote> snapshot) {
+        Map<String, PriceQuote> replacement = new ConcurrentHashMap<>(snapshot.size() * 2);
+        for (PriceQuote quote : snapshot) {
+            replacement.put(quote.ticker(), quote);
+        }
+        quotes = replacement;
+        synced = true;
+        touch();
+        log.info("Local price cache resynced with {} prices", replacement.size());
+    }
+
+    void putAll(List<PriceQuote> delta) {
+        Map<String, PriceQuote> current = quotes;
+        for (PriceQuote quote : delta) {
+            current.put(quote.ticker(), quote);
+        }
+        touch();
+    }
+
+    void touch() {
+        lastEventAt = System.currentTimeMillis();
+    }
+
+    void disconnected() {
+        synced = false;
+    }
+
+    private PriceQuote local(String ticker, long now) {
+        if (!synced || now - lastEventAt > staleAfterMillis) {
+            return null;
+        }
+        PriceQuote quote = quotes.get(toSymbol(ticker));
+        return quote != null && now - quote.updatedAt() <= maxQuoteAgeMillis ? quote : null;
+    }
+
+    // То же правило, что Tickers.toUsdtSymbol в scrapper: общего модуля у бота и scrapper нет
+    private static String toSymbol(String ticker) {
+        String upperTicker = ticker.trim().toUpperCase(Locale.ROOT);
+        return upperTicker.contains("USDT") ? upperTicker : upperTicker + "USDT";
+    }
+}
@@ -0,0 +1,203 @@
+package neko.crypto.bot.client.scrapper;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.bot.client.scrapper.dto.PriceQuote;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+// Подписка на SSE поток цен scrapper: snapshot заменяет кеш целиком, delta дополняет.
+// Соединение без событий дольше stale-after считается зависшим и переоткрывается.
+@Component
+@Slf4j
+public class PriceStreamClient {
+    private static final TypeReference<List<PriceQuote>> QUOTES = new TypeReference<>() {};
+    private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+    private final LocalPriceCache cache;
+    private final ObjectMapper objectMapper;
+    private final boolean enabled;
+    private final URI streamUri;
+    private final long staleAfterMillis;
+    private final HttpClient httpClient;
+
+    private volatile boolean running;
+    private Thread worker;
+
+    public PriceStreamClient(LocalPriceCache cache, ObjectMapper objectMapper,
+                             @Value("${prices.stream.enabled:true}") boolean enabled,
+                             @Value("${scrapper.api.url}") String scrapperApiUrl,
+                             @Value("${scrapper.http.connect-timeout:2s}") Duration connectTimeout,
+                             @Value("${prices.stream.stale-after:30s}") Duration staleAfter) {
+        this.cache = cache;
+        this.objectMapper = objectMapper;
+        this.enabled = enabled;
+        this.streamUri = URI.create(scrapperApiUrl + "/prices/stream");
+        this.staleAfterMillis = staleAfter.toMillis();
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(connectTimeout)
+                .build();
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Price stream is disabled, prices are requested from scrapper on demand");
+            return;
+        }
+        running = true;
+        worker = Thread.ofVirtual().name("price-stream").start(this::run);
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+        }
+    }
+
+    private void run() {
+        long delay = 1_000;
+        while (running) {
+            long connectedAt = System.currentTimeMillis();
+            try {
+                consume();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.warn("Price stream from scrapper failed: {}", e.getMessage());
+            } finally {
+                cache.disconnected();
+            }
+            if (System.currentTimeMillis() - connectedAt > staleAfterMillis) {
+                delay = 1_000;
+            }
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+        }
+    }
+
+    private void consume() throws InterruptedException, ExecutionException, IOException {
+        HttpRequest request = HttpRequest.newBuilder(streamUri)
+                .header("Accept", "text/event-stream")
+                .GET()
+                .build();
+        EventSubscriber subscriber = new EventSubscriber();
+        CompletableFuture<HttpResponse<Void>> response = httpClient.sendAsync(request, responseInfo -> {
+            if (responseInfo.statusCode() != 200) {
+                subscriber.done.completeExceptionally(new IOException("Unexpected status " + responseInfo.statusCode()));
+                return HttpResponse.BodySubscribers.discarding();
+            }
+            return HttpResponse.BodySubscribers.fromLineSubscriber(subscriber);
+        });
+        response.whenComplete((result, error) -> {
+            if (error != null) {
+                subscriber.done.completeExceptionally(error);
+            } else {
+                subscriber.done.complete(null);
+            }
+        });
+        log.info("Connecting to scrapper price stream {}", streamUri);
+        while (true) {
+            try {
+                subscriber.done.get(staleAfterMillis, TimeUnit.MILLISECONDS);
+                return;
+            } catch (TimeoutException e) {
+                if (System.currentTimeMillis() - cache.getLastEventAt() > staleAfterMillis) {
+                    subscriber.cancel();
+                    response.cancel(true);
+                    throw new IOException("No events for " + staleAfterMillis + " ms");
+                }
+            }
+        }
+    }
+
+    // Разбор SSE: поля event и data копятся до пустой строки, комментарии только продлевают жизнь потока
+    private final class EventSubscriber implements Flow.Subscriber<String> {
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final StringBuilder data = new StringBuilder();
+        private volatile Flow.Subscription subscription;
+        private String event = "message";
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(String line) {
+            if (line.isEmpty()) {
+                dispatch();
+            } else if (line.startsWith(":")) {
+                cache.touch();
+            } else if (line.startsWith("event:")) {
+                event = line.substring("event:".length()).trim();
+            } else if (line.startsWith("data:")) {
+                if (!data.isEmpty()) {
+                    data.append('\n');
+                }
+                data.append(line.substring("data:".length()).stripLeading());
+            }
+        }
+
+        private void dispatch() {
+            if (data.isEmpty()) {
+                return;
+            }
+            try {
+                List<PriceQuote> quotes = objectMapper.readValue(data.toString(), QUOTES);
+                switch (event) {
+                    case "snapshot" -> cache.replaceAll(quotes);
+                    case "delta" -> cache.putAll(quotes);
+                    default -> log.debug("Ignoring price stream event {}", event);
+                }
+            } catch (IOException e) {
+                log.error("Malformed price stream event {}: {}", event, e.getMessage());
+            } finally {
+                data.setLength(0);
+                event = "message";
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+
+        void cancel() {
+            Flow.Subscription current = subscription;
+            if (current != null) {
+                current.cancel();
+            }
+        }
+    }
+}
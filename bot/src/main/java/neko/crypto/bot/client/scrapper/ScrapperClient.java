@@ -1,34 +1,63 @@
 package neko.crypto.bot.client.scrapper;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
+import neko.crypto.bot.client.scrapper.dto.Candle;
+import neko.crypto.bot.client.scrapper.dto.ChatWatchlist;
+import neko.crypto.bot.client.scrapper.dto.FiredAlert;
+import neko.crypto.bot.client.scrapper.dto.PriceAlert;
+import neko.crypto.bot.client.scrapper.dto.PriceQuote;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
-import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
 
 @Component
 @Slf4j
 public class ScrapperClient {
+    private static final MediaType APPLICATION_CBOR_SEQ = MediaType.parseMediaType("application/cbor-seq");
+    // Внутренний API отвечает типизированными записями в CBOR; текстовые ответы остаются для ручных запросов
+    private static final HttpEntity<Void> CBOR_REQUEST = new HttpEntity<>(acceptHeaders(MediaType.APPLICATION_CBOR));
+
     private final RestTemplate restTemplate;
+    private final ObjectMapper cborMapper = new CBORMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     @Getter
     private final String scrapperApiUrl;
 
-    public ScrapperClient(@Value("${scrapper.api.url}") String scrapperApiUrl) {
-        this.restTemplate = new RestTemplate();
+    public ScrapperClient(@Value("${scrapper.api.url}") String scrapperApiUrl, RestTemplate scrapperRestTemplate) {
+        this.restTemplate = scrapperRestTemplate;
         this.scrapperApiUrl = scrapperApiUrl;
     }
 
-    public String getPrice(String ticker) {
+    private static HttpHeaders acceptHeaders(MediaType mediaType) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(mediaType));
+        return headers;
+    }
+
+    public PriceQuote getPrice(String ticker) {
         try {
             log.debug("Sending GET request to scrapper: {}/price/{}", scrapperApiUrl, ticker);
-            ResponseEntity<String> response = restTemplate.exchange(
-                    scrapperApiUrl + "/price/{ticker}", HttpMethod.GET, null, String.class, ticker);
-            String body = response.getBody();
+            ResponseEntity<PriceQuote> response = restTemplate.exchange(
+                    scrapperApiUrl + "/price/{ticker}", HttpMethod.GET, CBOR_REQUEST, PriceQuote.class, ticker);
+            PriceQuote body = response.getBody();
             log.debug("Received response from scrapper for price/{}: status={}, body={}", ticker, response.getStatusCode(), body);
             if (body == null) {
                 log.error("Received null body from scrapper for price/{}", ticker);
@@ -44,75 +73,224 @@ public class ScrapperClient {
         }
     }
 
-    public String addToWatchlist(Long chatId, String ticker) {
+    public List<PriceQuote> getPrices(Collection<String> tickers) {
+        try {
+            log.debug("Sending GET request to scrapper: {}/prices for {} tickers", scrapperApiUrl, tickers.size());
+            // Шаблон URI, а не готовая строка: по нему строится тег uri в метриках клиента
+            ResponseEntity<List<PriceQuote>> response = restTemplate.exchange(
+                    scrapperApiUrl + "/prices?tickers={tickers}", HttpMethod.GET, CBOR_REQUEST, new ParameterizedTypeReference<>() {},
+                    String.join(",", tickers));
+            List<PriceQuote> body = response.getBody();
+            log.debug("Received {} prices from scrapper: status={}", body != null ? body.size() : 0, response.getStatusCode());
+            return body != null ? body : List.of();
+        } catch (HttpClientErrorException.BadRequest e) {
+            log.error("Error fetching prices for tickers {}: {}", tickers, e.getResponseBodyAsString());
+            throw e;
+        } catch (ResourceAccessException e) {
+            log.error("Failed to connect to scrapper for prices: {}", e.getMessage());
+            throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
+        }
+    }
+
+    // Ответ: тикер -> ADDED, EXISTS или INVALID
+    public Map<String, String> addToWatchlist(Long chatId, List<String> tickers) {
+        return changeWatchlist(chatId, "add", tickers);
+    }
+
+    // Ответ: тикер -> REMOVED или NOT_FOUND
+    public Map<String, String> removeFromWatchlist(Long chatId, List<String> tickers) {
+        return changeWatchlist(chatId, "remove", tickers);
+    }
+
+    private Map<String, String> changeWatchlist(Long chatId, String action, List<String> tickers) {
         try {
-            log.debug("Sending POST request to scrapper: {}/watchlist/{}/add/{}", scrapperApiUrl, chatId, ticker);
+            log.debug("Sending POST request to scrapper: {}/watchlist/{}/{} with {} tickers", scrapperApiUrl, chatId, action, tickers.size());
+            ResponseEntity<Map<String, String>> response = restTemplate.exchange(
+                    scrapperApiUrl + "/watchlist/{chatId}/{action}", HttpMethod.POST, new HttpEntity<>(tickers),
+                    new ParameterizedTypeReference<>() {}, chatId, action);
+            Map<String, String> body = response.getBody();
+            log.debug("Received response from scrapper for watchlist/{}/{}: status={}, body={}", chatId, action, response.getStatusCode(), body);
+            return body != null ? body : Map.of();
+        } catch (HttpClientErrorException.BadRequest e) {
+            log.error("Error changing watchlist ({}) for chatId {}: {}", action, chatId, e.getResponseBodyAsString());
+            throw e;
+        } catch (ResourceAccessException e) {
+            log.error("Failed to connect to scrapper for watchlist/{}/{}: {}", chatId, action, e.getMessage());
+            throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
+        }
+    }
+
+    // 0 - период бота по умолчанию
+    public void setInterval(Long chatId, int seconds) {
+        try {
+            log.debug("Sending POST request to scrapper: {}/watchlist/{}/interval/{}", scrapperApiUrl, chatId, seconds);
+            restTemplate.postForEntity(scrapperApiUrl + "/watchlist/{chatId}/interval/{seconds}", null, String.class, chatId, seconds);
+        } catch (HttpClientErrorException.BadRequest e) {
+            log.error("Error setting notification interval for chatId {}: {}", chatId, e.getResponseBodyAsString());
+            throw e;
+        } catch (ResourceAccessException e) {
+            log.error("Failed to connect to scrapper for watchlist/{}/interval: {}", chatId, e.getMessage());
+            throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
+        }
+    }
+
+    // 0 - порог бота по умолчанию
+    public void setThreshold(Long chatId, double percent) {
+        try {
+            log.debug("Sending POST request to scrapper: {}/watchlist/{}/threshold/{}", scrapperApiUrl, chatId, percent);
+            restTemplate.postForEntity(scrapperApiUrl + "/watchlist/{chatId}/threshold/{percent}", null, String.class, chatId, percent);
+        } catch (HttpClientErrorException.BadRequest e) {
+            log.error("Error setting notification threshold for chatId {}: {}", chatId, e.getResponseBodyAsString());
+            throw e;
+        } catch (ResourceAccessException e) {
+            log.error("Failed to connect to scrapper for watchlist/{}/threshold: {}", chatId, e.getMessage());
+            throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
+        }
+    }
+
+    public ChatWatchlist getWatchlist(Long chatId) {
+        try {
+            log.debug("Sending GET request to scrapper: {}/watchlist/{}", scrapperApiUrl, chatId);
+            ResponseEntity<ChatWatchlist> response = restTemplate.exchange(
+                    scrapperApiUrl + "/watchlist/{chatId}", HttpMethod.GET, CBOR_REQUEST, ChatWatchlist.class, chatId);
+            ChatWatchlist body = response.getBody();
+            log.debug("Received response from scrapper for watchlist/{}: status={}, body={}", chatId, response.getStatusCode(), body);
+            return body != null ? body : new ChatWatchlist(chatId, List.of(), 0, 0);
+        } catch (ResourceAccessException e) {
+            log.error("Failed to connect to scrapper for watchlist/{}: {}", chatId, e.getMessage());
+            throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
+        }
+    }
+
+    public List<String> getWatchedTickers() {
+        try {
+            log.debug("Sending GET request to scrapper: {}/watchlist/tickers", scrapperApiUrl);
+            ResponseEntity<List<String>> response = restTemplate.exchange(
+                    scrapperApiUrl + "/watchlist/tickers", HttpMethod.GET, null, new ParameterizedTypeReference<>() {});
+            List<String> body = response.getBody();
+            log.debug("Received response from scrapper for watchlist/tickers: status={}, body={}", response.getStatusCode(), body);
+            return body != null ? body : List.of();
+        } catch (ResourceAccessException e) {
+            log.error("Failed to connect to scrapper for watchlist/tickers: {}", e.getMessage());
+            throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
+        }
+    }
+
+    // Читает CBOR sequence и отдаёт каждый watchlist сразу, не дожидаясь конца ответа
+    public int exportWatchlists(Consumer<ChatWatchlist> consumer) {
+        try {
+            log.debug("Sending GET request to scrapper: {}/watchlist/export", scrapperApiUrl);
+            Integer count = restTemplate.execute(scrapperApiUrl + "/watchlist/export", HttpMethod.GET,
+                    request -> request.getHeaders().setAccept(List.of(APPLICATION_CBOR_SEQ)),
+                    response -> {
+                        int received = 0;
+                        try (MappingIterator<ChatWatchlist> watchlists = cborMapper.readerFor(ChatWatchlist.class)
+                                .readValues(response.getBody())) {
+                            while (watchlists.hasNextValue()) {
+                                consumer.accept(watchlists.nextValue());
+                                received++;
+                            }
+                        }
+                        return received;
+                    });
+            log.debug("Received {} watchlists from scrapper export", count);
+            return count != null ? count : 0;
+        } catch (ResourceAccessException e) {
+            log.error("Failed to connect to scrapper for watchlist/export: {}", e.getMessage());
+            throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
+        }
+    }
+
+    public String addAlert(Long chatId, String ticker, String direction, double threshold) {
+        try {
+            log.debug("Sending POST request to scrapper: {}/alerts/{}/add/{}?direction={}&threshold={}", scrapperApiUrl, chatId, ticker, direction, threshold);
             ResponseEntity<String> response = restTemplate.exchange(
-                    scrapperApiUrl + "/watchlist/{chatId}/add/{ticker}", HttpMethod.POST, null, String.class, chatId, ticker);
-            String body = response.getBody();
-            log.debug("Received response from scrapper for watchlist/{}/add/{}: status={}, body={}", chatId, ticker, response.getStatusCode(), body);
-//            if (body == null) {
-//                log.error("Received null body from scrapper for watchlist/{}/add/{}", chatId, ticker);
-//                throw new RuntimeException("Scrapper returned null body for add to watchlist: " + ticker);
-//            }
-            return body;
+                    scrapperApiUrl + "/alerts/{chatId}/add/{ticker}?direction={direction}&threshold={threshold}", HttpMethod.POST, null,
+                    String.class, chatId, ticker, direction, threshold);
+            log.debug("Received response from scrapper for alerts/{}/add/{}: status={}, body={}", chatId, ticker, response.getStatusCode(), response.getBody());
+            return response.getBody();
         } catch (HttpClientErrorException.BadRequest e) {
-            log.error("Error adding ticker {} to watchlist for chatId {}: {}", ticker, chatId, e.getResponseBodyAsString());
+            log.error("Error adding alert {} for chatId {}: {}", ticker, chatId, e.getResponseBodyAsString());
             throw e;
         } catch (ResourceAccessException e) {
-            log.error("Failed to connect to scrapper for watchlist/{}/add/{}: {}", chatId, ticker, e.getMessage());
+            log.error("Failed to connect to scrapper for alerts/{}/add/{}: {}", chatId, ticker, e.getMessage());
+            throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
+        }
+    }
+
+    public List<Candle> getHistory(String ticker, String resolution, int limit) {
+        try {
+            log.debug("Sending GET request to scrapper: {}/history/{}?resolution={}&limit={}", scrapperApiUrl, ticker, resolution, limit);
+            ResponseEntity<List<Candle>> response = restTemplate.exchange(
+                    scrapperApiUrl + "/history/{ticker}?resolution={resolution}&limit={limit}", HttpMethod.GET, null,
+                    new ParameterizedTypeReference<>() {}, ticker, resolution, limit);
+            List<Candle> body = response.getBody();
+            log.debug("Received {} candles from scrapper for history/{}", body != null ? body.size() : 0, ticker);
+            return body != null ? body : List.of();
+        } catch (ResourceAccessException e) {
+            log.error("Failed to connect to scrapper for history/{}: {}", ticker, e.getMessage());
+            throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
+        }
+    }
+
+    public List<PriceAlert> getAlerts(Long chatId) {
+        try {
+            log.debug("Sending GET request to scrapper: {}/alerts/{}", scrapperApiUrl, chatId);
+            ResponseEntity<List<PriceAlert>> response = restTemplate.exchange(
+                    scrapperApiUrl + "/alerts/{chatId}", HttpMethod.GET, null, new ParameterizedTypeReference<>() {}, chatId);
+            List<PriceAlert> body = response.getBody();
+            log.debug("Received response from scrapper for alerts/{}: status={}, body={}", chatId, response.getStatusCode(), body);
+            return body != null ? body : List.of();
+        } catch (ResourceAccessException e) {
+            log.error("Failed to connect to scrapper for alerts/{}: {}", chatId, e.getMessage());
             throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
         }
     }
 
-    public boolean removeFromWatchlist(Long chatId, String ticker) {
+    public boolean removeAlert(Long chatId, Long alertId) {
         try {
-            log.debug("Sending DELETE request to scrapper: {}/watchlist/{}/remove/{}", scrapperApiUrl, chatId, ticker);
+            log.debug("Sending DELETE request to scrapper: {}/alerts/{}/remove/{}", scrapperApiUrl, chatId, alertId);
             ResponseEntity<Boolean> response = restTemplate.exchange(
-                    scrapperApiUrl + "/watchlist/{chatId}/remove/{ticker}", HttpMethod.DELETE, null, Boolean.class, chatId, ticker);
+                    scrapperApiUrl + "/alerts/{chatId}/remove/{alertId}", HttpMethod.DELETE, null, Boolean.class, chatId, alertId);
             Boolean body = response.getBody();
-            log.debug("Received response from scrapper for watchlist/{}/remove/{}: status={}, body={}", chatId, ticker, response.getStatusCode(), body);
             return body != null ? body : false;
         } catch (HttpClientErrorException.BadRequest e) {
-            log.error("Error removing ticker {} from watchlist for chatId {}: {}", ticker, chatId, e.getResponseBodyAsString());
+            log.error("Error removing alert {} for chatId {}: {}", alertId, chatId, e.getResponseBodyAsString());
             return false;
         } catch (ResourceAccessException e) {
-            log.error("Failed to connect to scrapper for watchlist/{}/remove/{}: {}", ticker, chatId, e.getMessage());
+            log.error("Failed to connect to scrapper for alerts/{}/remove/{}: {}", chatId, alertId, e.getMessage());
             return false;
         }
     }
 
-    public String getWatchlist(Long chatId) {
+    public List<FiredAlert> drainFiredAlerts() {
         try {
-            log.debug("Sending GET request to scrapper: {}/watchlist/{}", scrapperApiUrl, chatId);
-            ResponseEntity<String> response = restTemplate.exchange(
-                    scrapperApiUrl + "/watchlist/{chatId}", HttpMethod.GET, null, String.class, chatId);
-            String body = response.getBody();
-            log.debug("Received response from scrapper for watchlist/{}: status={}, body={}", chatId, response.getStatusCode(), body);
-//            if (body == null) {
-//                log.error("Received null body from scrapper for watchlist/{}", chatId);
-//                throw new RuntimeException("Scrapper returned null body for watchlist request: " + chatId);
-//            }
-            return body;
-        } catch (HttpClientErrorException.BadRequest e) {
-            log.error("Error fetching watchlist for chatId {}: {}", chatId, e.getResponseBodyAsString());
-            return "";
+            ResponseEntity<List<FiredAlert>> response = restTemplate.exchange(
+                    scrapperApiUrl + "/alerts/fired/drain", HttpMethod.POST, null, new ParameterizedTypeReference<>() {});
+            List<FiredAlert> body = response.getBody();
+            return body != null ? body : List.of();
         } catch (ResourceAccessException e) {
-            log.error("Failed to connect to scrapper for watchlist/{}: {}", chatId, e.getMessage());
+            log.error("Failed to connect to scrapper for alerts/fired/drain: {}", e.getMessage());
             throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
         }
     }
 
-    public String getValidUsdtPairs(int page, int size) {
+    // Подтверждённые уведомления scrapper удаляет; неподтверждённые через alerts.redeliver-after выдаст снова
+    public void ackFiredAlerts(List<Long> ids) {
         try {
-            String url = UriComponentsBuilder.fromHttpUrl(scrapperApiUrl + "/pairs")
-                    .queryParam("page", page)
-                    //.queryParam("size", size)
-                    .toUriString();
+            restTemplate.postForEntity(scrapperApiUrl + "/alerts/fired/ack", ids, Void.class);
+        } catch (ResourceAccessException e) {
+            log.error("Failed to connect to scrapper for alerts/fired/ack: {}", e.getMessage());
+            throw new RuntimeException("Failed to connect to scrapper: " + e.getMessage());
+        }
+    }
 
-            log.debug("Sending GET request to scrapper: {}", url);
+    public String getValidUsdtPairs(int page, int size) {
+        try {
+            log.debug("Sending GET request to scrapper: {}/pairs?page={}", scrapperApiUrl, page);
 
-            ResponseEntity<String> response = restTemplate.exchange(url, HttpMethod.GET, null, String.class);
+            ResponseEntity<String> response = restTemplate.exchange(
+                    scrapperApiUrl + "/pairs?page={page}", HttpMethod.GET, null, String.class, page);
 
             String body = response.getBody();
             log.debug("Received response from scrapper for pairs: status={}, body={}", response.getStatusCode(), body);
@@ -0,0 +1,44 @@
+package neko.crypto.bot.client.scrapper;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.Retry;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRequest;
+import org.springframework.http.client.ClientHttpRequestExecution;
+import org.springframework.http.client.ClientHttpRequestInterceptor;
+import org.springframework.http.client.ClientHttpResponse;
+
+import java.io.IOException;
+import java.util.concurrent.Callable;
+
+// Все запросы к scrapper идут через circuit breaker; повторяются только идемпотентные GET.
+// Должен быть последним перехватчиком: повторный execute заново создаёт запрос у фабрики.
+public class ScrapperResilienceInterceptor implements ClientHttpRequestInterceptor {
+    private final CircuitBreaker circuitBreaker;
+    private final Retry retry;
+
+    public ScrapperResilienceInterceptor(CircuitBreaker circuitBreaker, Retry retry) {
+        this.circuitBreaker = circuitBreaker;
+        this.retry = retry;
+    }
+
+    @Override
+    public ClientHttpResponse intercept(HttpRequest request, byte[] body, ClientHttpRequestExecution execution) throws IOException {
+        Callable<ClientHttpResponse> call = CircuitBreaker.decorateCallable(circuitBreaker, () -> execution.execute(request, body));
+        if (HttpMethod.GET.equals(request.getMethod())) {
+            call = Retry.decorateCallable(retry, call);
+        }
+        try {
+            return call.call();
+        } catch (CallNotPermittedException e) {
+            // Открытый breaker - та же недоступность scrapper: RestTemplate обернёт IOException
+            // в ResourceAccessException, и ScrapperClient ответит пользователю как при сетевом сбое
+            throw new IOException("Scrapper is temporarily unavailable", e);
+        } catch (IOException | RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException(e);
+        }
+    }
+}
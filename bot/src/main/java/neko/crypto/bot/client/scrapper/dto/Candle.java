@@ -0,0 +1,4 @@
+package neko.crypto.bot.client.scrapper.dto;
+
+public record Candle(long openTime, double open, double high, double low, double close) {
+}
@@ -0,0 +1,5 @@
+package neko.crypto.bot.client.scrapper.dto;
+
+public record FiredAlert(long id, long chatId, String ticker, String direction, double threshold,
+                         double price, long firedAt) {
+}
@@ -0,0 +1,4 @@
+package neko.crypto.bot.client.scrapper.dto;
+
+public record PriceAlert(long id, long chatId, String ticker, String direction, double threshold) {
+}
@@ -0,0 +1,4 @@
+package neko.crypto.bot.client.scrapper.dto;
+
+public record PriceQuote(String ticker, double price, long updatedAt) {
+}
@@ -1,18 +1,113 @@
 package neko.crypto.bot.config;
 
 import com.pengrad.telegrambot.TelegramBot;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.core.IntervalFunction;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedRetryMetrics;
+import io.github.resilience4j.retry.RetryConfig;
+import io.github.resilience4j.retry.RetryRegistry;
+import io.micrometer.core.instrument.MeterRegistry;
+import neko.crypto.bot.client.scrapper.ScrapperResilienceInterceptor;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.MessageSource;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.support.ReloadableResourceBundleMessageSource;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.web.client.RestTemplate;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
 @Configuration
 public class BotConfig {
+    // Один пул соединений к scrapper на всё приложение; таймауты не дают потокам бота зависнуть
     @Bean
-    public RestTemplate restTemplate() {
-        return new RestTemplate();
+    public RestTemplate scrapperRestTemplate(RestTemplateBuilder builder,
+                                             CircuitBreakerRegistry circuitBreakerRegistry,
+                                             RetryRegistry retryRegistry,
+                                             @Value("${scrapper.http.max-connections:64}") int maxConnections,
+                                             @Value("${scrapper.http.connect-timeout:2s}") Duration connectTimeout,
+                                             @Value("${scrapper.http.read-timeout:10s}") Duration readTimeout,
+                                             @Value("${scrapper.http.keep-alive:30s}") Duration keepAlive) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxConnections)
+                .setMaxConnPerRoute(maxConnections)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(connectTimeout))
+                        .setSocketTimeout(Timeout.of(readTimeout))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(5))
+                        .build())
+                .build();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.of(connectTimeout))
+                        .setResponseTimeout(Timeout.of(readTimeout))
+                        .build())
+                .setKeepAliveStrategy((response, context) -> TimeValue.of(keepAlive))
+                .evictIdleConnections(TimeValue.of(keepAlive))
+                .build();
+        return builder
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
+                .additionalInterceptors(new ScrapperResilienceInterceptor(
+                        circuitBreakerRegistry.circuitBreaker("scrapper"), retryRegistry.retry("scrapper")))
+                .build();
+    }
+
+    // Повторяются только сетевые сбои и таймауты; при открытом breaker запрос сразу падает
+    @Bean
+    public RetryRegistry retryRegistry(MeterRegistry meterRegistry,
+                                       @Value("${scrapper.retry.max-attempts:3}") int maxAttempts,
+                                       @Value("${scrapper.retry.initial-interval:100ms}") Duration initialInterval) {
+        RetryRegistry registry = RetryRegistry.of(RetryConfig.custom()
+                .maxAttempts(maxAttempts)
+                .intervalFunction(IntervalFunction.ofExponentialRandomBackoff(initialInterval, 2.0, 0.5))
+                .retryExceptions(IOException.class)
+                .build());
+        TaggedRetryMetrics.ofRetryRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    @Bean
+    public CircuitBreakerRegistry circuitBreakerRegistry(MeterRegistry meterRegistry,
+                                                         @Value("${scrapper.circuit-breaker.failure-rate:50}") float failureRate,
+                                                         @Value("${scrapper.circuit-breaker.open-duration:10s}") Duration openDuration) {
+        CircuitBreakerRegistry registry = CircuitBreakerRegistry.of(CircuitBreakerConfig.custom()
+                .slidingWindowSize(20)
+                .minimumNumberOfCalls(10)
+                .failureRateThreshold(failureRate)
+                .waitDurationInOpenState(openDuration)
+                .permittedNumberOfCallsInHalfOpenState(3)
+                .recordExceptions(IOException.class)
+                .recordResult(result -> result instanceof ClientHttpResponse response && isServerError(response))
+                .build());
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(registry).bindTo(meterRegistry);
+        return registry;
+    }
+
+    private static boolean isServerError(ClientHttpResponse response) {
+        try {
+            return response.getStatusCode().is5xxServerError();
+        } catch (IOException e) {
+            return true;
+        }
     }
 
     @Bean
@@ -23,8 +118,20 @@ public class BotConfig {
         return messageSource;
     }
 
+    // Адрес Bot API меняется для нагрузочного теста, где вместо Telegram локальный сервер.
+    // Асинхронные отправки идут через dispatcher OkHttp, у которого по умолчанию 5 запросов на хост;
+    // лимит поднимается до числа одновременных отправок плюс long polling getUpdates
     @Bean
-    public TelegramBot telegramBot(@Value("${telegram.bot.token}") String botToken) {
-        return new TelegramBot(botToken);
+    public TelegramBot telegramBot(@Value("${telegram.bot.token}") String botToken,
+                                   @Value("${telegram.bot.api-url:https://api.telegram.org/bot}") String apiUrl,
+                                   @Value("${telegram.delivery.max-in-flight:64}") int maxInFlight) {
+        Dispatcher dispatcher = new Dispatcher();
+        dispatcher.setMaxRequests(maxInFlight + 1);
+        dispatcher.setMaxRequestsPerHost(maxInFlight + 1);
+        OkHttpClient client = new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(maxInFlight + 1, 5, TimeUnit.MINUTES))
+                .build();
+        return new TelegramBot.Builder(botToken).apiUrl(apiUrl).okHttpClient(client).build();
     }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package neko.crypto.bot.telegram;
+
+import java.math.BigDecimal;
+
+public final class AlertFormatter {
+    private AlertFormatter() {
+    }
+
+    public static String condition(String direction) {
+        return "ABOVE".equals(direction) ? ">" : "<";
+    }
+
+    public static String direction(String condition) {
+        return switch (condition) {
+            case ">", ">=" -> "ABOVE";
+            case "<", "<=" -> "BELOW";
+            default -> null;
+        };
+    }
+
+    // Без экспоненты и лишних нулей: 70000, 0.00001234
+    public static String number(double value) {
+        return BigDecimal.valueOf(value).stripTrailingZeros().toPlainString();
+    }
+}
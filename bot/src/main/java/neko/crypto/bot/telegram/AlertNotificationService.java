@@ -0,0 +1,67 @@
+package neko.crypto.bot.telegram;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.client.scrapper.dto.FiredAlert;
+import org.springframework.context.MessageSource;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class AlertNotificationService {
+    private final ScrapperClient scrapperClient;
+    private final TelegramSender sender;
+    private final MessageSource messageSource;
+    // Принятые на доставку, но ещё не подтверждённые в scrapper уведомления
+    private final Set<Long> accepted = new LinkedHashSet<>();
+
+    // Частый опрос, чтобы уведомление пришло в течение секунды после тика
+    @Scheduled(fixedDelayString = "${alerts.poll-interval:500}")
+    public void deliverFiredAlerts() {
+        acknowledge();
+        List<FiredAlert> alerts;
+        try {
+            alerts = scrapperClient.drainFiredAlerts();
+        } catch (Exception e) {
+            log.debug("Failed to fetch fired alerts: {}", e.getMessage());
+            return;
+        }
+        for (FiredAlert alert : alerts) {
+            // Повторная выдача после потерянного подтверждения: сообщение уже в outbox, нужно только подтвердить
+            if (accepted.contains(alert.id())) {
+                continue;
+            }
+            String text = messageSource.getMessage("alert.fired", new Object[]{String.valueOf(alert.id()), alert.ticker(),
+                    AlertFormatter.condition(alert.direction()), AlertFormatter.number(alert.threshold()),
+                    AlertFormatter.number(alert.price())}, Locale.getDefault());
+            // Непринятое уведомление не подтверждается, scrapper выдаст его снова
+            if (sender.trySendDurable(alert.chatId(), text, false)) {
+                accepted.add(alert.id());
+            }
+        }
+        acknowledge();
+    }
+
+    // Подтверждаются уведомления, сброшенные в outbox на диск: дальше за доставку отвечает бот
+    private void acknowledge() {
+        if (accepted.isEmpty() || !sender.flushDurable()) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>(accepted);
+        try {
+            scrapperClient.ackFiredAlerts(ids);
+            ids.forEach(accepted::remove);
+        } catch (Exception e) {
+            log.debug("Failed to acknowledge {} fired alerts, will retry: {}", ids.size(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package neko.crypto.bot.telegram;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Outbox уведомлений на диске: append-only файл, запись о постановке и запись о завершении доставки.
+// Заголовок: magic, версия. Запись: int длина, byte тип, long id; у постановки ещё chatId, время, клавиатура и текст.
+// Когда завершённых записей набирается много, файл переписывается только с недоставленными.
+// Запись о постановке переживает сбой ОС только после flush: его зовут раз на пачку, а не на каждое сообщение.
+// Записи о завершении не сбрасываются на диск отдельно: потерянная после сбоя означает лишь повторную отправку
+final class DeliveryOutbox implements AutoCloseable {
+    private static final String FILE = "outbox.dat";
+    private static final int MAGIC = 0x4F555458;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final byte ENQUEUED = 1;
+    private static final byte COMPLETED = 2;
+    private static final int COMPACT_THRESHOLD = 10_000;
+
+    private final Path file;
+    private final Map<Long, Entry> pending;
+    private FileChannel channel;
+    private long nextId;
+    private int completed;
+    private boolean dirty;
+
+    private DeliveryOutbox(Path file, Map<Long, Entry> pending, long nextId) {
+        this.file = file;
+        this.pending = pending;
+        this.nextId = nextId;
+    }
+
+    static DeliveryOutbox open(Path directory) throws IOException {
+        Files.createDirectories(directory);
+        Path file = directory.resolve(FILE);
+        Map<Long, Entry> pending = new LinkedHashMap<>();
+        long maxId = 0;
+        if (Files.exists(file)) {
+            ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file)).order(ByteOrder.LITTLE_ENDIAN);
+            if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a delivery outbox: " + file);
+            }
+            // Оборванная последняя запись - след остановки посреди write, она отбрасывается
+            while (buffer.remaining() >= Integer.BYTES) {
+                int length = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer record = buffer.slice(buffer.position(), length).order(ByteOrder.LITTLE_ENDIAN);
+                buffer.position(buffer.position() + length);
+                try {
+                    byte type = record.get();
+                    long id = record.getLong();
+                    maxId = Math.max(maxId, id);
+                    if (type == ENQUEUED) {
+                        long chatId = record.getLong();
+                        long enqueuedAt = record.getLong();
+                        boolean keyboard = record.get() != 0;
+                        String text = StandardCharsets.UTF_8.decode(record).toString();
+                        pending.put(id, new Entry(id, chatId, text, keyboard, enqueuedAt));
+                    } else {
+                        pending.remove(id);
+                    }
+                } catch (BufferUnderflowException e) {
+                    break;
+                }
+            }
+        }
+        DeliveryOutbox outbox = new DeliveryOutbox(file, pending, maxId + 1);
+        outbox.rewrite();
+        return outbox;
+    }
+
+    synchronized List<Entry> pending() {
+        return new ArrayList<>(pending.values());
+    }
+
+    synchronized int size() {
+        return pending.size();
+    }
+
+    synchronized Entry append(long chatId, String text, boolean keyboard, long enqueuedAt) throws IOException {
+        Entry entry = new Entry(nextId++, chatId, text, keyboard, enqueuedAt);
+        write(enqueuedRecord(entry));
+        pending.put(entry.id(), entry);
+        dirty = true;
+        return entry;
+    }
+
+    synchronized void flush() throws IOException {
+        if (dirty) {
+            channel.force(false);
+            dirty = false;
+        }
+    }
+
+    synchronized void complete(long id) throws IOException {
+        if (pending.remove(id) == null) {
+            return;
+        }
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + 1 + Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(1 + Long.BYTES).put(COMPLETED).putLong(id).flip();
+        write(record);
+        if (++completed >= COMPACT_THRESHOLD) {
+            rewrite();
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.force(false);
+        channel.close();
+    }
+
+    private void write(ByteBuffer record) throws IOException {
+        while (record.hasRemaining()) {
+            channel.write(record);
+        }
+    }
+
+    // Новый файл собирается рядом и подменяет старый целиком, так что при сбое остаётся один из двух
+    private void rewrite() throws IOException {
+        Path temp = file.resolveSibling(FILE + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION).flip();
+            out.write(header);
+            for (Entry entry : pending.values()) {
+                ByteBuffer record = enqueuedRecord(entry);
+                while (record.hasRemaining()) {
+                    out.write(record);
+                }
+            }
+            out.force(false);
+        }
+        if (channel != null) {
+            channel.close();
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        completed = 0;
+        dirty = false;
+    }
+
+    private static ByteBuffer enqueuedRecord(Entry entry) {
+        byte[] text = entry.text().getBytes(StandardCharsets.UTF_8);
+        int length = 1 + Long.BYTES * 3 + 1 + text.length;
+        ByteBuffer record = ByteBuffer.allocate(Integer.BYTES + length).order(ByteOrder.LITTLE_ENDIAN);
+        record.putInt(length).put(ENQUEUED).putLong(entry.id()).putLong(entry.chatId()).putLong(entry.enqueuedAt())
+                .put((byte) (entry.keyboard() ? 1 : 0)).put(text).flip();
+        return record;
+    }
+
+    record Entry(long id, long chatId, String text, boolean keyboard, long enqueuedAt) {
+    }
+}
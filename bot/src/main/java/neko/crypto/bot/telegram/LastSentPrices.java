@@ -0,0 +1,229 @@
+package neko.crypto.bot.telegram;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+// Последние доставленные каждому чату цены для уведомлений в режиме delta: (chatId, индекс тикера) -> цена.
+// Открытая адресация на примитивных массивах, ~20 байт на пару без объектов на каждую запись.
+// Индексы тикеров - из собственного словаря, он между запусками не стабилен, поэтому в снимке тикеры хранятся строками
+@Component
+@Slf4j
+public class LastSentPrices {
+    private static final int MAGIC = 0x4C535450;
+    private static final int VERSION = 1;
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final boolean enabled;
+    private final Path snapshotFile;
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    private final List<String> symbols = new ArrayList<>();
+    private long[] chats = new long[INITIAL_CAPACITY];
+    // Индекс тикера + 1, 0 - пустая ячейка
+    private int[] tickers = new int[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int size;
+
+    public LastSentPrices(MeterRegistry meterRegistry,
+                          @Value("${notification.mode:snapshot}") String mode,
+                          @Value("${notification.delta.snapshot-file:./data/last-sent.dat}") String snapshotFile) {
+        this.enabled = "delta".equalsIgnoreCase(mode);
+        this.snapshotFile = Path.of(snapshotFile);
+        Gauge.builder("notifications.delta.entries", this, LastSentPrices::size)
+                .description("Chat and ticker pairs with a remembered last sent price")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!enabled || !Files.exists(snapshotFile)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(snapshotFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a last sent prices snapshot");
+            }
+            String[] names = new String[in.readInt()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = in.readUTF();
+            }
+            int entries = in.readInt();
+            for (int i = 0; i < entries; i++) {
+                long chatId = in.readLong();
+                String ticker = names[in.readInt()];
+                put(chatId, ticker, in.readDouble());
+            }
+            log.info("Loaded {} last sent prices from {}", entries, snapshotFile);
+        } catch (IOException | RuntimeException e) {
+            // Без снимка первое уведомление каждому чату уйдёт полным, дальше всё как обычно
+            log.error("Failed to load last sent prices from {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    // Копия таблицы снимается под блокировкой, файл пишется без неё; новый файл подменяет старый целиком
+    @PreDestroy
+    @Scheduled(fixedDelayString = "${notification.delta.snapshot-interval:60000}")
+    public void save() {
+        if (!enabled) {
+            return;
+        }
+        long[] chatsCopy;
+        int[] tickersCopy;
+        double[] pricesCopy;
+        String[] names;
+        int entries;
+        synchronized (this) {
+            chatsCopy = chats.clone();
+            tickersCopy = tickers.clone();
+            pricesCopy = prices.clone();
+            names = symbols.toArray(String[]::new);
+            entries = size;
+        }
+        try {
+            if (snapshotFile.getParent() != null) {
+                Files.createDirectories(snapshotFile.getParent());
+            }
+            Path temp = snapshotFile.resolveSibling(snapshotFile.getFileName() + ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(names.length);
+                for (String name : names) {
+                    out.writeUTF(name);
+                }
+                out.writeInt(entries);
+                for (int slot = 0; slot < tickersCopy.length; slot++) {
+                    if (tickersCopy[slot] != 0) {
+                        out.writeLong(chatsCopy[slot]);
+                        out.writeInt(tickersCopy[slot] - 1);
+                        out.writeDouble(pricesCopy[slot]);
+                    }
+                }
+            }
+            Files.move(temp, snapshotFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            log.debug("Saved {} last sent prices to {}", entries, snapshotFile);
+        } catch (IOException e) {
+            log.error("Failed to save last sent prices to {}: {}", snapshotFile, e.getMessage());
+        }
+    }
+
+    // NaN, если чату эта цена ещё не отправлялась
+    public synchronized double get(long chatId, String ticker) {
+        Integer id = symbolIds.get(symbol(ticker));
+        if (id == null) {
+            return Double.NaN;
+        }
+        int slot = find(chatId, id + 1);
+        return tickers[slot] != 0 ? prices[slot] : Double.NaN;
+    }
+
+    public synchronized void put(long chatId, String ticker, double price) {
+        int key = symbolId(symbol(ticker)) + 1;
+        int slot = find(chatId, key);
+        if (tickers[slot] == 0) {
+            if (size + 1 > tickers.length * 3 / 4) {
+                resize(tickers.length * 2);
+                slot = find(chatId, key);
+            }
+            chats[slot] = chatId;
+            tickers[slot] = key;
+            size++;
+        }
+        prices[slot] = price;
+    }
+
+    public synchronized void remove(long chatId, String ticker) {
+        Integer id = symbolIds.get(symbol(ticker));
+        if (id == null) {
+            return;
+        }
+        int slot = find(chatId, id + 1);
+        if (tickers[slot] == 0) {
+            return;
+        }
+        // Удаление со сдвигом назад: записи той же цепочки подтягиваются в освободившуюся ячейку
+        int mask = tickers.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (tickers[next] != 0) {
+            int home = hash(chats[next], tickers[next]) & mask;
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                chats[hole] = chats[next];
+                tickers[hole] = tickers[next];
+                prices[hole] = prices[next];
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        tickers[hole] = 0;
+        size--;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private int find(long chatId, int key) {
+        int mask = tickers.length - 1;
+        int slot = hash(chatId, key) & mask;
+        while (tickers[slot] != 0 && (tickers[slot] != key || chats[slot] != chatId)) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void resize(int capacity) {
+        long[] oldChats = chats;
+        int[] oldTickers = tickers;
+        double[] oldPrices = prices;
+        chats = new long[capacity];
+        tickers = new int[capacity];
+        prices = new double[capacity];
+        for (int slot = 0; slot < oldTickers.length; slot++) {
+            if (oldTickers[slot] != 0) {
+                int target = find(oldChats[slot], oldTickers[slot]);
+                chats[target] = oldChats[slot];
+                tickers[target] = oldTickers[slot];
+                prices[target] = oldPrices[slot];
+            }
+        }
+    }
+
+    private int symbolId(String symbol) {
+        Integer id = symbolIds.get(symbol);
+        if (id == null) {
+            id = symbols.size();
+            symbols.add(symbol);
+            symbolIds.put(symbol, id);
+        }
+        return id;
+    }
+
+    private static String symbol(String ticker) {
+        return ticker.toUpperCase(Locale.ROOT);
+    }
+
+    private static int hash(long chatId, int key) {
+        long h = (chatId * 31 + key) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+}
@@ -0,0 +1,231 @@
+package neko.crypto.bot.telegram;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.client.scrapper.dto.ChatWatchlist;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Расписание уведомлений о ценах: у каждого чата свой период и своя фаза внутри него,
+// поэтому за тик уходит примерно chats / interval уведомлений, а не все чаты разом.
+// Изменения из команд бота применяются сразу через refresh; полная выгрузка scrapper нужна только при старте
+// и для редкой сверки (раз в час), иначе на миллионе чатов она сама давала бы периодические всплески нагрузки
+@Service
+@Slf4j
+public class NotificationScheduler {
+    private final ScrapperClient scrapperClient;
+    private final PriceNotificationService notificationService;
+    private final long defaultIntervalMillis;
+    private final NotificationWheel wheel;
+    private final Map<Long, ChatState> chats = new HashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private long generation;
+    // Номер последнего refresh; выгрузка пропускает строки чатов, обновлённых после её начала,
+    // иначе устаревшая строка затёрла бы только что применённую команду
+    private long refreshVersion;
+    private long syncStartVersion = Long.MAX_VALUE;
+
+    public NotificationScheduler(ScrapperClient scrapperClient, PriceNotificationService notificationService,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${notification.interval:300000}") long defaultIntervalMillis,
+                                 @Value("${notification.tick:1000}") long tickMillis,
+                                 @Value("${notification.wheel-size:4096}") int wheelSize) {
+        this.scrapperClient = scrapperClient;
+        this.notificationService = notificationService;
+        this.defaultIntervalMillis = defaultIntervalMillis;
+        this.wheel = new NotificationWheel(tickMillis, wheelSize, System.currentTimeMillis());
+        Gauge.builder("notifications.scheduled", this, NotificationScheduler::scheduledChats)
+                .description("Chats with a scheduled price notification")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedRateString = "${notification.tick:1000}")
+    public void tick() {
+        long now = System.currentTimeMillis();
+        List<ChatWatchlist> due = new ArrayList<>();
+        long earliestDeadline = now;
+        lock.lock();
+        try {
+            for (NotificationWheel.Expired expired : wheel.advance(now)) {
+                ChatState state = chats.get(expired.chatId());
+                if (state == null) {
+                    continue;
+                }
+                due.add(state.watchlist);
+                earliestDeadline = Math.min(earliestDeadline, expired.deadline());
+                // Следующий срок считается от прежнего, чтобы фаза чата не уплывала;
+                // после долгой паузы пропущенные уведомления не догоняются
+                long interval = intervalMillis(state.watchlist);
+                long next = expired.deadline() + interval;
+                wheel.schedule(expired.chatId(), next > now ? next : nextDeadline(expired.chatId(), interval, now));
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (!due.isEmpty()) {
+            long dueAt = earliestDeadline;
+            executor.execute(() -> notificationService.notifyChats(due, dueAt));
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${notification.sync-interval:3600000}")
+    public void sync() {
+        long syncGeneration;
+        lock.lock();
+        try {
+            syncGeneration = ++generation;
+            syncStartVersion = refreshVersion;
+        } finally {
+            lock.unlock();
+        }
+        boolean completed = false;
+        try {
+            scrapperClient.exportWatchlists(watchlist -> {
+                lock.lock();
+                try {
+                    ChatState state = chats.get(watchlist.chatId());
+                    if (state != null && state.refreshVersion > syncStartVersion) {
+                        state.generation = syncGeneration;
+                    } else {
+                        upsert(watchlist, syncGeneration, 0);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+            });
+            completed = true;
+        } catch (Exception e) {
+            // Расписание остаётся прежним, пока выгрузка не пройдёт целиком
+            log.error("Failed to sync notification schedule with scrapper: {}", e.getMessage());
+        }
+        int removed = 0;
+        int scheduled;
+        lock.lock();
+        try {
+            syncStartVersion = Long.MAX_VALUE;
+            Iterator<Map.Entry<Long, ChatState>> iterator = chats.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Long, ChatState> entry = iterator.next();
+                ChatState state = entry.getValue();
+                if (state.watchlist.tickers().isEmpty()) {
+                    iterator.remove();
+                } else if (completed && state.generation < syncGeneration) {
+                    wheel.cancel(entry.getKey());
+                    notificationService.forget(entry.getKey(), state.watchlist.tickers());
+                    iterator.remove();
+                    removed++;
+                }
+            }
+            scheduled = chats.size();
+        } finally {
+            lock.unlock();
+        }
+        if (completed) {
+            log.info("Notification schedule synced: {} chats scheduled, {} removed", scheduled, removed);
+        }
+    }
+
+    // После /add, /remove и /interval чат переставляется сразу, не дожидаясь сверки
+    public void refresh(long chatId) {
+        try {
+            ChatWatchlist watchlist = scrapperClient.getWatchlist(chatId);
+            lock.lock();
+            try {
+                upsert(watchlist, generation, ++refreshVersion);
+            } finally {
+                lock.unlock();
+            }
+        } catch (Exception e) {
+            log.warn("Failed to refresh notification schedule for chatId {}: {}", chatId, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // version - номер refresh, 0 для строки выгрузки
+    private void upsert(ChatWatchlist watchlist, long syncGeneration, long version) {
+        long chatId = watchlist.chatId();
+        if (watchlist.tickers().isEmpty()) {
+            // Пустой watchlist - чату нечего присылать, он уходит с колеса.
+            // Опустевший во время выгрузки чат остаётся до её конца меткой, чтобы старая строка выгрузки его не вернула
+            boolean marker = version > syncStartVersion;
+            ChatState removed = marker ? chats.get(chatId) : chats.remove(chatId);
+            if (removed != null) {
+                wheel.cancel(chatId);
+                notificationService.forget(chatId, removed.watchlist.tickers());
+            }
+            if (marker) {
+                ChatState state = removed != null ? removed : new ChatState();
+                state.watchlist = watchlist;
+                state.refreshVersion = version;
+                chats.put(chatId, state);
+            }
+            return;
+        }
+        long interval = intervalMillis(watchlist);
+        ChatState state = chats.get(chatId);
+        if (state == null || state.watchlist.tickers().isEmpty()) {
+            if (state == null) {
+                state = new ChatState();
+                chats.put(chatId, state);
+            }
+            wheel.schedule(chatId, nextDeadline(chatId, interval, System.currentTimeMillis()));
+        } else {
+            if (intervalMillis(state.watchlist) != interval || !wheel.contains(chatId)) {
+                wheel.schedule(chatId, nextDeadline(chatId, interval, System.currentTimeMillis()));
+            }
+            List<String> dropped = new ArrayList<>(state.watchlist.tickers());
+            dropped.removeAll(watchlist.tickers());
+            notificationService.forget(chatId, dropped);
+        }
+        state.watchlist = watchlist;
+        state.generation = syncGeneration;
+        state.refreshVersion = version;
+    }
+
+    private long intervalMillis(ChatWatchlist watchlist) {
+        return watchlist.interval() > 0 ? Duration.ofSeconds(watchlist.interval()).toMillis() : defaultIntervalMillis;
+    }
+
+    // Фаза чата внутри периода выводится из chatId: чаты ложатся на период равномерно
+    // и сохраняют своё место после перезапуска бота
+    private static long nextDeadline(long chatId, long interval, long now) {
+        long hash = chatId * 0x9E3779B97F4A7C15L;
+        long phase = Math.floorMod(hash ^ (hash >>> 32), interval);
+        long deadline = now - Math.floorMod(now, interval) + phase;
+        return deadline > now ? deadline : deadline + interval;
+    }
+
+    private int scheduledChats() {
+        lock.lock();
+        try {
+            return chats.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static final class ChatState {
+        private ChatWatchlist watchlist;
+        private long generation;
+        private long refreshVersion;
+    }
+}
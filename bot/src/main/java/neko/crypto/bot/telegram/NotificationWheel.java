@@ -0,0 +1,118 @@
+package neko.crypto.bot.telegram;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Хешированное колесо таймеров: слот на тик, в слоте двусвязный список чатов.
+// Постановка и снятие за O(1), продвижение смотрит только слоты прошедших тиков;
+// срок дальше одного оборота просто ждёт в своём слоте нужного тика.
+// Не потокобезопасно, доступ под блокировкой NotificationScheduler
+class NotificationWheel {
+    private final long tickMillis;
+    private final Node[] slots;
+    private final int mask;
+    private final Map<Long, Node> nodes = new HashMap<>();
+    // Последний просмотренный тик. Его слот просматривается снова: прошедший срок,
+    // поставленный после продвижения, попадает в него и срабатывает на следующем
+    private long currentTick;
+
+    NotificationWheel(long tickMillis, int wheelSize, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.slots = new Node[Integer.highestOneBit(Math.max(wheelSize - 1, 1)) << 1];
+        this.mask = slots.length - 1;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    // Прошедший срок сработает на ближайшем продвижении
+    void schedule(long chatId, long deadlineMillis) {
+        Node node = nodes.get(chatId);
+        if (node != null) {
+            unlink(node);
+        } else {
+            node = new Node(chatId);
+            nodes.put(chatId, node);
+        }
+        node.deadline = deadlineMillis;
+        node.deadlineTick = Math.max(Math.ceilDiv(deadlineMillis, tickMillis), currentTick);
+        link(node, (int) (node.deadlineTick & mask));
+    }
+
+    boolean cancel(long chatId) {
+        Node node = nodes.remove(chatId);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    boolean contains(long chatId) {
+        return nodes.containsKey(chatId);
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    // Снимает с колеса всё, чей срок наступил; сработавшие чаты ставятся заново вызывающим
+    List<Expired> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        List<Expired> expired = new ArrayList<>();
+        // После долгой паузы достаточно одного оборота: каждый слот просматривается не больше раза
+        for (long tick = Math.max(currentTick, nowTick - mask); tick <= nowTick; tick++) {
+            Node node = slots[(int) (tick & mask)];
+            while (node != null) {
+                Node next = node.next;
+                if (node.deadlineTick <= nowTick) {
+                    unlink(node);
+                    nodes.remove(node.chatId);
+                    expired.add(new Expired(node.chatId, node.deadline));
+                }
+                node = next;
+            }
+        }
+        currentTick = Math.max(currentTick, nowTick);
+        return expired;
+    }
+
+    private void link(Node node, int slot) {
+        node.slot = slot;
+        node.prev = null;
+        node.next = slots[slot];
+        if (node.next != null) {
+            node.next.prev = node;
+        }
+        slots[slot] = node;
+    }
+
+    private void unlink(Node node) {
+        if (node.prev != null) {
+            node.prev.next = node.next;
+        } else {
+            slots[node.slot] = node.next;
+        }
+        if (node.next != null) {
+            node.next.prev = node.prev;
+        }
+        node.prev = null;
+        node.next = null;
+    }
+
+    record Expired(long chatId, long deadline) {
+    }
+
+    private static final class Node {
+        private final long chatId;
+        private long deadline;
+        private long deadlineTick;
+        private int slot;
+        private Node prev;
+        private Node next;
+
+        private Node(long chatId) {
+            this.chatId = chatId;
+        }
+    }
+}
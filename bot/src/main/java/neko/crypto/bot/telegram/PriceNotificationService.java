@@ -1,99 +1,261 @@
 package neko.crypto.bot.telegram;
 
-import com.pengrad.telegrambot.TelegramBot;
-import com.pengrad.telegrambot.model.request.ReplyKeyboardMarkup;
-import com.pengrad.telegrambot.request.SendMessage;
-import lombok.RequiredArgsConstructor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import lombok.extern.slf4j.Slf4j;
-import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.client.scrapper.LocalPriceCache;
+import neko.crypto.bot.client.scrapper.dto.ChatWatchlist;
+import neko.crypto.bot.client.scrapper.dto.PriceQuote;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.MessageSource;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.HttpClientErrorException;
-import org.springframework.web.client.RestTemplate;
 
-import java.util.Arrays;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class PriceNotificationService {
-    private final ScrapperClient scrapperClient;
-    private final TelegramBot bot;
+    // Столько тикеров помещается в один запрос /prices без риска упереться в длину URL
+    private static final int PRICES_BATCH_SIZE = 100;
+
+    private final LocalPriceCache priceCache;
+    private final TelegramSender sender;
+    private final LastSentPrices lastSent;
     private final MessageSource messageSource;
-    private final RestTemplate restTemplate;
+    // snapshot - полный список цен каждый период; delta - только тикеры, ушедшие от последней доставленной цены дальше порога
+    private final boolean deltaMode;
+    private final double defaultThreshold;
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+    private final Timer batchTimer;
+    private final Timer lagTimer;
+    private final Counter chatsCounter;
+    private final Counter sentCounter;
+    private final Counter failedCounter;
+    private final Counter skippedCounter;
+    private final Counter suppressedCounter;
+
+    public PriceNotificationService(LocalPriceCache priceCache, TelegramSender sender, LastSentPrices lastSent,
+                                    MessageSource messageSource, MeterRegistry meterRegistry,
+                                    @Value("${notification.mode:snapshot}") String mode,
+                                    @Value("${notification.delta.threshold:1.0}") double defaultThreshold) {
+        this.priceCache = priceCache;
+        this.sender = sender;
+        this.lastSent = lastSent;
+        this.messageSource = messageSource;
+        this.deltaMode = switch (mode.toLowerCase(Locale.ROOT)) {
+            case "snapshot" -> false;
+            case "delta" -> true;
+            default -> throw new IllegalArgumentException("Unknown notification.mode: " + mode);
+        };
+        this.defaultThreshold = defaultThreshold;
+        this.batchTimer = Timer.builder("notifications.batch").description("Price notification batch duration").register(meterRegistry);
+        this.lagTimer = Timer.builder("notifications.lag").description("Delay between a notification deadline and its delivery").register(meterRegistry);
+        this.chatsCounter = meterRegistry.counter("notifications.chats");
+        this.sentCounter = meterRegistry.counter("notifications.messages", "result", "sent");
+        this.failedCounter = meterRegistry.counter("notifications.messages", "result", "failed");
+        this.skippedCounter = meterRegistry.counter("notifications.skipped");
+        this.suppressedCounter = meterRegistry.counter("notifications.suppressed");
+    }
+
+    // Порог изменения учитывается только в режиме delta
+    public boolean isDeltaMode() {
+        return deltaMode;
+    }
+
+    public double getDefaultThreshold() {
+        return defaultThreshold;
+    }
 
-    @Scheduled(fixedRate = 300000) // 5min
-    public void sendPriceNotifications() {
-        log.info("Starting price notification task");
+    // Вызывается расписанием для чатов, чей срок наступил; dueAt - самый ранний из их сроков.
+    // Сообщения только ставятся в очередь отправки, счётчики и задержка обновляются по факту доставки
+    public void notifyChats(List<ChatWatchlist> due, long dueAt) {
+        long startedAt = System.nanoTime();
+        int chats = 0;
         try {
-            // Получаем все chatId с непустыми watchlist
-            String chatIdsResponse = restTemplate.getForObject(scrapperClient.getScrapperApiUrl() + "/watchlist/chatIds", String.class);
-            if (chatIdsResponse == null || chatIdsResponse.trim().isEmpty()) {
-                log.info("No chatIds with watchlists found");
-                return;
+            // Цена каждого тикера пачки запрашивается и форматируется один раз
+            Set<String> tickers = new LinkedHashSet<>();
+            for (ChatWatchlist watchlist : due) {
+                tickers.addAll(watchlist.tickers());
             }
+            Map<String, Double> prices = fetchPrices(new ArrayList<>(tickers));
+            Map<String, String> lines = deltaMode ? null : renderPriceLines(tickers, prices);
+            String header = messageSource.getMessage(deltaMode ? "prices.changed" : "prices.notification", null, Locale.getDefault());
 
-            Set<Long> chatIds = Arrays.stream(chatIdsResponse.split(","))
-                    .map(String::trim)
-                    .filter(s -> !s.isEmpty())
-                    .map(Long::parseLong)
-                    .collect(Collectors.toSet());
-            log.debug("Found chatIds: {}", chatIds);
-
-            for (Long chatId : chatIds) {
-                try {
-                    // Получаем watchlist для chatId
-                    String watchlist = scrapperClient.getWatchlist(chatId);
-                    log.debug("Watchlist for chatId {}: '{}'", chatId, watchlist);
-                    if (watchlist == null || watchlist.trim().isEmpty()) {
-                        log.debug("Empty watchlist for chatId {}", chatId);
-                        continue;
-                    }
+            for (ChatWatchlist watchlist : due) {
+                // Чат, прошлое уведомление которого ещё не доставлено, пропускает этот срок
+                if (!inFlight.add(watchlist.chatId())) {
+                    skippedCounter.increment();
+                    continue;
+                }
+                chats++;
+                if (deltaMode) {
+                    notifyChatChanges(watchlist, header, prices, dueAt);
+                } else {
+                    notifyChat(watchlist, header, lines, dueAt);
+                }
+            }
+            // Одна синхронизация outbox на пачку, а не на каждое сообщение
+            sender.flushDurable();
+        } catch (Exception e) {
+            log.error("Error sending price notifications: {}", e.getMessage());
+        } finally {
+            long elapsed = System.nanoTime() - startedAt;
+            batchTimer.record(elapsed, TimeUnit.NANOSECONDS);
+            chatsCounter.increment(chats);
+            log.debug("Price notification batch queued in {} ms: chats={}", elapsed / 1_000_000, chats);
+        }
+    }
 
-                    // Получаем цены для каждого тикера
-                    String[] tickers = watchlist.split(",");
-                    StringBuilder messageBuilder = new StringBuilder(
-                            messageSource.getMessage("prices.notification", null, Locale.getDefault()));
-                    for (String ticker : tickers) {
-                        String cleanTicker = ticker.trim();
-                        if (cleanTicker.isEmpty()) {
-                            log.warn("Empty ticker found in watchlist for chatId {}", chatId);
-                            continue;
-                        }
-                        try {
-                            String price = scrapperClient.getPrice(cleanTicker);
-                            messageBuilder.append(String.format("%s: $%s\n", cleanTicker.toUpperCase(), price.trim()));
-                        } catch (HttpClientErrorException.BadRequest e) {
-                            log.error("Error fetching price for ticker {}: {}", cleanTicker, e.getResponseBodyAsString());
-                            messageBuilder.append(String.format("%s: %s\n", cleanTicker.toUpperCase(),
-                                    messageSource.getMessage("price.error", new Object[]{cleanTicker.toUpperCase(), e.getResponseBodyAsString()}, Locale.getDefault())));
-                        }
-                    }
+    // Тикер из watchlist -> цена; тикеры без цены в ответе отсутствуют
+    private Map<String, Double> fetchPrices(List<String> tickers) {
+        Map<String, Double> prices = new HashMap<>(tickers.size() * 2);
+        for (int from = 0; from < tickers.size(); from += PRICES_BATCH_SIZE) {
+            List<String> batch = tickers.subList(from, Math.min(from + PRICES_BATCH_SIZE, tickers.size()));
+            Map<String, Double> batchPrices = toPriceMap(priceCache.getPrices(batch));
+            for (String ticker : batch) {
+                Double price = batchPrices.get(ticker);
+                if (price != null) {
+                    prices.put(ticker, price);
+                }
+            }
+        }
+        return prices;
+    }
 
-                    // Проверяем, добавлены ли цены
-                    if (messageBuilder.length() == messageSource.getMessage("prices.notification", null, Locale.getDefault()).length()) {
-                        log.debug("No valid prices added to message for chatId {}", chatId);
-                        continue;
-                    }
+    private Map<String, String> renderPriceLines(Collection<String> tickers, Map<String, Double> prices) {
+        Map<String, String> lines = new ConcurrentHashMap<>();
+        for (String ticker : tickers) {
+            lines.put(ticker, renderPriceLine(ticker, prices.get(ticker)));
+        }
+        log.debug("Rendered price lines for {} distinct tickers", lines.size());
+        return lines;
+    }
+
+    private static Map<String, Double> toPriceMap(List<PriceQuote> quotes) {
+        Map<String, Double> prices = new HashMap<>(quotes.size() * 2);
+        for (PriceQuote quote : quotes) {
+            prices.put(quote.ticker(), quote.price());
+        }
+        return prices;
+    }
 
-                    // Отправляем уведомление
-                    SendMessage message = new SendMessage(chatId, messageBuilder.toString());
-                    message.replyMarkup(new ReplyKeyboardMarkup(
-                            new String[]{"/price", "/add", "/pairs"},
-                            new String[]{"/remove", "/list"}
-                    ).resizeKeyboard(true));
-                    bot.execute(message);
-                    log.info("Sent price notification to chatId {}: {}", chatId, messageBuilder);
-                } catch (Exception e) {
-                    log.error("Error processing watchlist for chatId {}: {}", chatId, e.getMessage());
+    // Сообщение собирается из уже готовых строк; недостающий тикер догружается отдельно и вне карты,
+    // чтобы запрос к scrapper не выполнялся под блокировкой её ячейки
+    String buildMessage(String header, List<String> tickers, Map<String, String> lines) {
+        StringBuilder messageBuilder = new StringBuilder(header);
+        for (String ticker : tickers) {
+            String line = lines.get(ticker);
+            if (line == null) {
+                line = renderPriceLine(ticker, toPriceMap(priceCache.getPrices(List.of(ticker))).get(ticker));
+            }
+            messageBuilder.append(line);
+        }
+        return messageBuilder.toString();
+    }
+
+    String renderPriceLine(String ticker, Double price) {
+        String upperTicker = ticker.toUpperCase();
+        if (price != null) {
+            return String.format("%s: $%s\n", upperTicker, AlertFormatter.number(price));
+        }
+        log.error("Price for ticker {} is missing in scrapper response", upperTicker);
+        return String.format("%s: %s\n", upperTicker,
+                messageSource.getMessage("price.error", new Object[]{upperTicker, "Ticker not found"}, Locale.getDefault()));
+    }
+
+    // Цена и её сдвиг от последней доставленной чату; без прошлой цены - обычная строка
+    String renderChangeLine(String ticker, double price, double lastPrice) {
+        if (Double.isNaN(lastPrice)) {
+            return renderPriceLine(ticker, price);
+        }
+        double change = (price - lastPrice) / lastPrice * 100;
+        return String.format(Locale.ROOT, "%s: $%s (%+.2f%%)\n", ticker.toUpperCase(), AlertFormatter.number(price), change);
+    }
+
+    // В сообщение попадают только тикеры, сдвинувшиеся дальше порога; если таких нет, отправки нет
+    private void notifyChatChanges(ChatWatchlist watchlist, String header, Map<String, Double> prices, long dueAt) {
+        long chatId = watchlist.chatId();
+        try {
+            double threshold = watchlist.threshold() > 0 ? watchlist.threshold() : defaultThreshold;
+            StringBuilder text = new StringBuilder(header);
+            List<String> moved = new ArrayList<>();
+            List<Double> movedPrices = new ArrayList<>();
+            for (String ticker : watchlist.tickers()) {
+                // Тикер без цены не считается изменившимся: он сравнится, когда цена появится
+                Double price = prices.get(ticker);
+                if (price == null) {
+                    continue;
+                }
+                double lastPrice = lastSent.get(chatId, ticker);
+                if (!Double.isNaN(lastPrice) && Math.abs(price - lastPrice) < Math.abs(lastPrice) * threshold / 100) {
+                    continue;
+                }
+                moved.add(ticker);
+                movedPrices.add(price);
+                text.append(renderChangeLine(ticker, price, lastPrice));
+            }
+            if (moved.isEmpty()) {
+                inFlight.remove(chatId);
+                suppressedCounter.increment();
+                return;
+            }
+            // Точка отсчёта сдвигается только после доставки: недоставленное изменение уйдёт в следующий раз
+            sender.sendDurable(chatId, text.toString(), true).whenComplete((delivered, e) -> {
+                inFlight.remove(chatId);
+                if (Boolean.TRUE.equals(delivered)) {
+                    for (int i = 0; i < moved.size(); i++) {
+                        lastSent.put(chatId, moved.get(i), movedPrices.get(i));
+                    }
+                    sentCounter.increment();
+                    lagTimer.record(Math.max(0, System.currentTimeMillis() - dueAt), TimeUnit.MILLISECONDS);
+                } else {
+                    failedCounter.increment();
                 }
+            });
+        } catch (Exception e) {
+            inFlight.remove(chatId);
+            failedCounter.increment();
+            log.error("Error processing watchlist changes for chatId {}: {}", chatId, e.getMessage());
+        }
+    }
+
+    // Тикеры, ушедшие из watchlist, больше не сравниваются: их последние цены не нужны
+    public void forget(long chatId, Collection<String> tickers) {
+        if (deltaMode) {
+            for (String ticker : tickers) {
+                lastSent.remove(chatId, ticker);
             }
+        }
+    }
+
+    private void notifyChat(ChatWatchlist watchlist, String header, Map<String, String> lines, long dueAt) {
+        long chatId = watchlist.chatId();
+        try {
+            log.debug("Watchlist for chatId {}: {}", chatId, watchlist.tickers());
+            String text = buildMessage(header, watchlist.tickers(), lines);
+            sender.sendDurable(chatId, text, true).whenComplete((delivered, e) -> {
+                inFlight.remove(chatId);
+                if (Boolean.TRUE.equals(delivered)) {
+                    sentCounter.increment();
+                    lagTimer.record(Math.max(0, System.currentTimeMillis() - dueAt), TimeUnit.MILLISECONDS);
+                } else {
+                    failedCounter.increment();
+                }
+            });
         } catch (Exception e) {
-            log.error("Error fetching chatIds from scrapper: {}", e.getMessage());
+            inFlight.remove(chatId);
+            failedCounter.increment();
+            log.error("Error processing watchlist for chatId {}: {}", chatId, e.getMessage());
         }
     }
-}
\ No newline at end of file
+}
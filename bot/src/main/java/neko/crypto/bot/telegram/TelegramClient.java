@@ -3,9 +3,12 @@ package neko.crypto.bot.telegram;
 import com.pengrad.telegrambot.TelegramBot;
 import com.pengrad.telegrambot.UpdatesListener;
 import com.pengrad.telegrambot.model.Update;
-import com.pengrad.telegrambot.request.SendMessage;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import neko.crypto.bot.telegram.handler.CommandHandler;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Component;
@@ -16,32 +19,57 @@ import java.util.Locale;
 
 @Component
 @RequiredArgsConstructor
+@Slf4j
 public class TelegramClient {
     private final TelegramBot bot;
     private final List<CommandHandler> commandHandlers;
     private final MessageSource messageSource;
+    private final TelegramSender sender;
+    private final UpdateDispatcher dispatcher;
+    private final MeterRegistry meterRegistry;
 
     @PostConstruct
     public void init() {
+        // Подтверждаются только апдейты, переданные диспетчеру; остальные Telegram пришлёт повторно
         bot.setUpdatesListener(updates -> {
+            int confirmed = UpdatesListener.CONFIRMED_UPDATES_NONE;
             for (Update update : updates) {
+                if (!dispatcher.isRunning()) {
+                    return confirmed;
+                }
                 if (update.message() != null && update.message().text() != null) {
-                    try {
-                        handleUpdate(update);
-                    } catch (Exception e) {
-                        Long chatId = update.message().chat().id();
-                        SendMessage message = new SendMessage(chatId, "An error occurred: " + e.getMessage());
-                        bot.execute(message);
+                    Long chatId = update.message().chat().id();
+                    if (!dispatcher.submit(chatId, () -> process(update))) {
+                        log.warn("Update queue for chatId {} is full, rejecting update {}", chatId, update.updateId());
+                        sender.send(chatId, messageSource.getMessage("client.error.busy", null, Locale.getDefault()));
                     }
                 }
+                confirmed = update.updateId();
             }
-            return UpdatesListener.CONFIRMED_UPDATES_ALL;
+            return confirmed;
         }, e -> {
             System.err.println("Error in UpdatesListener: " + e.getMessage());
             //return UpdatesListener.CONFIRMED_UPDATES_ALL;
         });
     }
 
+    // Бин уничтожается раньше диспетчера и sender: сначала перестаём получать апдейты, затем дорабатываем
+    // принятые, пока sender ещё может отправить ответы
+    @PreDestroy
+    public void stop() {
+        bot.removeGetUpdatesListener();
+        dispatcher.shutdown();
+    }
+
+    private void process(Update update) {
+        try {
+            handleUpdate(update);
+        } catch (Exception e) {
+            Long chatId = update.message().chat().id();
+            sender.send(chatId, "An error occurred: " + e.getMessage());
+        }
+    }
+
     private void handleUpdate(Update update) {
         Long chatId = update.message().chat().id();
         String text = update.message().text().toLowerCase();
@@ -54,20 +82,37 @@ public class TelegramClient {
         for (CommandHandler handler : commandHandlers) {
             if (handler.canHandle(text)) {
                 String response;
+                String outcome = "success";
+                Timer.Sample sample = Timer.start(meterRegistry);
                 try {
                     response = handler.handle(update, messageSource);
                 } catch (HttpClientErrorException.BadRequest e) {
+                    outcome = "bad_request";
                     response = messageSource.getMessage("client.error.badrequest", null, Locale.getDefault());
+                } catch (RuntimeException e) {
+                    outcome = "error";
+                    throw e;
+                } finally {
+                    // Тег - имя обработчика, а не текст команды: набор значений ограничен
+                    sample.stop(Timer.builder("telegram.updates")
+                            .description("Command handling time, without the Telegram send")
+                            .tag("command", commandName(handler))
+                            .tag("outcome", outcome)
+                            .publishPercentileHistogram()
+                            .register(meterRegistry));
                 }
-                SendMessage message = new SendMessage(chatId, response);
                 //message.replyMarkup(keyboard);
-                bot.execute(message);
+                sender.send(chatId, response);
                 return;
             }
         }
 
-        SendMessage message = new SendMessage(chatId, messageSource.getMessage("client.error.unknown", null, Locale.getDefault()));
+        meterRegistry.counter("telegram.updates.unknown").increment();
         //message.replyMarkup(keyboard);
-        bot.execute(message);
+        sender.send(chatId, messageSource.getMessage("client.error.unknown", null, Locale.getDefault()));
+    }
+
+    private static String commandName(CommandHandler handler) {
+        return handler.getClass().getSimpleName().replace("CommandHandler", "").toLowerCase(Locale.ROOT);
     }
 }
\ No newline at end of file
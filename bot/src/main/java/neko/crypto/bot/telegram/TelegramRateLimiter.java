@@ -0,0 +1,43 @@
+package neko.crypto.bot.telegram;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.github.bucket4j.Bandwidth;
+import io.github.bucket4j.Bucket;
+import io.github.bucket4j.ConsumptionProbe;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+
+// Лимиты Telegram: не больше 30 сообщений в секунду всего и 1 сообщения в секунду в один чат
+@Component
+public class TelegramRateLimiter {
+    private final Bucket globalBucket;
+    private final LoadingCache<Long, Bucket> chatBuckets;
+
+    public TelegramRateLimiter(@Value("${telegram.rate-limit.global:30}") long globalPerSecond,
+                               @Value("${telegram.rate-limit.per-chat:1}") long perChatPerSecond) {
+        this.globalBucket = perSecond(globalPerSecond);
+        this.chatBuckets = Caffeine.newBuilder()
+                .expireAfterAccess(Duration.ofMinutes(1))
+                .build(chatId -> perSecond(perChatPerSecond));
+    }
+
+    // 0, если отправка укладывается в лимит чата, иначе сколько наносекунд ждать; поток не блокируется
+    public long tryAcquireChat(long chatId) {
+        ConsumptionProbe probe = chatBuckets.get(chatId).tryConsumeAndReturnRemaining(1);
+        return probe.isConsumed() ? 0 : probe.getNanosToWaitForRefill();
+    }
+
+    // Блокирует поток, пока отправка не уложится в общий лимит бота
+    public void acquireGlobal() throws InterruptedException {
+        globalBucket.asBlocking().consume(1);
+    }
+
+    private static Bucket perSecond(long tokens) {
+        return Bucket.builder()
+                .addLimit(Bandwidth.builder().capacity(tokens).refillGreedy(tokens, Duration.ofSeconds(1)).build())
+                .build();
+    }
+}
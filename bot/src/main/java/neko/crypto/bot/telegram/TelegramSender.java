@@ -0,0 +1,327 @@
+package neko.crypto.bot.telegram;
+
+import com.pengrad.telegrambot.Callback;
+import com.pengrad.telegrambot.TelegramBot;
+import com.pengrad.telegrambot.model.request.ReplyKeyboardMarkup;
+import com.pengrad.telegrambot.request.SendMessage;
+import com.pengrad.telegrambot.response.SendResponse;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.DelayQueue;
+import java.util.concurrent.Delayed;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Вся отправка сообщений в Telegram идёт через эту очередь: вызывающий поток не ждёт ни лимитов, ни ответа.
+// Один поток раздаёт сообщения по лимитам и отправляет их асинхронно; 429 ставит чат на паузу на retry_after,
+// сетевые сбои и 5xx повторяются с экспоненциальной задержкой. Уведомления до подтверждения лежат в outbox на диске
+@Component
+@Slf4j
+public class TelegramSender {
+    private static final ReplyKeyboardMarkup NOTIFICATION_KEYBOARD = new ReplyKeyboardMarkup(
+            new String[]{"/price", "/add", "/pairs"},
+            new String[]{"/remove", "/list"}
+    ).resizeKeyboard(true);
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    private final TelegramBot bot;
+    private final TelegramRateLimiter rateLimiter;
+    private final int queueCapacity;
+    private final int maxAttempts;
+    private final long initialBackoffNanos;
+    private final long maxBackoffNanos;
+    private final Path outboxDirectory;
+    private final Semaphore inFlight;
+
+    // В очереди всё, что принято и ещё не завершено, включая ожидающие повтора; порядок - по времени готовности
+    private final DelayQueue<Pending> queue = new DelayQueue<>();
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicLong sequence = new AtomicLong();
+    // Чат на паузе после 429: до этого момента (System.nanoTime) ему ничего не отправляется
+    private final Map<Long, Long> pausedUntil = new ConcurrentHashMap<>();
+    private final Timer latencyTimer;
+    private final Counter sentCounter;
+    private final Counter retriedCounter;
+    private final Counter throttledCounter;
+    private final Counter failedCounter;
+    private final Counter rejectedCounter;
+    private DeliveryOutbox outbox;
+    private Thread dispatcher;
+
+    public TelegramSender(TelegramBot bot, TelegramRateLimiter rateLimiter, MeterRegistry meterRegistry,
+                          @Value("${telegram.delivery.queue-capacity:10000}") int queueCapacity,
+                          @Value("${telegram.delivery.max-in-flight:64}") int maxInFlight,
+                          @Value("${telegram.delivery.max-attempts:5}") int maxAttempts,
+                          @Value("${telegram.delivery.initial-backoff:500ms}") Duration initialBackoff,
+                          @Value("${telegram.delivery.max-backoff:30s}") Duration maxBackoff,
+                          @Value("${telegram.delivery.outbox-dir:./data/outbox}") String outboxDirectory) {
+        this.bot = bot;
+        this.rateLimiter = rateLimiter;
+        this.queueCapacity = queueCapacity;
+        this.maxAttempts = maxAttempts;
+        this.initialBackoffNanos = initialBackoff.toNanos();
+        this.maxBackoffNanos = maxBackoff.toNanos();
+        this.outboxDirectory = Path.of(outboxDirectory);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.latencyTimer = Timer.builder("telegram.delivery.latency")
+                .description("Time from enqueueing a message to its acceptance by Telegram")
+                .publishPercentileHistogram()
+                .register(meterRegistry);
+        this.sentCounter = meterRegistry.counter("telegram.delivery", "result", "sent");
+        this.retriedCounter = meterRegistry.counter("telegram.delivery", "result", "retried");
+        this.throttledCounter = meterRegistry.counter("telegram.delivery", "result", "throttled");
+        this.failedCounter = meterRegistry.counter("telegram.delivery", "result", "failed");
+        this.rejectedCounter = meterRegistry.counter("telegram.delivery", "result", "rejected");
+        Gauge.builder("telegram.delivery.queue", depth, AtomicInteger::get)
+                .description("Messages accepted for delivery and not finished yet")
+                .register(meterRegistry);
+        Gauge.builder("telegram.delivery.outbox", this, TelegramSender::outboxSize)
+                .description("Notifications persisted in the outbox and not delivered yet")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() throws IOException {
+        outbox = DeliveryOutbox.open(outboxDirectory);
+        // Недоставленное до остановки уходит первым и мимо лимита очереди: оно уже было принято
+        for (DeliveryOutbox.Entry entry : outbox.pending()) {
+            depth.incrementAndGet();
+            queue.add(new Pending(entry.id(), sequence.incrementAndGet(), entry.chatId(), entry.text(), entry.keyboard(),
+                    true, entry.enqueuedAt()));
+        }
+        log.info("Telegram delivery started, {} notifications restored from outbox {}", queue.size(), outboxDirectory);
+        dispatcher = Thread.ofPlatform().name("telegram-delivery").daemon().start(this::dispatch);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (dispatcher != null) {
+            dispatcher.interrupt();
+        }
+        // outbox нет, если start упал до его открытия
+        if (outbox == null) {
+            return;
+        }
+        try {
+            outbox.close();
+        } catch (IOException e) {
+            log.warn("Failed to close delivery outbox: {}", e.getMessage());
+        }
+    }
+
+    // Ответ на команду: после перезапуска он уже не нужен, поэтому на диск не пишется
+    public CompletableFuture<Boolean> send(long chatId, String text) {
+        return result(enqueue(chatId, text, false, false, false));
+    }
+
+    // Уведомление: хранится в outbox, пока Telegram его не примет или не отклонит окончательно
+    public CompletableFuture<Boolean> sendDurable(long chatId, String text, boolean keyboard) {
+        return result(enqueue(chatId, text, keyboard, true, false));
+    }
+
+    // Как sendDurable, но сообщение принимается только вместе с записью в outbox: true - оно записано
+    // и после flushDurable переживёт и перезапуск, false - не принято, отправитель должен повторить сам
+    public boolean trySendDurable(long chatId, String text, boolean keyboard) {
+        return enqueue(chatId, text, keyboard, true, true) != null;
+    }
+
+    // Сбрасывает на диск принятые с последнего вызова уведомления; зовётся раз на пачку.
+    // false - сброс не удался, и о сохранности принятого после сбоя ОС говорить нельзя
+    public boolean flushDurable() {
+        try {
+            outbox.flush();
+            return true;
+        } catch (IOException e) {
+            log.error("Failed to flush delivery outbox: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    private static CompletableFuture<Boolean> result(Pending pending) {
+        return pending != null ? pending.result : CompletableFuture.completedFuture(false);
+    }
+
+    // null - сообщение не принято
+    private Pending enqueue(long chatId, String text, boolean keyboard, boolean durable, boolean persistedOnly) {
+        if (depth.incrementAndGet() > queueCapacity) {
+            depth.decrementAndGet();
+            rejectedCounter.increment();
+            log.warn("Delivery queue is full, dropping message for chatId {}", chatId);
+            return null;
+        }
+        long enqueuedAt = System.currentTimeMillis();
+        long id = 0;
+        if (durable) {
+            try {
+                id = outbox.append(chatId, text, keyboard, enqueuedAt).id();
+            } catch (IOException e) {
+                log.error("Failed to persist notification for chatId {}: {}", chatId, e.getMessage());
+                if (persistedOnly) {
+                    depth.decrementAndGet();
+                    rejectedCounter.increment();
+                    return null;
+                }
+                // Без записи в outbox сообщение всё равно отправляется, но переживёт только этот запуск
+                durable = false;
+            }
+        }
+        Pending pending = new Pending(id, sequence.incrementAndGet(), chatId, text, keyboard, durable, enqueuedAt);
+        queue.add(pending);
+        return pending;
+    }
+
+    private void dispatch() {
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                Pending pending = queue.take();
+                long now = System.nanoTime();
+                Long paused = pausedUntil.get(pending.chatId);
+                if (paused != null) {
+                    if (paused - now > 0) {
+                        retryAt(pending, paused);
+                        continue;
+                    }
+                    pausedUntil.remove(pending.chatId, paused);
+                }
+                long wait = rateLimiter.tryAcquireChat(pending.chatId);
+                if (wait > 0) {
+                    retryAt(pending, now + wait);
+                    continue;
+                }
+                inFlight.acquire();
+                rateLimiter.acquireGlobal();
+                execute(pending);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private void execute(Pending pending) {
+        SendMessage message = new SendMessage(pending.chatId, pending.text);
+        if (pending.keyboard) {
+            message.replyMarkup(NOTIFICATION_KEYBOARD);
+        }
+        bot.execute(message, new Callback<SendMessage, SendResponse>() {
+            @Override
+            public void onResponse(SendMessage request, SendResponse response) {
+                inFlight.release();
+                if (response.isOk()) {
+                    latencyTimer.record(Math.max(0, System.currentTimeMillis() - pending.enqueuedAt), TimeUnit.MILLISECONDS);
+                    sentCounter.increment();
+                    finish(pending, true);
+                } else if (response.errorCode() == TOO_MANY_REQUESTS) {
+                    Integer retryAfter = response.parameters() != null ? response.parameters().retryAfter() : null;
+                    long until = System.nanoTime() + TimeUnit.SECONDS.toNanos(retryAfter != null ? retryAfter : DEFAULT_RETRY_AFTER_SECONDS);
+                    pausedUntil.merge(pending.chatId, until, (current, next) -> next - current > 0 ? next : current);
+                    throttledCounter.increment();
+                    log.debug("Telegram throttled chatId {} for {} s", pending.chatId, retryAfter);
+                    retryAt(pending, until);
+                } else if (response.errorCode() >= 500) {
+                    retry(pending, response.errorCode() + " " + response.description());
+                } else {
+                    // Остальные 4xx (бот заблокирован, чат удалён, неверный запрос) повтор не исправит
+                    log.error("Telegram rejected message for chatId {}: {} - {}",
+                            pending.chatId, response.errorCode(), response.description());
+                    failedCounter.increment();
+                    finish(pending, false);
+                }
+            }
+
+            @Override
+            public void onFailure(SendMessage request, IOException e) {
+                inFlight.release();
+                retry(pending, e.getMessage());
+            }
+        });
+    }
+
+    private void retry(Pending pending, String reason) {
+        if (++pending.attempts >= maxAttempts) {
+            log.error("Giving up on message for chatId {} after {} attempts: {}", pending.chatId, pending.attempts, reason);
+            failedCounter.increment();
+            finish(pending, false);
+            return;
+        }
+        long backoff = Math.min(maxBackoffNanos, initialBackoffNanos << Math.min(pending.attempts - 1, 20));
+        long jitter = ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+        log.debug("Retrying message for chatId {} (attempt {}): {}", pending.chatId, pending.attempts, reason);
+        retriedCounter.increment();
+        retryAt(pending, System.nanoTime() + backoff / 2 + jitter);
+    }
+
+    private void retryAt(Pending pending, long readyAt) {
+        pending.readyAt = readyAt;
+        queue.add(pending);
+    }
+
+    private void finish(Pending pending, boolean delivered) {
+        depth.decrementAndGet();
+        if (pending.durable) {
+            try {
+                outbox.complete(pending.id);
+            } catch (IOException e) {
+                log.error("Failed to mark notification {} as finished in outbox: {}", pending.id, e.getMessage());
+            }
+        }
+        pending.result.complete(delivered);
+    }
+
+    private int outboxSize() {
+        return outbox != null ? outbox.size() : 0;
+    }
+
+    private static final class Pending implements Delayed {
+        private final long id;
+        private final long sequence;
+        private final long chatId;
+        private final String text;
+        private final boolean keyboard;
+        private final boolean durable;
+        private final long enqueuedAt;
+        private final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        private int attempts;
+        private volatile long readyAt = System.nanoTime();
+
+        private Pending(long id, long sequence, long chatId, String text, boolean keyboard, boolean durable, long enqueuedAt) {
+            this.id = id;
+            this.sequence = sequence;
+            this.chatId = chatId;
+            this.text = text;
+            this.keyboard = keyboard;
+            this.durable = durable;
+            this.enqueuedAt = enqueuedAt;
+        }
+
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(readyAt - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        // При равной готовности сообщения уходят в порядке постановки
+        @Override
+        public int compareTo(Delayed other) {
+            Pending that = (Pending) other;
+            int byTime = Long.compare(readyAt - that.readyAt, 0);
+            return byTime != 0 ? byTime : Long.compare(sequence, that.sequence);
+        }
+    }
+}
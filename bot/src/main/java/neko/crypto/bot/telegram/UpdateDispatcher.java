@@ -0,0 +1,100 @@
+package neko.crypto.bot.telegram;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+// Полосатый исполнитель: чат всегда попадает в одну полосу, поэтому его апдейты идут строго по порядку,
+// а разные полосы работают параллельно. Очереди ограничены, при переполнении submit возвращает false.
+// Принятые апдейты уже подтверждены Telegram, поэтому при остановке полосы дорабатывают свои очереди
+@Component
+@Slf4j
+public class UpdateDispatcher {
+    private final BlockingQueue<Runnable>[] queues;
+    private final Thread[] workers;
+    private final long drainTimeoutNanos;
+    private volatile boolean running = true;
+
+    @SuppressWarnings("unchecked")
+    public UpdateDispatcher(@Value("${telegram.dispatch.stripes:32}") int stripes,
+                            @Value("${telegram.dispatch.queue-capacity:50}") int queueCapacity,
+                            @Value("${telegram.dispatch.drain-timeout:10s}") Duration drainTimeout) {
+        this.drainTimeoutNanos = drainTimeout.toNanos();
+        this.queues = new BlockingQueue[stripes];
+        this.workers = new Thread[stripes];
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            BlockingQueue<Runnable> queue = new ArrayBlockingQueue<>(queueCapacity);
+            queues[stripe] = queue;
+            workers[stripe] = Thread.ofVirtual().name("update-stripe-" + stripe).start(() -> work(queue));
+        }
+    }
+
+    public boolean submit(long chatId, Runnable task) {
+        if (!running) {
+            return false;
+        }
+        int stripe = Math.floorMod(Long.hashCode(chatId * 0x9E3779B97F4A7C15L), queues.length);
+        return queues[stripe].offer(task);
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // take() без таймаута не заметил бы остановку на пустой очереди, а прерывать поток нельзя:
+    // это оборвало бы запрос к scrapper посреди обработки апдейта
+    private void work(BlockingQueue<Runnable> queue) {
+        while (true) {
+            try {
+                Runnable task = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (task == null) {
+                    if (!running) {
+                        return;
+                    }
+                    continue;
+                }
+                task.run();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                log.error("Update handling failed: {}", e.getMessage(), e);
+            }
+        }
+    }
+
+    // Новые апдейты больше не принимаются, уже принятые обрабатываются в пределах drain-timeout
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        long deadline = System.nanoTime() + drainTimeoutNanos;
+        try {
+            for (Thread worker : workers) {
+                worker.join(Duration.ofNanos(Math.max(0, deadline - System.nanoTime())));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        int dropped = 0;
+        for (int stripe = 0; stripe < workers.length; stripe++) {
+            if (workers[stripe].isAlive()) {
+                dropped += queues[stripe].size();
+                workers[stripe].interrupt();
+            }
+        }
+        if (dropped > 0) {
+            log.warn("Update dispatcher stopped with {} accepted updates not handled", dropped);
+        } else {
+            log.info("Update dispatcher drained and stopped");
+        }
+    }
+}
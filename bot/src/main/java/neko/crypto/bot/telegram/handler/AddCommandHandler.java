@@ -3,16 +3,21 @@ package neko.crypto.bot.telegram.handler;
 import com.pengrad.telegrambot.model.Update;
 import lombok.RequiredArgsConstructor;
 import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.telegram.NotificationScheduler;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 @Component
 @RequiredArgsConstructor
 public class AddCommandHandler implements CommandHandler {
     private final ScrapperClient scrapperClient;
+    private final NotificationScheduler notificationScheduler;
 
     @Override
     public boolean canHandle(String command) {
@@ -21,24 +26,40 @@ public class AddCommandHandler implements CommandHandler {
 
     @Override
     public String handle(Update update, MessageSource messageSource) {
-        String text = update.message().text().toLowerCase();
-        String[] parts = text.split(" ");
-        String ticker = parts.length > 1 ? parts[1].toLowerCase() : null;
+        List<String> tickers = extractTickers(update.message().text());
         Long chatId = update.message().chat().id();
+        if (tickers.isEmpty()) {
+            return messageSource.getMessage("add.invalid", null, Locale.getDefault());
+        }
 
-        if (ticker != null) {
-            try {
-                String response = scrapperClient.addToWatchlist(chatId, ticker);
-                if (response == null || response.isEmpty()) {
-                    return messageSource.getMessage("add.success", new Object[]{ticker.toUpperCase()}, Locale.getDefault());
+        String label = String.join(", ", tickers).toUpperCase();
+        try {
+            // Все тикеры одним запросом, ответ одним сообщением
+            Map<String, String> result = scrapperClient.addToWatchlist(chatId, tickers);
+            notificationScheduler.refresh(chatId);
+            if (result.size() == 1) {
+                Map.Entry<String, String> entry = result.entrySet().iterator().next();
+                if ("INVALID".equals(entry.getValue())) {
+                    return messageSource.getMessage("add.error", new Object[]{label, "Invalid ticker: " + tickers.getFirst()}, Locale.getDefault());
                 }
-                return messageSource.getMessage("add.error", new Object[]{ticker.toUpperCase(), response}, Locale.getDefault());
-            } catch (HttpClientErrorException.BadRequest e) {
-                return messageSource.getMessage("add.error", new Object[]{ticker.toUpperCase(), e.getResponseBodyAsString()}, Locale.getDefault());
-            } catch (Exception e) {
-                return messageSource.getMessage("add.error", new Object[]{ticker.toUpperCase(), "Unexpected error: " + e.getMessage()}, Locale.getDefault());
+                return messageSource.getMessage("add.success", new Object[]{label}, Locale.getDefault());
             }
+            StringBuilder lines = new StringBuilder();
+            result.forEach((ticker, change) -> lines.append(messageSource.getMessage(switch (change) {
+                case "ADDED" -> "add.added";
+                case "EXISTS" -> "add.exists";
+                default -> "add.invalid.ticker";
+            }, new Object[]{ticker}, Locale.getDefault())).append('\n'));
+            return messageSource.getMessage("add.result", new Object[]{lines}, Locale.getDefault());
+        } catch (HttpClientErrorException.BadRequest e) {
+            return messageSource.getMessage("add.error", new Object[]{label, e.getResponseBodyAsString()}, Locale.getDefault());
+        } catch (Exception e) {
+            return messageSource.getMessage("add.error", new Object[]{label, "Unexpected error: " + e.getMessage()}, Locale.getDefault());
         }
-        return messageSource.getMessage("add.invalid", null, Locale.getDefault());
     }
-}
\ No newline at end of file
+
+    static List<String> extractTickers(String text) {
+        String[] parts = text.toLowerCase().trim().split("[\\s,]+");
+        return Arrays.stream(parts, 1, parts.length).filter(part -> !part.isEmpty()).distinct().toList();
+    }
+}
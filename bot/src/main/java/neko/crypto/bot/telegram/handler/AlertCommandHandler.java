@@ -0,0 +1,55 @@
+package neko.crypto.bot.telegram.handler;
+
+import com.pengrad.telegrambot.model.Update;
+import lombok.RequiredArgsConstructor;
+import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.telegram.AlertFormatter;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.Locale;
+
+@Component
+@RequiredArgsConstructor
+public class AlertCommandHandler implements CommandHandler {
+    private final ScrapperClient scrapperClient;
+
+    @Override
+    public boolean canHandle(String command) {
+        // /alerts обрабатывает AlertsCommandHandler
+        return command.equals("/alert") || command.startsWith("/alert ");
+    }
+
+    @Override
+    public String handle(Update update, MessageSource messageSource) {
+        String text = update.message().text().toLowerCase().trim();
+        String[] parts = text.split("\\s+");
+        Long chatId = update.message().chat().id();
+        if (parts.length != 4) {
+            return messageSource.getMessage("alert.invalid", null, Locale.getDefault());
+        }
+
+        String ticker = parts[1];
+        String direction = AlertFormatter.direction(parts[2]);
+        double threshold;
+        try {
+            threshold = Double.parseDouble(parts[3].replace(',', '.'));
+        } catch (NumberFormatException e) {
+            return messageSource.getMessage("alert.invalid", null, Locale.getDefault());
+        }
+        if (direction == null) {
+            return messageSource.getMessage("alert.invalid", null, Locale.getDefault());
+        }
+
+        try {
+            String alertId = scrapperClient.addAlert(chatId, ticker, direction, threshold);
+            return messageSource.getMessage("alert.success", new Object[]{alertId, ticker.toUpperCase(),
+                    AlertFormatter.condition(direction), AlertFormatter.number(threshold)}, Locale.getDefault());
+        } catch (HttpClientErrorException.BadRequest e) {
+            return messageSource.getMessage("alert.error", new Object[]{ticker.toUpperCase(), e.getResponseBodyAsString()}, Locale.getDefault());
+        } catch (Exception e) {
+            return messageSource.getMessage("alert.error", new Object[]{ticker.toUpperCase(), "Unexpected error: " + e.getMessage()}, Locale.getDefault());
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package neko.crypto.bot.telegram.handler;
+
+import com.pengrad.telegrambot.model.Update;
+import lombok.RequiredArgsConstructor;
+import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.client.scrapper.dto.PriceAlert;
+import neko.crypto.bot.telegram.AlertFormatter;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Locale;
+
+@Component
+@RequiredArgsConstructor
+public class AlertsCommandHandler implements CommandHandler {
+    private final ScrapperClient scrapperClient;
+
+    @Override
+    public boolean canHandle(String command) {
+        return command.startsWith("/alerts");
+    }
+
+    @Override
+    public String handle(Update update, MessageSource messageSource) {
+        Long chatId = update.message().chat().id();
+        try {
+            List<PriceAlert> alerts = scrapperClient.getAlerts(chatId);
+            if (alerts.isEmpty()) {
+                return messageSource.getMessage("alerts.empty", null, Locale.getDefault());
+            }
+            StringBuilder lines = new StringBuilder();
+            for (PriceAlert alert : alerts) {
+                lines.append(String.format("#%d %s %s %s\n", alert.id(), alert.ticker(),
+                        AlertFormatter.condition(alert.direction()), AlertFormatter.number(alert.threshold())));
+            }
+            return messageSource.getMessage("alerts.success", new Object[]{lines}, Locale.getDefault());
+        } catch (Exception e) {
+            return messageSource.getMessage("alerts.error", new Object[]{"Unexpected error: " + e.getMessage()}, Locale.getDefault());
+        }
+    }
+}
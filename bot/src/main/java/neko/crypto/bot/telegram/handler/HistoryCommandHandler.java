@@ -0,0 +1,61 @@
+package neko.crypto.bot.telegram.handler;
+
+import com.pengrad.telegrambot.model.Update;
+import lombok.RequiredArgsConstructor;
+import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.client.scrapper.dto.Candle;
+import neko.crypto.bot.telegram.AlertFormatter;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+@Component
+@RequiredArgsConstructor
+public class HistoryCommandHandler implements CommandHandler {
+    private static final Set<String> RESOLUTIONS = Set.of("1m", "5m", "1h");
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm").withZone(ZoneOffset.UTC);
+    private static final int CANDLES = 12;
+
+    private final ScrapperClient scrapperClient;
+
+    @Override
+    public boolean canHandle(String command) {
+        return command.startsWith("/history");
+    }
+
+    @Override
+    public String handle(Update update, MessageSource messageSource) {
+        String[] parts = update.message().text().toLowerCase().trim().split("\\s+");
+        String ticker = parts.length > 1 ? parts[1] : null;
+        String resolution = parts.length > 2 ? parts[2] : "5m";
+        if (ticker == null || !RESOLUTIONS.contains(resolution)) {
+            return messageSource.getMessage("history.invalid", null, Locale.getDefault());
+        }
+
+        try {
+            List<Candle> candles = scrapperClient.getHistory(ticker, resolution, CANDLES);
+            if (candles.isEmpty()) {
+                return messageSource.getMessage("history.empty", new Object[]{ticker.toUpperCase()}, Locale.getDefault());
+            }
+            // Время открытия, open, high, low, close
+            StringBuilder lines = new StringBuilder();
+            for (Candle candle : candles) {
+                lines.append(String.format("%s  O %s  H %s  L %s  C %s\n", TIME.format(Instant.ofEpochMilli(candle.openTime())),
+                        AlertFormatter.number(candle.open()), AlertFormatter.number(candle.high()),
+                        AlertFormatter.number(candle.low()), AlertFormatter.number(candle.close())));
+            }
+            return messageSource.getMessage("history.success", new Object[]{ticker.toUpperCase(), resolution, lines}, Locale.getDefault());
+        } catch (HttpClientErrorException.BadRequest e) {
+            return messageSource.getMessage("history.error", new Object[]{ticker.toUpperCase(), e.getResponseBodyAsString()}, Locale.getDefault());
+        } catch (Exception e) {
+            return messageSource.getMessage("history.error", new Object[]{ticker.toUpperCase(), "Unexpected error: " + e.getMessage()}, Locale.getDefault());
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package neko.crypto.bot.telegram.handler;
+
+import com.pengrad.telegrambot.model.Update;
+import lombok.RequiredArgsConstructor;
+import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.telegram.NotificationScheduler;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.Map;
+
+@Component
+@RequiredArgsConstructor
+public class IntervalCommandHandler implements CommandHandler {
+    // Период уведомлений о ценах в секундах
+    private static final Map<String, Integer> INTERVALS = Map.of("1m", 60, "5m", 300, "15m", 900, "1h", 3600);
+
+    private final ScrapperClient scrapperClient;
+    private final NotificationScheduler notificationScheduler;
+
+    @Override
+    public boolean canHandle(String command) {
+        return command.startsWith("/interval");
+    }
+
+    @Override
+    public String handle(Update update, MessageSource messageSource) {
+        Long chatId = update.message().chat().id();
+        String[] parts = update.message().text().toLowerCase().trim().split("\\s+");
+        Integer seconds = parts.length > 1 ? INTERVALS.get(parts[1]) : null;
+        if (seconds == null) {
+            return messageSource.getMessage("interval.invalid", null, Locale.getDefault());
+        }
+
+        try {
+            scrapperClient.setInterval(chatId, seconds);
+        } catch (Exception e) {
+            return messageSource.getMessage("interval.error", new Object[]{e.getMessage()}, Locale.getDefault());
+        }
+        notificationScheduler.refresh(chatId);
+        return messageSource.getMessage("interval.success", new Object[]{parts[1]}, Locale.getDefault());
+    }
+}
@@ -7,6 +7,7 @@ import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
 
+import java.util.List;
 import java.util.Locale;
 
 @Component
@@ -23,11 +24,11 @@ public class ListCommandHandler implements CommandHandler {
     public String handle(Update update, MessageSource messageSource) {
         Long chatId = update.message().chat().id();
         try {
-            String watchlist = scrapperClient.getWatchlist(chatId);
-            if (watchlist == null || watchlist.isEmpty()) {
+            List<String> tickers = scrapperClient.getWatchlist(chatId).tickers();
+            if (tickers.isEmpty()) {
                 return messageSource.getMessage("list.empty", null, Locale.getDefault());
             }
-            return messageSource.getMessage("list.success", new Object[]{watchlist}, Locale.getDefault());
+            return messageSource.getMessage("list.success", new Object[]{String.join(", ", tickers)}, Locale.getDefault());
         } catch (HttpClientErrorException.BadRequest e) {
             return messageSource.getMessage("list.error", new Object[]{"Error fetching watchlist: " + e.getResponseBodyAsString()}, Locale.getDefault());
         } catch (Exception e) {
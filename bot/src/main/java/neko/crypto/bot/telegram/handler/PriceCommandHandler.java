@@ -2,7 +2,9 @@ package neko.crypto.bot.telegram.handler;
 
 import com.pengrad.telegrambot.model.Update;
 import lombok.RequiredArgsConstructor;
-import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.client.scrapper.LocalPriceCache;
+import neko.crypto.bot.client.scrapper.dto.PriceQuote;
+import neko.crypto.bot.telegram.AlertFormatter;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Component;
 import org.springframework.web.client.HttpClientErrorException;
@@ -12,7 +14,7 @@ import java.util.Locale;
 @Component
 @RequiredArgsConstructor
 public class PriceCommandHandler implements CommandHandler {
-    private final ScrapperClient scrapperClient;
+    private final LocalPriceCache priceCache;
 
     @Override
     public boolean canHandle(String command) {
@@ -27,8 +29,8 @@ public class PriceCommandHandler implements CommandHandler {
 
         if (ticker != null) {
             try {
-                String price = scrapperClient.getPrice(ticker);
-                return messageSource.getMessage("price.success", new Object[]{ticker.toUpperCase(), price}, Locale.getDefault());
+                PriceQuote quote = priceCache.getPrice(ticker);
+                return messageSource.getMessage("price.success", new Object[]{ticker.toUpperCase(), AlertFormatter.number(quote.price())}, Locale.getDefault());
             } catch (HttpClientErrorException.BadRequest e) {
                 return messageSource.getMessage("price.error", new Object[]{ticker.toUpperCase(), e.getResponseBodyAsString()}, Locale.getDefault());
             } catch (Exception e) {
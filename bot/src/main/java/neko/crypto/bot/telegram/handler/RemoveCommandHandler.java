@@ -3,15 +3,19 @@ package neko.crypto.bot.telegram.handler;
 import com.pengrad.telegrambot.model.Update;
 import lombok.RequiredArgsConstructor;
 import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.telegram.NotificationScheduler;
 import org.springframework.context.MessageSource;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 
 @Component
 @RequiredArgsConstructor
 public class RemoveCommandHandler implements CommandHandler {
     private final ScrapperClient scrapperClient;
+    private final NotificationScheduler notificationScheduler;
 
     @Override
     public boolean canHandle(String command) {
@@ -21,16 +25,26 @@ public class RemoveCommandHandler implements CommandHandler {
     @Override
     public String handle(Update update, MessageSource messageSource) {
         Long chatId = update.message().chat().id();
-        String text = update.message().text().toLowerCase();
-        String ticker = extractTicker(text);
-        if (ticker != null && scrapperClient.removeFromWatchlist(chatId, ticker)) {
-            return messageSource.getMessage("remove.success", new Object[]{ticker.toUpperCase()}, Locale.getDefault());
+        List<String> tickers = AddCommandHandler.extractTickers(update.message().text());
+        if (tickers.isEmpty()) {
+            return messageSource.getMessage("remove.error", null, Locale.getDefault());
         }
-        return messageSource.getMessage("remove.error", null, Locale.getDefault());
-    }
 
-    private String extractTicker(String text) {
-        String[] parts = text.split(" ");
-        return parts.length > 1 ? parts[1].toLowerCase() : null;
+        Map<String, String> result;
+        try {
+            result = scrapperClient.removeFromWatchlist(chatId, tickers);
+        } catch (Exception e) {
+            return messageSource.getMessage("remove.error", null, Locale.getDefault());
+        }
+        notificationScheduler.refresh(chatId);
+        if (result.size() == 1) {
+            return "REMOVED".equals(result.values().iterator().next())
+                    ? messageSource.getMessage("remove.success", new Object[]{tickers.getFirst().toUpperCase()}, Locale.getDefault())
+                    : messageSource.getMessage("remove.error", null, Locale.getDefault());
+        }
+        StringBuilder lines = new StringBuilder();
+        result.forEach((ticker, change) -> lines.append(messageSource.getMessage(
+                "REMOVED".equals(change) ? "remove.removed" : "remove.notfound", new Object[]{ticker}, Locale.getDefault())).append('\n'));
+        return messageSource.getMessage("remove.result", new Object[]{lines}, Locale.getDefault());
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,63 @@
+package neko.crypto.bot.telegram.handler;
+
+import com.pengrad.telegrambot.model.Update;
+import lombok.RequiredArgsConstructor;
+import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.telegram.AlertFormatter;
+import neko.crypto.bot.telegram.NotificationScheduler;
+import neko.crypto.bot.telegram.PriceNotificationService;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.HttpClientErrorException;
+
+import java.util.Locale;
+
+@Component
+@RequiredArgsConstructor
+public class ThresholdCommandHandler implements CommandHandler {
+    private static final double MAX_PERCENT = 100;
+
+    private final ScrapperClient scrapperClient;
+    private final NotificationScheduler notificationScheduler;
+    private final PriceNotificationService notificationService;
+
+    @Override
+    public boolean canHandle(String command) {
+        return command.startsWith("/threshold");
+    }
+
+    @Override
+    public String handle(Update update, MessageSource messageSource) {
+        Long chatId = update.message().chat().id();
+        String[] parts = update.message().text().trim().toLowerCase(Locale.ROOT).split("\\s+");
+        // 0 или off возвращают чат к порогу по умолчанию
+        double percent;
+        try {
+            percent = parts.length < 2 ? Double.NaN
+                    : parts[1].equals("off") ? 0 : Double.parseDouble(parts[1].replace("%", "").replace(',', '.'));
+        } catch (NumberFormatException e) {
+            percent = Double.NaN;
+        }
+        if (!(percent >= 0 && percent <= MAX_PERCENT)) {
+            return messageSource.getMessage("threshold.invalid", null, Locale.getDefault());
+        }
+
+        try {
+            scrapperClient.setThreshold(chatId, percent);
+        } catch (HttpClientErrorException.BadRequest e) {
+            return messageSource.getMessage("threshold.error", new Object[]{e.getResponseBodyAsString()}, Locale.getDefault());
+        } catch (Exception e) {
+            return messageSource.getMessage("threshold.error", new Object[]{e.getMessage()}, Locale.getDefault());
+        }
+        notificationScheduler.refresh(chatId);
+        // В режиме snapshot порог сохраняется, но уведомления по-прежнему приходят полным списком
+        if (!notificationService.isDeltaMode()) {
+            return messageSource.getMessage("threshold.snapshot", null, Locale.getDefault());
+        }
+        if (percent == 0) {
+            return messageSource.getMessage("threshold.reset",
+                    new Object[]{AlertFormatter.number(notificationService.getDefaultThreshold())}, Locale.getDefault());
+        }
+        return messageSource.getMessage("threshold.success", new Object[]{AlertFormatter.number(percent)}, Locale.getDefault());
+    }
+}
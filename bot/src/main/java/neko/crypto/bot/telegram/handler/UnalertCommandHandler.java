@@ -0,0 +1,37 @@
+package neko.crypto.bot.telegram.handler;
+
+import com.pengrad.telegrambot.model.Update;
+import lombok.RequiredArgsConstructor;
+import neko.crypto.bot.client.scrapper.ScrapperClient;
+import org.springframework.context.MessageSource;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+
+@Component
+@RequiredArgsConstructor
+public class UnalertCommandHandler implements CommandHandler {
+    private final ScrapperClient scrapperClient;
+
+    @Override
+    public boolean canHandle(String command) {
+        return command.startsWith("/unalert");
+    }
+
+    @Override
+    public String handle(Update update, MessageSource messageSource) {
+        Long chatId = update.message().chat().id();
+        String[] parts = update.message().text().trim().split("\\s+");
+        if (parts.length > 1) {
+            String alertId = parts[1].replace("#", "");
+            try {
+                if (scrapperClient.removeAlert(chatId, Long.parseLong(alertId))) {
+                    return messageSource.getMessage("unalert.success", new Object[]{alertId}, Locale.getDefault());
+                }
+            } catch (NumberFormatException e) {
+                return messageSource.getMessage("unalert.error", null, Locale.getDefault());
+            }
+        }
+        return messageSource.getMessage("unalert.error", null, Locale.getDefault());
+    }
+}
@@ -0,0 +1,40 @@
+package neko.crypto.bot.client.scrapper;
+
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.retry.Retry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class ScrapperResilienceInterceptorTest {
+    private final CircuitBreaker circuitBreaker = CircuitBreaker.ofDefaults("scrapper");
+    private final AtomicInteger requests = new AtomicInteger();
+    private final RestTemplate restTemplate = new RestTemplate((uri, method) -> {
+        requests.incrementAndGet();
+        return new SimpleClientHttpRequestFactory().createRequest(uri, method);
+    });
+
+    ScrapperResilienceInterceptorTest() {
+        restTemplate.setInterceptors(List.of(new ScrapperResilienceInterceptor(circuitBreaker, Retry.ofDefaults("scrapper"))));
+    }
+
+    // Открытый breaker должен выглядеть для ScrapperClient как обычная недоступность scrapper
+    @Test
+    void reportsOpenCircuitAsResourceAccessFailure() {
+        circuitBreaker.transitionToOpenState();
+
+        Throwable thrown = catchThrowable(() -> restTemplate.getForObject("http://localhost:1/prices", String.class));
+
+        assertThat(thrown).isInstanceOf(ResourceAccessException.class);
+        assertThat(thrown.getCause()).hasCauseInstanceOf(CallNotPermittedException.class);
+        assertThat(requests).hasValue(0);
+    }
+}
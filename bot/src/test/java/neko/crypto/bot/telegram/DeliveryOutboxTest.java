@@ -0,0 +1,105 @@
+package neko.crypto.bot.telegram;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DeliveryOutboxTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void replaysUndeliveredEntriesAfterReopen() throws IOException {
+        DeliveryOutbox.Entry first;
+        DeliveryOutbox.Entry third;
+        try (DeliveryOutbox outbox = DeliveryOutbox.open(directory)) {
+            first = outbox.append(1, "BTCUSDT: $65000 ↑", true, 100);
+            DeliveryOutbox.Entry second = outbox.append(2, "ETHUSDT: $3100", false, 200);
+            third = outbox.append(3, "SOLUSDT: $150", false, 300);
+            outbox.flush();
+            outbox.complete(second.id());
+        }
+
+        try (DeliveryOutbox reopened = DeliveryOutbox.open(directory)) {
+            assertThat(reopened.pending()).containsExactly(first, third);
+            // Новые записи не переиспользуют идентификаторы восстановленных
+            assertThat(reopened.append(4, "x", false, 400).id()).isGreaterThan(third.id());
+        }
+    }
+
+    // Остановка посреди write оставляет неполную последнюю запись
+    @Test
+    void dropsTruncatedLastRecord() throws IOException {
+        DeliveryOutbox.Entry first;
+        try (DeliveryOutbox outbox = DeliveryOutbox.open(directory)) {
+            first = outbox.append(1, "first", false, 100);
+            outbox.append(2, "second", false, 200);
+        }
+        Path file = directory.resolve("outbox.dat");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        DeliveryOutbox.Entry appended;
+        try (DeliveryOutbox reopened = DeliveryOutbox.open(directory)) {
+            assertThat(reopened.pending()).containsExactly(first);
+            appended = reopened.append(3, "third", false, 300);
+        }
+
+        // Обрывок переписан при открытии, поэтому запись после него читается
+        try (DeliveryOutbox reopened = DeliveryOutbox.open(directory)) {
+            assertThat(reopened.pending()).containsExactly(first, appended);
+        }
+    }
+
+    @Test
+    void ignoresCompletionOfUnknownEntry() throws IOException {
+        try (DeliveryOutbox outbox = DeliveryOutbox.open(directory)) {
+            DeliveryOutbox.Entry entry = outbox.append(1, "text", false, 100);
+            outbox.complete(entry.id());
+            long size = Files.size(directory.resolve("outbox.dat"));
+
+            outbox.complete(entry.id());
+            outbox.complete(12345);
+
+            assertThat(Files.size(directory.resolve("outbox.dat"))).isEqualTo(size);
+            assertThat(outbox.size()).isZero();
+        }
+    }
+
+    @Test
+    void compactsFileAfterManyCompletions() throws IOException {
+        Path file = directory.resolve("outbox.dat");
+        DeliveryOutbox.Entry kept;
+        try (DeliveryOutbox outbox = DeliveryOutbox.open(directory)) {
+            kept = outbox.append(0, "kept", false, 0);
+            long onlyKept = Files.size(file);
+            for (int i = 0; i < 10_000; i++) {
+                DeliveryOutbox.Entry entry = outbox.append(i + 1, "notification " + i, false, i);
+                outbox.complete(entry.id());
+            }
+
+            assertThat(Files.size(file)).isEqualTo(onlyKept);
+            assertThat(outbox.pending()).containsExactly(kept);
+        }
+
+        try (DeliveryOutbox reopened = DeliveryOutbox.open(directory)) {
+            assertThat(reopened.pending()).containsExactly(kept);
+        }
+    }
+
+    @Test
+    void rejectsForeignFile() throws IOException {
+        Files.writeString(directory.resolve("outbox.dat"), "not an outbox");
+
+        assertThatThrownBy(() -> DeliveryOutbox.open(directory)).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,122 @@
+package neko.crypto.bot.telegram;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LastSentPricesTest {
+    private static final String[] TICKERS = {"BTCUSDT", "ETHUSDT", "SOLUSDT", "XRPUSDT", "DOGEUSDT"};
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void returnsNaNForPriceNotSentYet() {
+        LastSentPrices prices = prices("delta");
+        prices.put(1, "btcusdt", 65000);
+
+        assertThat(prices.get(1, "BTCUSDT")).isEqualTo(65000.0);
+        assertThat(prices.get(1, "ETHUSDT")).isNaN();
+        assertThat(prices.get(2, "BTCUSDT")).isNaN();
+    }
+
+    @Test
+    void overwritesPriceOfSamePair() {
+        LastSentPrices prices = prices("delta");
+        prices.put(1, "BTCUSDT", 65000);
+        prices.put(1, "BTCUSDT", 66000);
+
+        assertThat(prices.get(1, "BTCUSDT")).isEqualTo(66000.0);
+        assertThat(prices.size()).isEqualTo(1);
+    }
+
+    // Случайные put и remove против эталонной HashMap: сдвиг при удалении не должен терять соседей по цепочке
+    @Test
+    void matchesReferenceModelUnderRandomOperations() {
+        LastSentPrices prices = prices("delta");
+        Map<String, Double> model = new HashMap<>();
+        Random random = new Random(11);
+
+        for (int op = 0; op < 200_000; op++) {
+            long chatId = random.nextInt(800);
+            String ticker = TICKERS[random.nextInt(TICKERS.length)];
+            if (random.nextInt(10) < 6) {
+                double price = random.nextInt(100_000) / 100.0;
+                prices.put(chatId, ticker, price);
+                model.put(chatId + ":" + ticker, price);
+            } else {
+                prices.remove(chatId, ticker);
+                model.remove(chatId + ":" + ticker);
+            }
+        }
+
+        assertThat(prices.size()).isEqualTo(model.size());
+        for (long chatId = 0; chatId < 800; chatId++) {
+            for (String ticker : TICKERS) {
+                Double expected = model.get(chatId + ":" + ticker);
+                double actual = prices.get(chatId, ticker);
+                if (expected == null) {
+                    assertThat(actual).as("%d %s", chatId, ticker).isNaN();
+                } else {
+                    assertThat(actual).as("%d %s", chatId, ticker).isEqualTo(expected);
+                }
+            }
+        }
+    }
+
+    @Test
+    void restoresSnapshotInDeltaMode() {
+        LastSentPrices prices = prices("delta");
+        for (long chatId = 0; chatId < 2000; chatId++) {
+            prices.put(chatId, TICKERS[(int) (chatId % TICKERS.length)], chatId + 0.5);
+        }
+        prices.remove(7, TICKERS[2]);
+        prices.save();
+
+        LastSentPrices restored = prices("delta");
+        restored.load();
+
+        assertThat(restored.size()).isEqualTo(1999);
+        assertThat(restored.get(0, "BTCUSDT")).isEqualTo(0.5);
+        assertThat(restored.get(1999, TICKERS[4])).isEqualTo(1999.5);
+        assertThat(restored.get(7, TICKERS[2])).isNaN();
+    }
+
+    @Test
+    void doesNotPersistInSnapshotMode() {
+        LastSentPrices prices = prices("snapshot");
+        prices.put(1, "BTCUSDT", 65000);
+
+        prices.save();
+
+        assertThat(Files.exists(snapshotFile())).isFalse();
+    }
+
+    // Повреждённый снимок не мешает запуску: уведомления просто начинаются с полных
+    @Test
+    void startsEmptyFromCorruptSnapshot() throws IOException {
+        Files.write(snapshotFile(), new byte[] {1, 2, 3});
+
+        LastSentPrices prices = prices("delta");
+        prices.load();
+
+        assertThat(prices.size()).isZero();
+    }
+
+    private LastSentPrices prices(String mode) {
+        return new LastSentPrices(new SimpleMeterRegistry(), mode, snapshotFile().toString());
+    }
+
+    private Path snapshotFile() {
+        return directory.resolve("last-sent.dat");
+    }
+}
@@ -0,0 +1,131 @@
+package neko.crypto.bot.telegram;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import neko.crypto.bot.client.scrapper.ScrapperClient;
+import neko.crypto.bot.client.scrapper.dto.ChatWatchlist;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class NotificationSchedulerTest {
+    private final ScrapperClient scrapperClient = mock(ScrapperClient.class);
+    private final PriceNotificationService notificationService = mock(PriceNotificationService.class);
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final NotificationScheduler scheduler =
+            new NotificationScheduler(scrapperClient, notificationService, meterRegistry, 300_000, 1000, 64);
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void removesChatsMissingFromExport() {
+        export(watchlist(1, "BTCUSDT"), watchlist(2, "ETHUSDT"));
+        scheduler.sync();
+        assertThat(scheduledChats()).isEqualTo(2.0);
+
+        export(watchlist(1, "BTCUSDT"));
+        scheduler.sync();
+
+        assertThat(scheduledChats()).isEqualTo(1.0);
+        verify(notificationService).forget(2, List.of("ETHUSDT"));
+    }
+
+    @Test
+    void keepsScheduleWhenExportFails() {
+        export(watchlist(1, "BTCUSDT"));
+        scheduler.sync();
+
+        doThrow(new RuntimeException("scrapper unavailable")).when(scrapperClient).exportWatchlists(any());
+        scheduler.sync();
+
+        assertThat(scheduledChats()).isEqualTo(1.0);
+        verify(notificationService, never()).forget(anyLong(), argThat(tickers -> !tickers.isEmpty()));
+    }
+
+    // Строка выгрузки прочитана до /add, а пришла после refresh: она не должна откатить watchlist
+    @Test
+    void skipsExportRowOfChatRefreshedDuringSync() {
+        export(watchlist(1, "BTCUSDT"));
+        scheduler.sync();
+
+        when(scrapperClient.getWatchlist(1L)).thenReturn(watchlist(1, "BTCUSDT", "ETHUSDT"));
+        doAnswer(invocation -> {
+            Consumer<ChatWatchlist> consumer = invocation.getArgument(0);
+            scheduler.refresh(1);
+            consumer.accept(watchlist(1, "BTCUSDT"));
+            return 1;
+        }).when(scrapperClient).exportWatchlists(any());
+        scheduler.sync();
+
+        verify(notificationService, never()).forget(eq(1L), argThat(tickers -> tickers.contains("ETHUSDT")));
+        // Следующий /remove видит ETHUSDT в расписании, значит выгрузка его не затёрла
+        when(scrapperClient.getWatchlist(1L)).thenReturn(watchlist(1, "BTCUSDT"));
+        scheduler.refresh(1);
+        verify(notificationService).forget(1, List.of("ETHUSDT"));
+    }
+
+    @Test
+    void doesNotReviveChatEmptiedDuringSync() {
+        export(watchlist(1, "BTCUSDT"));
+        scheduler.sync();
+
+        when(scrapperClient.getWatchlist(1L)).thenReturn(new ChatWatchlist(1, List.of(), 0, 0));
+        doAnswer(invocation -> {
+            Consumer<ChatWatchlist> consumer = invocation.getArgument(0);
+            scheduler.refresh(1);
+            consumer.accept(watchlist(1, "BTCUSDT"));
+            return 1;
+        }).when(scrapperClient).exportWatchlists(any());
+        scheduler.sync();
+
+        assertThat(scheduledChats()).isZero();
+        verify(notificationService).forget(1, List.of("BTCUSDT"));
+    }
+
+    @Test
+    void refreshOutsideSyncAppliesImmediately() {
+        when(scrapperClient.getWatchlist(1L)).thenReturn(watchlist(1, "BTCUSDT"));
+        scheduler.refresh(1);
+        assertThat(scheduledChats()).isEqualTo(1.0);
+
+        when(scrapperClient.getWatchlist(1L)).thenReturn(new ChatWatchlist(1, List.of(), 0, 0));
+        scheduler.refresh(1);
+
+        assertThat(scheduledChats()).isZero();
+        verify(notificationService).forget(1, List.of("BTCUSDT"));
+    }
+
+    private void export(ChatWatchlist... watchlists) {
+        doAnswer(invocation -> {
+            Consumer<ChatWatchlist> consumer = invocation.getArgument(0);
+            for (ChatWatchlist watchlist : watchlists) {
+                consumer.accept(watchlist);
+            }
+            return watchlists.length;
+        }).when(scrapperClient).exportWatchlists(any());
+    }
+
+    private double scheduledChats() {
+        return meterRegistry.get("notifications.scheduled").gauge().value();
+    }
+
+    private static ChatWatchlist watchlist(long chatId, String... tickers) {
+        return new ChatWatchlist(chatId, List.of(tickers), 0, 0);
+    }
+}
@@ -0,0 +1,109 @@
+package neko.crypto.bot.telegram;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NotificationWheelTest {
+    private static final long TICK = 1000;
+    private static final long T0 = 1_700_000_000_000L;
+
+    // Восемь слотов: сроки дальше восьми секунд лежат в колесе несколько оборотов
+    private final NotificationWheel wheel = new NotificationWheel(TICK, 8, T0);
+
+    @Test
+    void keepsDeadlineSeveralRevolutionsAhead() {
+        wheel.schedule(1, T0 + 20_500);
+
+        for (long now = T0; now < T0 + 21_000; now += 250) {
+            assertThat(wheel.advance(now)).as("advance at +%d", now - T0).isEmpty();
+        }
+
+        assertThat(wheel.advance(T0 + 21_000)).containsExactly(new NotificationWheel.Expired(1, T0 + 20_500));
+        assertThat(wheel.contains(1)).isFalse();
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void firesPastDeadlineOnNextAdvance() {
+        wheel.advance(T0 + 3_000);
+        wheel.schedule(1, T0 - 5_000);
+
+        assertThat(wheel.advance(T0 + 3_000)).containsExactly(new NotificationWheel.Expired(1, T0 - 5_000));
+    }
+
+    @Test
+    void cancelledChatDoesNotFire() {
+        wheel.schedule(1, T0 + 2_000);
+        wheel.schedule(2, T0 + 2_000);
+
+        assertThat(wheel.cancel(1)).isTrue();
+        assertThat(wheel.cancel(1)).isFalse();
+
+        assertThat(wheel.advance(T0 + 30_000)).containsExactly(new NotificationWheel.Expired(2, T0 + 2_000));
+    }
+
+    @Test
+    void rescheduleReplacesPreviousDeadline() {
+        wheel.schedule(1, T0 + 3_000);
+        wheel.schedule(1, T0 + 11_000);
+
+        assertThat(wheel.size()).isEqualTo(1);
+        assertThat(wheel.advance(T0 + 5_000)).isEmpty();
+        assertThat(wheel.advance(T0 + 11_000)).containsExactly(new NotificationWheel.Expired(1, T0 + 11_000));
+        assertThat(wheel.advance(T0 + 40_000)).isEmpty();
+    }
+
+    @Test
+    void firesEverythingDueAfterLongPause() {
+        for (long chatId = 0; chatId < 40; chatId++) {
+            wheel.schedule(chatId, T0 + chatId * 700);
+        }
+
+        List<NotificationWheel.Expired> expired = wheel.advance(T0 + 100_000);
+
+        assertThat(expired).hasSize(40);
+        assertThat(expired.stream().map(NotificationWheel.Expired::chatId).distinct().count()).isEqualTo(40L);
+        assertThat(wheel.size()).isZero();
+    }
+
+    // Случайные сроки и шаги, в том числе длиннее оборота: срабатывание ровно на первом продвижении
+    // после тика срока, не раньше и не позже
+    @Test
+    void firesEachDeadlineOnFirstAdvancePastItsTick() {
+        Random random = new Random(7);
+        Map<Long, Long> pending = new HashMap<>();
+        long now = T0;
+        long nextChat = 0;
+
+        for (int step = 0; step < 5_000; step++) {
+            for (int i = random.nextInt(3); i > 0; i--) {
+                long deadline = now - 2_000 + random.nextInt(30_000);
+                wheel.schedule(nextChat, deadline);
+                pending.put(nextChat++, deadline);
+            }
+            if (!pending.isEmpty() && random.nextInt(10) == 0) {
+                long chatId = pending.keySet().iterator().next();
+                assertThat(wheel.cancel(chatId)).isTrue();
+                pending.remove(chatId);
+            }
+            now += random.nextInt(10) == 0 ? 5_000 + random.nextInt(20_000) : random.nextInt(1_500);
+
+            long nowTick = now / TICK;
+            for (NotificationWheel.Expired expired : wheel.advance(now)) {
+                Long deadline = pending.remove(expired.chatId());
+                assertThat(deadline).as("chat %d fired twice", expired.chatId()).isEqualTo(expired.deadline());
+                assertThat((deadline + TICK - 1) / TICK).as("chat %d fired early", expired.chatId()).isLessThanOrEqualTo(nowTick);
+            }
+            for (Map.Entry<Long, Long> entry : pending.entrySet()) {
+                assertThat((entry.getValue() + TICK - 1) / TICK).as("chat %d missed", entry.getKey()).isGreaterThan(nowTick);
+            }
+            assertThat(wheel.size()).isEqualTo(pending.size());
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package neko.crypto.bot.telegram;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import neko.crypto.bot.client.scrapper.LocalPriceCache;
+import neko.crypto.bot.client.scrapper.dto.ChatWatchlist;
+import neko.crypto.bot.client.scrapper.dto.PriceQuote;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.context.support.StaticMessageSource;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+// Режим delta: отправляются только тикеры, ушедшие от последней доставленной цены дальше порога
+class PriceNotificationServiceDeltaTest {
+    private static final String HEADER = "Prices that moved in your watchlist:\n";
+
+    @TempDir
+    Path directory;
+
+    private final LocalPriceCache priceCache = mock(LocalPriceCache.class);
+    private final TelegramSender sender = mock(TelegramSender.class);
+    private LastSentPrices lastSent;
+    private PriceNotificationService service;
+
+    @BeforeEach
+    void setUp() {
+        StaticMessageSource messageSource = new StaticMessageSource();
+        messageSource.addMessage("prices.changed", Locale.getDefault(), HEADER);
+        when(sender.sendDurable(anyLong(), anyString(), anyBoolean())).thenReturn(CompletableFuture.completedFuture(true));
+        lastSent = new LastSentPrices(new SimpleMeterRegistry(), "delta", directory.resolve("last-sent.dat").toString());
+        service = new PriceNotificationService(priceCache, sender, lastSent, messageSource,
+                new SimpleMeterRegistry(), "delta", 1.0);
+    }
+
+    @Test
+    void sendsFullListFirstAndThenOnlyMovedTickers() {
+        List<ChatWatchlist> due = List.of(new ChatWatchlist(1, List.of("BTCUSDT", "ETHUSDT"), 0, 0));
+        prices(60000, 3000);
+        service.notifyChats(due, System.currentTimeMillis());
+        verify(sender).sendDurable(1, HEADER + "BTCUSDT: $60000\nETHUSDT: $3000\n", true);
+
+        prices(60300, 3060);
+        service.notifyChats(due, System.currentTimeMillis());
+
+        verify(sender).sendDurable(1, HEADER + "ETHUSDT: $3060 (+2.00%)\n", true);
+        assertThat(lastSent.get(1, "BTCUSDT")).isEqualTo(60000.0);
+        assertThat(lastSent.get(1, "ETHUSDT")).isEqualTo(3060.0);
+    }
+
+    @Test
+    void appliesChatThresholdInsteadOfDefault() {
+        lastSent.put(1, "BTCUSDT", 60000);
+        prices(60900, 3000);
+
+        service.notifyChats(List.of(new ChatWatchlist(1, List.of("BTCUSDT"), 0, 2.0)), System.currentTimeMillis());
+
+        verify(sender, never()).sendDurable(anyLong(), anyString(), anyBoolean());
+    }
+
+    // Недоставленное изменение не сдвигает точку отсчёта
+    @Test
+    void keepsLastPriceWhenDeliveryFails() {
+        when(sender.sendDurable(anyLong(), anyString(), anyBoolean())).thenReturn(CompletableFuture.completedFuture(false));
+        lastSent.put(1, "BTCUSDT", 60000);
+        prices(62000, 3000);
+
+        service.notifyChats(List.of(new ChatWatchlist(1, List.of("BTCUSDT"), 0, 0)), System.currentTimeMillis());
+
+        assertThat(lastSent.get(1, "BTCUSDT")).isEqualTo(60000.0);
+    }
+
+    private void prices(double btc, double eth) {
+        when(priceCache.getPrices(anyCollection())).thenReturn(List.of(
+                new PriceQuote("BTCUSDT", btc, 1), new PriceQuote("ETHUSDT", eth, 1)));
+    }
+}
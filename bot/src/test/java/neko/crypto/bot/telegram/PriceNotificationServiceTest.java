@@ -0,0 +1,87 @@
+package neko.crypto.bot.telegram;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import neko.crypto.bot.client.scrapper.LocalPriceCache;
+import neko.crypto.bot.client.scrapper.dto.ChatWatchlist;
+import neko.crypto.bot.client.scrapper.dto.PriceQuote;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.support.StaticMessageSource;
+
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
+
+// Режим snapshot: цена каждого тикера пачки запрашивается и форматируется один раз на все чаты
+class PriceNotificationServiceTest {
+    private static final String HEADER = "Current prices:\n";
+
+    private final LocalPriceCache priceCache = mock(LocalPriceCache.class);
+    private final TelegramSender sender = mock(TelegramSender.class);
+    private final StaticMessageSource messageSource = new StaticMessageSource();
+    private PriceNotificationService service;
+
+    @BeforeEach
+    void setUp() {
+        messageSource.addMessage("prices.notification", Locale.getDefault(), HEADER);
+        messageSource.addMessage("price.error", Locale.getDefault(), "Error fetching price for {0}: {1}");
+        when(sender.sendDurable(anyLong(), anyString(), anyBoolean())).thenReturn(CompletableFuture.completedFuture(true));
+        service = new PriceNotificationService(priceCache, sender, mock(LastSentPrices.class), messageSource,
+                new SimpleMeterRegistry(), "snapshot", 1.0);
+    }
+
+    @Test
+    void fetchesEachDistinctTickerOnceForWholeBatch() {
+        when(priceCache.getPrices(anyCollection())).thenReturn(List.of(
+                new PriceQuote("BTCUSDT", 65000, 1), new PriceQuote("ETHUSDT", 3100.5, 1)));
+
+        service.notifyChats(List.of(
+                new ChatWatchlist(1, List.of("BTCUSDT", "ETHUSDT"), 0, 0),
+                new ChatWatchlist(2, List.of("BTCUSDT"), 0, 0),
+                new ChatWatchlist(3, List.of("ETHUSDT", "BTCUSDT"), 0, 0)), System.currentTimeMillis());
+
+        verify(priceCache, times(1)).getPrices(List.of("BTCUSDT", "ETHUSDT"));
+        verifyNoMoreInteractions(priceCache);
+        verify(sender).sendDurable(1, HEADER + "BTCUSDT: $65000\nETHUSDT: $3100.5\n", true);
+        verify(sender).sendDurable(2, HEADER + "BTCUSDT: $65000\n", true);
+        verify(sender).sendDurable(3, HEADER + "ETHUSDT: $3100.5\nBTCUSDT: $65000\n", true);
+        verify(sender, times(1)).flushDurable();
+    }
+
+    @Test
+    void rendersErrorLineForTickerWithoutPrice() {
+        when(priceCache.getPrices(anyCollection())).thenReturn(List.of(new PriceQuote("BTCUSDT", 65000, 1)));
+
+        service.notifyChats(List.of(new ChatWatchlist(1, List.of("BTCUSDT", "XYZUSDT"), 0, 0)), System.currentTimeMillis());
+
+        verify(priceCache, times(1)).getPrices(anyCollection());
+        verify(sender).sendDurable(1, HEADER + "BTCUSDT: $65000\nXYZUSDT: Error fetching price for XYZUSDT: Ticker not found\n", true);
+    }
+
+    @Test
+    void skipsChatWhosePreviousNotificationIsStillInFlight() {
+        when(priceCache.getPrices(anyCollection())).thenReturn(List.of(new PriceQuote("BTCUSDT", 65000, 1)));
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        when(sender.sendDurable(anyLong(), anyString(), anyBoolean())).thenReturn(pending);
+        List<ChatWatchlist> due = List.of(new ChatWatchlist(1, List.of("BTCUSDT"), 0, 0));
+
+        service.notifyChats(due, System.currentTimeMillis());
+        service.notifyChats(due, System.currentTimeMillis());
+        verify(sender, times(1)).sendDurable(anyLong(), anyString(), anyBoolean());
+
+        // После доставки чат снова получает уведомления
+        pending.complete(true);
+        service.notifyChats(due, System.currentTimeMillis());
+        verify(sender, times(2)).sendDurable(anyLong(), anyString(), anyBoolean());
+    }
+}
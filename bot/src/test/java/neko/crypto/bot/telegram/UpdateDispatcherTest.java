@@ -0,0 +1,114 @@
+package neko.crypto.bot.telegram;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UpdateDispatcherTest {
+    private UpdateDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void handlesUpdatesOfOneChatInSubmissionOrder() {
+        dispatcher = new UpdateDispatcher(4, 1000, Duration.ofSeconds(10));
+        List<long[]> handled = Collections.synchronizedList(new ArrayList<>());
+
+        for (int i = 0; i < 200; i++) {
+            for (long chatId = 1; chatId <= 5; chatId++) {
+                long chat = chatId;
+                long sequence = i;
+                assertThat(dispatcher.submit(chatId, () -> handled.add(new long[] {chat, sequence}))).isTrue();
+            }
+        }
+        dispatcher.shutdown();
+
+        assertThat(handled).hasSize(1000);
+        Map<Long, Long> next = new HashMap<>();
+        synchronized (handled) {
+            for (long[] update : handled) {
+                assertThat(update[1]).as("chat %d", update[0]).isEqualTo(next.getOrDefault(update[0], 0L));
+                next.put(update[0], update[1] + 1);
+            }
+        }
+    }
+
+    // Апдейты уже подтверждены Telegram: остановка дожидается всей очереди, а не только текущего
+    @Test
+    void drainsAcceptedUpdatesOnShutdown() throws InterruptedException {
+        dispatcher = new UpdateDispatcher(1, 10, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        dispatcher.submit(1, () -> await(release));
+        for (int i = 0; i < 5; i++) {
+            int sequence = i;
+            dispatcher.submit(1, () -> handled.add(sequence));
+        }
+
+        Thread stopper = new Thread(dispatcher::shutdown);
+        stopper.start();
+        while (dispatcher.isRunning()) {
+            Thread.onSpinWait();
+        }
+        assertThat(dispatcher.submit(1, () -> handled.add(-1))).isFalse();
+        release.countDown();
+        stopper.join(TimeUnit.SECONDS.toMillis(10));
+
+        assertThat(stopper.isAlive()).isFalse();
+        assertThat(handled).containsExactly(0, 1, 2, 3, 4);
+    }
+
+    @Test
+    void givesUpOnQueueAfterDrainTimeout() {
+        dispatcher = new UpdateDispatcher(1, 10, Duration.ofMillis(200));
+        CountDownLatch never = new CountDownLatch(1);
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        dispatcher.submit(1, () -> await(never));
+        dispatcher.submit(1, () -> handled.add(1));
+
+        long started = System.nanoTime();
+        dispatcher.shutdown();
+
+        assertThat(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started)).isLessThan(5_000L);
+        assertThat(handled).isEmpty();
+    }
+
+    @Test
+    void rejectsUpdateWhenStripeQueueIsFull() {
+        dispatcher = new UpdateDispatcher(1, 1, Duration.ofSeconds(10));
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch started = new CountDownLatch(1);
+        dispatcher.submit(1, () -> {
+            started.countDown();
+            await(release);
+        });
+        await(started);
+
+        assertThat(dispatcher.submit(1, () -> { })).isTrue();
+        assertThat(dispatcher.submit(1, () -> { })).isFalse();
+        release.countDown();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
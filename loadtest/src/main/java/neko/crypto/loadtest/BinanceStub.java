@@ -0,0 +1,128 @@
+package neko.crypto.loadtest;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformerV2;
+import com.github.tomakehurst.wiremock.http.QueryParameter;
+import com.github.tomakehurst.wiremock.http.Request;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+// Binance REST на WireMock: exchangeInfo и ticker/price с задержкой по логнормальному закону и долей ошибок
+@Slf4j
+public class BinanceStub implements AutoCloseable {
+    private static final String TICKER_PRICE = "/api/v3/ticker/price";
+    private static final TypeReference<List<String>> SYMBOLS = new TypeReference<>() {};
+
+    private final WireMockServer server;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public BinanceStub(int port, MarketData marketData, int latencyMillis, double errorRate) {
+        this.server = new WireMockServer(options()
+                .port(port)
+                .containerThreads(200)
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(50)
+                // Журнал запросов за миллион вызовов съест всю память
+                .disableRequestJournal()
+                .extensions(new MarketResponses(marketData, errorRate)));
+        server.stubFor(get(urlPathEqualTo("/api/v3/exchangeInfo"))
+                .willReturn(delayed(aResponse().withBody(marketData.exchangeInfo()), latencyMillis)));
+        server.stubFor(get(urlPathEqualTo(TICKER_PRICE))
+                .willReturn(delayed(aResponse(), latencyMillis)));
+    }
+
+    public void start() {
+        server.start();
+        log.info("Binance stub listens on {}", server.baseUrl());
+    }
+
+    public String baseUrl() {
+        return server.baseUrl();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+
+    private static ResponseDefinitionBuilder delayed(ResponseDefinitionBuilder response, int latencyMillis) {
+        response.withHeader("Content-Type", "application/json;charset=UTF-8");
+        return latencyMillis > 0 ? response.withLogNormalRandomDelay(latencyMillis, 0.3) : response;
+    }
+
+    private final class MarketResponses implements ResponseDefinitionTransformerV2 {
+        private final ObjectMapper objectMapper = new ObjectMapper();
+        private final MarketData marketData;
+        private final double errorRate;
+
+        private MarketResponses(MarketData marketData, double errorRate) {
+            this.marketData = marketData;
+            this.errorRate = errorRate;
+        }
+
+        @Override
+        public ResponseDefinition transform(ServeEvent serveEvent) {
+            requests.incrementAndGet();
+            ResponseDefinition definition = serveEvent.getResponseDefinition();
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                return ResponseDefinitionBuilder.like(definition).but()
+                        .withStatus(503)
+                        .withBody("{\"code\":-1001,\"msg\":\"Internal error; unable to process your request. Please try again.\"}")
+                        .build();
+            }
+            Request request = serveEvent.getRequest();
+            if (!request.getUrl().startsWith(TICKER_PRICE)) {
+                return definition;
+            }
+            QueryParameter symbol = request.queryParameter("symbol");
+            if (symbol.isPresent()) {
+                String price = marketData.tickerPrice(symbol.firstValue());
+                return price != null
+                        ? ResponseDefinitionBuilder.like(definition).but().withBody(price).build()
+                        : ResponseDefinitionBuilder.like(definition).but().withStatus(400)
+                        .withBody("{\"code\":-1121,\"msg\":\"Invalid symbol.\"}").build();
+            }
+            QueryParameter symbols = request.queryParameter("symbols");
+            List<String> requested = symbols.isPresent() ? parseSymbols(symbols.firstValue()) : List.of();
+            return ResponseDefinitionBuilder.like(definition).but().withBody(marketData.tickerPrices(requested)).build();
+        }
+
+        private List<String> parseSymbols(String value) {
+            try {
+                return objectMapper.readValue(value, SYMBOLS);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public String getName() {
+            return "market-responses";
+        }
+    }
+}
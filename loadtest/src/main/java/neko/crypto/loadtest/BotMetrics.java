@@ -0,0 +1,53 @@
+package neko.crypto.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+// Темп и задержка уведомлений берутся из метрик самого бота (notifications.chats, notifications.lag), а не угадываются снаружи
+public class BotMetrics {
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpClient client;
+    private final URI botUrl;
+
+    public BotMetrics(HttpClient client, URI botUrl) {
+        this.client = client;
+        this.botUrl = botUrl;
+    }
+
+    public Snapshot snapshot() throws IOException, InterruptedException {
+        JsonNode scheduled = metric("notifications.scheduled");
+        JsonNode chats = metric("notifications.chats");
+        JsonNode lag = metric("notifications.lag");
+        return new Snapshot((long) statistic(scheduled, "VALUE"), (long) statistic(chats, "COUNT"),
+                (long) statistic(lag, "COUNT"), statistic(lag, "TOTAL_TIME"), statistic(lag, "MAX"));
+    }
+
+    private JsonNode metric(String name) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(botUrl + "/actuator/metrics/" + name)).GET().build();
+        HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != 200) {
+            throw new IOException("Bot metric " + name + " is not available: HTTP " + response.statusCode());
+        }
+        return objectMapper.readTree(response.body());
+    }
+
+    private static double statistic(JsonNode metric, String statistic) {
+        for (JsonNode measurement : metric.path("measurements")) {
+            if (statistic.equals(measurement.path("statistic").asText())) {
+                return measurement.path("value").asDouble();
+            }
+        }
+        return 0;
+    }
+
+    // Чаты в расписании, накопленные счётчики обойдённых чатов и доставленных уведомлений,
+    // суммарная и максимальная (за последние минуты) задержка доставки в секундах
+    public record Snapshot(long scheduled, long chats, long delivered, double lagSeconds, double maxLagSeconds) {
+    }
+}
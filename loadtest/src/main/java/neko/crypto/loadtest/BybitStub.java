@@ -0,0 +1,104 @@
+package neko.crypto.loadtest;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import com.github.tomakehurst.wiremock.extension.ResponseDefinitionTransformerV2;
+import com.github.tomakehurst.wiremock.http.QueryParameter;
+import com.github.tomakehurst.wiremock.http.ResponseDefinition;
+import com.github.tomakehurst.wiremock.stubbing.ServeEvent;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+
+// Bybit v5 market/tickers на WireMock - второй источник цен для scrapper. Bybit сообщает об ошибках
+// кодом retCode при HTTP 200, поэтому и вброшенные ошибки приходят так же
+@Slf4j
+public class BybitStub implements AutoCloseable {
+    private static final String TICKERS = "/v5/market/tickers";
+
+    private final WireMockServer server;
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public BybitStub(int port, MarketData marketData, int latencyMillis, double errorRate) {
+        this.server = new WireMockServer(options()
+                .port(port)
+                .containerThreads(200)
+                .asynchronousResponseEnabled(true)
+                .asynchronousResponseThreads(50)
+                .disableRequestJournal()
+                .extensions(new TickerResponses(marketData, errorRate)));
+        ResponseDefinitionBuilder response = aResponse().withHeader("Content-Type", "application/json");
+        server.stubFor(get(urlPathEqualTo(TICKERS))
+                .willReturn(latencyMillis > 0 ? response.withLogNormalRandomDelay(latencyMillis, 0.3) : response));
+    }
+
+    public void start() {
+        server.start();
+        log.info("Bybit stub listens on {}", server.baseUrl());
+    }
+
+    public String baseUrl() {
+        return server.baseUrl();
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    public long errors() {
+        return errors.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop();
+    }
+
+    private final class TickerResponses implements ResponseDefinitionTransformerV2 {
+        private final MarketData marketData;
+        private final double errorRate;
+
+        private TickerResponses(MarketData marketData, double errorRate) {
+            this.marketData = marketData;
+            this.errorRate = errorRate;
+        }
+
+        @Override
+        public ResponseDefinition transform(ServeEvent serveEvent) {
+            requests.incrementAndGet();
+            ResponseDefinition definition = serveEvent.getResponseDefinition();
+            if (ThreadLocalRandom.current().nextDouble() < errorRate) {
+                errors.incrementAndGet();
+                return error(definition, 10016, "Server error.");
+            }
+            QueryParameter category = serveEvent.getRequest().queryParameter("category");
+            if (!category.isPresent() || !"spot".equals(category.firstValue())) {
+                return error(definition, 10001, "Illegal category");
+            }
+            QueryParameter symbol = serveEvent.getRequest().queryParameter("symbol");
+            String body = marketData.bybitTickers(symbol.isPresent() ? symbol.firstValue() : null);
+            return body != null
+                    ? ResponseDefinitionBuilder.like(definition).but().withBody(body).build()
+                    : error(definition, 10001, "Not supported symbols");
+        }
+
+        private ResponseDefinition error(ResponseDefinition definition, int code, String message) {
+            return ResponseDefinitionBuilder.like(definition).but()
+                    .withBody("{\"retCode\":" + code + ",\"retMsg\":\"" + message
+                            + "\",\"result\":{},\"retExtInfo\":{},\"time\":" + System.currentTimeMillis() + "}")
+                    .build();
+        }
+
+        @Override
+        public String getName() {
+            return "bybit-tickers";
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package neko.crypto.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Пользователи, которые по очереди шлют команды и ждут ответа. Задержка - от появления апдейта
+// в getUpdates до sendMessage в тот же чат. У каждого чата одна команда в полёте, потому что бот
+// всё равно отвечает в чат не чаще раза в секунду
+@Slf4j
+public class CommandLoad {
+    // Чаты пользователей не пересекаются с засеянными watchlist 1..N
+    public static final long CHAT_BASE = 1_000_000_000_000L;
+
+    private final List<String> bases;
+    private final int users;
+    private final Duration thinkTime;
+    private final Duration timeout;
+    private final ConcurrentHashMap<Long, CompletableFuture<Long>> awaiting = new ConcurrentHashMap<>();
+    private final LatencyRecorder latencies = new LatencyRecorder();
+    private final AtomicInteger timeouts = new AtomicInteger();
+    private final List<Thread> threads = new ArrayList<>();
+    private volatile boolean running;
+    private long startedAt;
+
+    public CommandLoad(List<String> bases, int users, Duration thinkTime, Duration timeout) {
+        this.bases = bases;
+        this.users = users;
+        this.thinkTime = thinkTime;
+        this.timeout = timeout;
+    }
+
+    public void onReply(long chatId, long receivedAtNanos) {
+        CompletableFuture<Long> reply = awaiting.remove(chatId);
+        if (reply != null) {
+            reply.complete(receivedAtNanos);
+        }
+    }
+
+    public void start(FakeTelegramServer telegram) {
+        running = true;
+        startedAt = System.nanoTime();
+        for (int user = 0; user < users; user++) {
+            long chatId = CHAT_BASE + user;
+            threads.add(Thread.ofVirtual().name("user-" + user).start(() -> run(telegram, chatId)));
+        }
+    }
+
+    public Result stop() throws InterruptedException {
+        running = false;
+        for (Thread thread : threads) {
+            thread.interrupt();
+            thread.join();
+        }
+        threads.clear();
+        double elapsedSeconds = (System.nanoTime() - startedAt) / 1e9;
+        LatencyRecorder.Snapshot snapshot = latencies.snapshotAndReset();
+        return new Result(snapshot, timeouts.getAndSet(0), snapshot.count() / elapsedSeconds);
+    }
+
+    private void run(FakeTelegramServer telegram, long chatId) {
+        Random random = new Random(chatId);
+        while (running) {
+            CompletableFuture<Long> reply = new CompletableFuture<>();
+            awaiting.put(chatId, reply);
+            long sentAt = System.nanoTime();
+            telegram.enqueueCommand(chatId, command(random));
+            try {
+                latencies.record(reply.get(timeout.toMillis(), TimeUnit.MILLISECONDS) - sentAt);
+                Thread.sleep(thinkTime);
+            } catch (TimeoutException e) {
+                awaiting.remove(chatId);
+                timeouts.incrementAndGet();
+            } catch (InterruptedException e) {
+                awaiting.remove(chatId);
+                return;
+            } catch (ExecutionException e) {
+                log.warn("Unexpected reply failure for chat {}: {}", chatId, e.getMessage());
+            }
+        }
+    }
+
+    // Примерно как пользуются ботом: чаще всего цены, реже список и история
+    private String command(Random random) {
+        String ticker = bases.get(random.nextInt(Math.min(bases.size(), 100))).toLowerCase(Locale.ROOT);
+        int roll = random.nextInt(10);
+        if (roll < 6) {
+            return "/price " + ticker;
+        }
+        if (roll < 8) {
+            return "/list";
+        }
+        return roll == 8 ? "/pairs 1" : "/history " + ticker;
+    }
+
+    public record Result(LatencyRecorder.Snapshot latencies, int timeouts, double throughput) {
+    }
+}
@@ -0,0 +1,212 @@
+package neko.crypto.loadtest;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+// Bot API без Telegram: getUpdates отдаёт апдейты, подложенные драйвером, sendMessage сообщает о доставке слушателю.
+// Остальные методы отвечают {"ok":true}
+@Slf4j
+public class FakeTelegramServer implements AutoCloseable {
+    private static final int MAX_UPDATES = 100;
+    private static final long MAX_POLL_MILLIS = 1000;
+
+    @FunctionalInterface
+    public interface SendListener {
+        void onSend(long chatId, long receivedAtNanos);
+    }
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HttpServer server;
+    private final int latencyMillis;
+    private final double throttleRate;
+    private final SendListener listener;
+
+    private final ConcurrentSkipListMap<Integer, ObjectNode> pending = new ConcurrentSkipListMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition updatesAvailable = lock.newCondition();
+    private final AtomicInteger nextUpdateId = new AtomicInteger(1);
+    private final AtomicInteger nextMessageId = new AtomicInteger(1);
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+
+    public FakeTelegramServer(int port, int latencyMillis, double throttleRate, SendListener listener) throws IOException {
+        this.server = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.latencyMillis = latencyMillis;
+        this.throttleRate = throttleRate;
+        this.listener = listener;
+        server.setExecutor(Executors.newVirtualThreadPerTaskExecutor());
+        server.createContext("/", this::handle);
+    }
+
+    public void start() {
+        server.start();
+        log.info("Fake Telegram Bot API listens on http://localhost:{}/bot", server.getAddress().getPort());
+    }
+
+    // Команда от пользователя, бот заберёт её следующим getUpdates
+    public void enqueueCommand(long chatId, String text) {
+        int updateId = nextUpdateId.getAndIncrement();
+        ObjectNode update = objectMapper.createObjectNode().put("update_id", updateId);
+        ObjectNode message = update.putObject("message")
+                .put("message_id", updateId)
+                .put("date", System.currentTimeMillis() / 1000)
+                .put("text", text);
+        message.putObject("chat").put("id", chatId).put("type", "private");
+        message.putObject("from").put("id", chatId).put("is_bot", false).put("first_name", "load");
+        pending.put(updateId, update);
+        lock.lock();
+        try {
+            updatesAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long polls() {
+        return polls.get();
+    }
+
+    public long sent() {
+        return sent.get();
+    }
+
+    public long throttled() {
+        return throttled.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            String method = path.substring(path.lastIndexOf('/') + 1);
+            Map<String, String> params = params(exchange);
+            switch (method) {
+                case "getUpdates" -> respond(exchange, 200, ok(getUpdates(params)));
+                case "sendMessage" -> sendMessage(exchange, params);
+                default -> respond(exchange, 200, ok(objectMapper.getNodeFactory().booleanNode(true)));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Подтверждённые апдейты (id < offset) удаляются, остальные отдаются повторно, как в настоящем API
+    private ArrayNode getUpdates(Map<String, String> params) throws InterruptedException {
+        polls.incrementAndGet();
+        int offset = Integer.parseInt(params.getOrDefault("offset", "0"));
+        pending.headMap(offset).clear();
+        long timeoutMillis = Math.min(Long.parseLong(params.getOrDefault("timeout", "0")) * 1000, MAX_POLL_MILLIS);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(timeoutMillis, 50));
+        lock.lock();
+        try {
+            long remaining;
+            while (pending.isEmpty() && (remaining = deadline - System.nanoTime()) > 0) {
+                updatesAvailable.awaitNanos(remaining);
+            }
+        } finally {
+            lock.unlock();
+        }
+        ArrayNode updates = objectMapper.createArrayNode();
+        Iterator<ObjectNode> iterator = pending.values().iterator();
+        while (iterator.hasNext() && updates.size() < MAX_UPDATES) {
+            updates.add(iterator.next());
+        }
+        return updates;
+    }
+
+    private void sendMessage(HttpExchange exchange, Map<String, String> params) throws IOException, InterruptedException {
+        if (latencyMillis > 0) {
+            Thread.sleep(latencyMillis);
+        }
+        if (throttleRate > 0 && ThreadLocalRandom.current().nextDouble() < throttleRate) {
+            throttled.incrementAndGet();
+            ObjectNode body = objectMapper.createObjectNode()
+                    .put("ok", false)
+                    .put("error_code", 429)
+                    .put("description", "Too Many Requests: retry after 1");
+            body.putObject("parameters").put("retry_after", 1);
+            respond(exchange, 429, body);
+            return;
+        }
+        long chatId = Long.parseLong(params.get("chat_id"));
+        sent.incrementAndGet();
+        listener.onSend(chatId, System.nanoTime());
+        ObjectNode message = objectMapper.createObjectNode()
+                .put("message_id", nextMessageId.getAndIncrement())
+                .put("date", System.currentTimeMillis() / 1000);
+        message.putObject("chat").put("id", chatId).put("type", "private");
+        respond(exchange, 200, ok(message));
+    }
+
+    private ObjectNode ok(JsonNode result) {
+        ObjectNode body = objectMapper.createObjectNode().put("ok", true);
+        body.set("result", result);
+        return body;
+    }
+
+    private void respond(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    // Клиент шлёт параметры формой или JSON, в query тоже могут быть
+    private Map<String, String> params(HttpExchange exchange) throws IOException {
+        Map<String, String> params = new HashMap<>();
+        parseForm(exchange.getRequestURI().getRawQuery(), params);
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
+        if (body.length == 0) {
+            return params;
+        }
+        if (contentType != null && contentType.contains("json")) {
+            objectMapper.readTree(body).fields().forEachRemaining(field -> params.put(field.getKey(), field.getValue().asText()));
+        } else {
+            parseForm(new String(body, StandardCharsets.UTF_8), params);
+        }
+        return params;
+    }
+
+    private static void parseForm(String form, Map<String, String> params) {
+        if (form == null || form.isEmpty()) {
+            return;
+        }
+        for (String pair : form.split("&")) {
+            int separator = pair.indexOf('=');
+            if (separator > 0) {
+                params.put(URLDecoder.decode(pair.substring(0, separator), StandardCharsets.UTF_8),
+                        URLDecoder.decode(pair.substring(separator + 1), StandardCharsets.UTF_8));
+            }
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package neko.crypto.loadtest;
+
+import java.util.Arrays;
+
+// Все замеры хранятся целиком: перцентили считаются точно, а не по гистограмме
+public class LatencyRecorder {
+    private long[] values = new long[1024];
+    private int size;
+
+    public synchronized void record(long nanos) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = nanos;
+    }
+
+    public synchronized Snapshot snapshotAndReset() {
+        long[] sorted = Arrays.copyOf(values, size);
+        size = 0;
+        Arrays.sort(sorted);
+        return new Snapshot(sorted);
+    }
+
+    public record Snapshot(long[] sorted) {
+        public int count() {
+            return sorted.length;
+        }
+
+        public double percentileMillis(double percentile) {
+            if (sorted.length == 0) {
+                return Double.NaN;
+            }
+            int index = (int) Math.ceil(percentile * sorted.length) - 1;
+            return sorted[Math.max(index, 0)] / 1_000_000.0;
+        }
+    }
+}
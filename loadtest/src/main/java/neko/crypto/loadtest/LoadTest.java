@@ -0,0 +1,167 @@
+package neko.crypto.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.TimeoutException;
+
+// Нагрузочный прогон пары bot + scrapper без внешних сервисов.
+// Bot и scrapper запускаются отдельно с адресами заглушек, которые драйвер печатает при старте;
+// дальше на каждом шаге число чатов растёт, и снимаются темп и задержка уведомлений и задержка команд
+@Slf4j
+public final class LoadTest {
+    private static final Duration STARTUP_TIMEOUT = Duration.ofMinutes(5);
+    private static final Duration POLL_INTERVAL = Duration.ofSeconds(1);
+    // Бот отстаёт, если уведомляет заметно медленнее, чем chats / interval
+    private static final double BEHIND_RATIO = 0.95;
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestSettings settings = LoadTestSettings.parse(args);
+        MarketData market = new MarketData(settings.symbols());
+        CommandLoad commands = new CommandLoad(market.bases(), settings.commandUsers(), settings.commandThinkTime(),
+                settings.commandTimeout());
+        HttpClient http = HttpClient.newBuilder().connectTimeout(Duration.ofSeconds(5)).build();
+
+        try (BinanceStub binance = new BinanceStub(settings.binancePort(), market, settings.binanceLatencyMillis(),
+                settings.binanceErrorRate());
+             BybitStub bybit = new BybitStub(settings.bybitPort(), market, settings.bybitLatencyMillis(),
+                     settings.bybitErrorRate());
+             FakeTelegramServer telegram = new FakeTelegramServer(settings.telegramPort(), settings.telegramLatencyMillis(),
+                     settings.telegramThrottleRate(), (chatId, receivedAt) -> {
+                 if (chatId >= CommandLoad.CHAT_BASE) {
+                     commands.onReply(chatId, receivedAt);
+                 }
+             })) {
+            binance.start();
+            bybit.start();
+            telegram.start();
+            log.info("Start scrapper with: --binance.api.url={} --bybit.api.url={} --binance.stream.enabled=false",
+                    binance.baseUrl(), bybit.baseUrl());
+            // Засев идёт напрямую в scrapper мимо команд бота, поэтому бот узнаёт о чатах только из сверки
+            log.info("Start bot with: --telegram.bot.api-url=http://localhost:{}/bot --notification.interval={}"
+                            + " --notification.sync-interval=10000"
+                            + " (add --telegram.rate-limit.global=100000 to measure the bot without the Telegram limit)",
+                    settings.telegramPort(), settings.notificationInterval().toMillis());
+
+            waitFor("scrapper to load trading pairs", () -> pairsLoaded(http, settings.scrapperUrl()));
+            waitFor("bot to poll getUpdates", () -> telegram.polls() > 0);
+
+            WatchlistSeeder seeder = new WatchlistSeeder(http, settings.scrapperUrl(), market.bases(),
+                    settings.tickersPerChat(), settings.seedConcurrency());
+            BotMetrics botMetrics = new BotMetrics(http, settings.botUrl());
+            List<StepResult> results = new ArrayList<>();
+            for (int chats : settings.steps()) {
+                results.add(runStep(settings, chats, seeder, botMetrics, commands, telegram));
+                log.info("Step done: {}", results.getLast().row(settings.notificationInterval()));
+            }
+
+            log.info("Binance stub served {} requests, {} injected errors; Bybit stub served {} requests, {} injected errors;"
+                            + " fake Telegram accepted {} messages, throttled {}",
+                    binance.requests(), binance.errors(), bybit.requests(), bybit.errors(), telegram.sent(),
+                    telegram.throttled());
+            log.info(String.format(Locale.ROOT, "%10s %10s %8s %10s %10s %7s %10s %11s %10s %10s %9s %9s",
+                    "chats", "seed s", "failed", "notify/s", "expected", "behind", "lag ms", "max lag ms", "p50 ms", "p99 ms", "cmd/s", "timeouts"));
+            for (StepResult result : results) {
+                log.info(result.row(settings.notificationInterval()));
+            }
+        }
+    }
+
+    private static StepResult runStep(LoadTestSettings settings, int chats, WatchlistSeeder seeder, BotMetrics botMetrics,
+                                      CommandLoad commands, FakeTelegramServer telegram) throws Exception {
+        log.info("Seeding watchlists up to {} chats", chats);
+        long seedStartedAt = System.nanoTime();
+        int failed = seeder.seedUpTo(chats);
+        double seedSeconds = (System.nanoTime() - seedStartedAt) / 1e9;
+
+        commands.start(telegram);
+        // Засеянные чаты попадают в расписание бота при ближайшей сверке с scrapper;
+        // после этого каждый чат уже стоит на своей фазе, и темп ровный с первого окна
+        Duration scheduleTimeout = settings.notificationInterval().plusMinutes(2);
+        BotMetrics.Snapshot first = null;
+        BotMetrics.Snapshot second = null;
+        try {
+            first = awaitScheduled(botMetrics, chats, scheduleTimeout);
+            Thread.sleep(settings.notificationInterval());
+            second = botMetrics.snapshot();
+        } catch (TimeoutException e) {
+            log.warn("Bot did not schedule {} chats within {}", chats, scheduleTimeout);
+        }
+        CommandLoad.Result commandResult = commands.stop();
+
+        Window window = null;
+        if (first != null && second != null) {
+            long delivered = second.delivered() - first.delivered();
+            window = new Window(second.chats() - first.chats(),
+                    delivered > 0 ? (second.lagSeconds() - first.lagSeconds()) * 1000 / delivered : Double.NaN,
+                    second.maxLagSeconds() * 1000);
+        }
+        return new StepResult(chats, seedSeconds, failed, window, commandResult);
+    }
+
+    private static BotMetrics.Snapshot awaitScheduled(BotMetrics botMetrics, int chats, Duration timeout)
+            throws IOException, InterruptedException, TimeoutException {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        while (System.nanoTime() < deadline) {
+            BotMetrics.Snapshot current = botMetrics.snapshot();
+            if (current.scheduled() >= chats) {
+                return current;
+            }
+            Thread.sleep(POLL_INTERVAL);
+        }
+        throw new TimeoutException();
+    }
+
+    private static boolean pairsLoaded(HttpClient http, URI scrapperUrl) {
+        try {
+            HttpResponse<String> response = http.send(HttpRequest.newBuilder(URI.create(scrapperUrl + "/pairs/count")).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            return response.statusCode() == 200 && Integer.parseInt(response.body().trim()) > 0;
+        } catch (IOException | NumberFormatException e) {
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void waitFor(String what, Callable<Boolean> condition) throws Exception {
+        log.info("Waiting for {}", what);
+        long deadline = System.nanoTime() + STARTUP_TIMEOUT.toNanos();
+        while (!condition.call()) {
+            if (System.nanoTime() > deadline) {
+                throw new TimeoutException("Gave up waiting for " + what);
+            }
+            Thread.sleep(POLL_INTERVAL);
+        }
+    }
+
+    // Окно длиной в один период уведомлений: обойдённые чаты, средняя и максимальная задержка доставки
+    private record Window(long chats, double meanLagMillis, double maxLagMillis) {
+    }
+
+    private record StepResult(int chats, double seedSeconds, int seedFailures, Window window, CommandLoad.Result commands) {
+        String row(Duration interval) {
+            double expected = chats / (interval.toMillis() / 1000.0);
+            double actual = window != null ? window.chats() / (interval.toMillis() / 1000.0) : Double.NaN;
+            String behind = window == null ? "timeout" : actual < expected * BEHIND_RATIO ? "yes" : "no";
+            return String.format(Locale.ROOT, "%10d %10.1f %8d %10.1f %10.1f %7s %10.1f %11.1f %10.1f %10.1f %9.1f %9d",
+                    chats, seedSeconds, seedFailures, actual, expected, behind,
+                    window != null ? window.meanLagMillis() : Double.NaN, window != null ? window.maxLagMillis() : Double.NaN,
+                    commands.latencies().percentileMillis(0.5), commands.latencies().percentileMillis(0.99),
+                    commands.throughput(), commands.timeouts());
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package neko.crypto.loadtest;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// Параметры прогона в виде --key=value, у каждого есть значение по умолчанию
+public record LoadTestSettings(
+        int binancePort,
+        int telegramPort,
+        int bybitPort,
+        URI scrapperUrl,
+        URI botUrl,
+        int[] steps,
+        int tickersPerChat,
+        int symbols,
+        int binanceLatencyMillis,
+        double binanceErrorRate,
+        int bybitLatencyMillis,
+        double bybitErrorRate,
+        int telegramLatencyMillis,
+        double telegramThrottleRate,
+        int seedConcurrency,
+        int commandUsers,
+        Duration commandThinkTime,
+        Duration commandTimeout,
+        Duration notificationInterval) {
+
+    public static LoadTestSettings parse(String[] args) {
+        Map<String, String> values = new HashMap<>();
+        for (String arg : args) {
+            if (!arg.startsWith("--") || !arg.contains("=")) {
+                throw new IllegalArgumentException("Expected --key=value, got " + arg);
+            }
+            int separator = arg.indexOf('=');
+            values.put(arg.substring(2, separator), arg.substring(separator + 1));
+        }
+        return new LoadTestSettings(
+                Integer.parseInt(values.getOrDefault("binance-port", "9090")),
+                Integer.parseInt(values.getOrDefault("telegram-port", "9091")),
+                Integer.parseInt(values.getOrDefault("bybit-port", "9092")),
+                URI.create(values.getOrDefault("scrapper-url", "http://localhost:8081/api/crypto")),
+                URI.create(values.getOrDefault("bot-url", "http://localhost:8080")),
+                Arrays.stream(values.getOrDefault("steps", "10000,100000,1000000").split(","))
+                        .mapToInt(step -> Integer.parseInt(step.trim()))
+                        .sorted()
+                        .toArray(),
+                Integer.parseInt(values.getOrDefault("tickers-per-chat", "5")),
+                Integer.parseInt(values.getOrDefault("symbols", "2500")),
+                Integer.parseInt(values.getOrDefault("binance-latency-ms", "50")),
+                Double.parseDouble(values.getOrDefault("binance-error-rate", "0.01")),
+                Integer.parseInt(values.getOrDefault("bybit-latency-ms", "80")),
+                Double.parseDouble(values.getOrDefault("bybit-error-rate", "0.01")),
+                Integer.parseInt(values.getOrDefault("telegram-latency-ms", "30")),
+                Double.parseDouble(values.getOrDefault("telegram-throttle-rate", "0")),
+                Integer.parseInt(values.getOrDefault("seed-concurrency", "64")),
+                Integer.parseInt(values.getOrDefault("command-users", "100")),
+                Duration.ofMillis(Long.parseLong(values.getOrDefault("command-think-ms", "2000"))),
+                Duration.ofSeconds(Long.parseLong(values.getOrDefault("command-timeout-s", "30"))),
+                Duration.ofMillis(Long.parseLong(values.getOrDefault("notification-interval-ms", "300000"))));
+    }
+}
@@ -0,0 +1,140 @@
+package neko.crypto.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+// Синтетический рынок: USDT пары с настоящими тикерами в начале списка, цены случайно блуждают
+public class MarketData {
+    private static final String[] KNOWN = {"BTC", "ETH", "BNB", "SOL", "XRP", "DOGE", "ADA", "TON", "TRX", "AVAX"};
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final List<String> bases;
+    private final Map<String, Integer> indexBySymbol;
+    private final double[] prices;
+    private final Random random = new Random(42);
+    private final String exchangeInfo;
+
+    public MarketData(int symbols) {
+        this.bases = new ArrayList<>(symbols);
+        for (int i = 0; bases.size() < symbols; i++) {
+            bases.add(i < KNOWN.length ? KNOWN[i] : syntheticBase(i));
+        }
+        this.indexBySymbol = new HashMap<>(symbols * 2);
+        this.prices = new double[symbols];
+        for (int i = 0; i < symbols; i++) {
+            indexBySymbol.put(bases.get(i) + "USDT", i);
+            prices[i] = Math.pow(10, random.nextDouble() * 9 - 4);
+        }
+        this.exchangeInfo = renderExchangeInfo();
+    }
+
+    public List<String> bases() {
+        return bases;
+    }
+
+    public String exchangeInfo() {
+        return exchangeInfo;
+    }
+
+    // Каждый запрос сдвигает все цены на доли процента, чтобы уведомления видели движение
+    public synchronized String tickerPrices(Collection<String> symbols) {
+        drift();
+        ArrayNode result = objectMapper.createArrayNode();
+        if (symbols.isEmpty()) {
+            for (int i = 0; i < prices.length; i++) {
+                result.add(price(i));
+            }
+        } else {
+            for (String symbol : symbols) {
+                Integer index = indexBySymbol.get(symbol);
+                if (index != null) {
+                    result.add(price(index));
+                }
+            }
+        }
+        return result.toString();
+    }
+
+    public synchronized String tickerPrice(String symbol) {
+        Integer index = indexBySymbol.get(symbol);
+        return index != null ? price(index).toString() : null;
+    }
+
+    // Ответ Bybit /v5/market/tickers: весь спотовый рынок или одна пара, null - пары нет
+    public synchronized String bybitTickers(String symbol) {
+        drift();
+        ObjectNode root = objectMapper.createObjectNode()
+                .put("retCode", 0)
+                .put("retMsg", "OK");
+        ObjectNode result = root.putObject("result").put("category", "spot");
+        ArrayNode list = result.putArray("list");
+        if (symbol == null) {
+            for (int i = 0; i < prices.length; i++) {
+                list.add(price(i, "lastPrice"));
+            }
+        } else {
+            Integer index = indexBySymbol.get(symbol);
+            if (index == null) {
+                return null;
+            }
+            list.add(price(index, "lastPrice"));
+        }
+        root.putObject("retExtInfo");
+        root.put("time", System.currentTimeMillis());
+        return root.toString();
+    }
+
+    private void drift() {
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] *= 1 + (random.nextDouble() - 0.5) * 0.002;
+        }
+    }
+
+    private ObjectNode price(int index) {
+        return price(index, "price");
+    }
+
+    private ObjectNode price(int index, String field) {
+        return objectMapper.createObjectNode()
+                .put("symbol", bases.get(index) + "USDT")
+                .put(field, String.format(Locale.ROOT, "%.8f", prices[index]));
+    }
+
+    private String renderExchangeInfo() {
+        ObjectNode root = objectMapper.createObjectNode()
+                .put("timezone", "UTC")
+                .put("serverTime", System.currentTimeMillis());
+        root.putArray("rateLimits");
+        root.putArray("exchangeFilters");
+        ArrayNode symbols = root.putArray("symbols");
+        for (String base : bases) {
+            ObjectNode symbol = symbols.addObject()
+                    .put("symbol", base + "USDT")
+                    .put("status", "TRADING")
+                    .put("baseAsset", base)
+                    .put("quoteAsset", "USDT");
+            ArrayNode filters = symbol.putArray("filters");
+            filters.addObject().put("filterType", "PRICE_FILTER").put("tickSize", "0.00000100");
+            filters.addObject().put("filterType", "LOT_SIZE").put("stepSize", "0.00100000");
+            symbol.putArray("permissionSets").addArray().add("SPOT");
+        }
+        return root.toString();
+    }
+
+    private static String syntheticBase(int index) {
+        StringBuilder base = new StringBuilder("X");
+        for (int i = index; i > 0; i /= 26) {
+            base.append((char) ('A' + i % 26));
+        }
+        return base.toString();
+    }
+}
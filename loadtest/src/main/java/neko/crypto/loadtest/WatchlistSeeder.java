@@ -0,0 +1,80 @@
+package neko.crypto.loadtest;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+// Заводит watchlist через обычный API scrapper, чтобы нагрузка проходила тот же путь, что и /add
+@Slf4j
+public class WatchlistSeeder {
+    private final HttpClient client;
+    private final URI scrapperUrl;
+    private final List<String> bases;
+    private final int tickersPerChat;
+    private final int concurrency;
+    private int seeded;
+
+    public WatchlistSeeder(HttpClient client, URI scrapperUrl, List<String> bases, int tickersPerChat, int concurrency) {
+        this.client = client;
+        this.scrapperUrl = scrapperUrl;
+        this.bases = bases;
+        this.tickersPerChat = tickersPerChat;
+        this.concurrency = concurrency;
+    }
+
+    // chatId 1..chats; уже заведённые чаты не трогаются, поэтому шаги нарастают
+    public int seedUpTo(int chats) {
+        AtomicInteger failed = new AtomicInteger();
+        Semaphore permits = new Semaphore(concurrency);
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int chatId = seeded + 1; chatId <= chats; chatId++) {
+                permits.acquireUninterruptibly();
+                long id = chatId;
+                executor.submit(() -> {
+                    try {
+                        if (!add(id)) {
+                            failed.incrementAndGet();
+                        }
+                    } finally {
+                        permits.release();
+                    }
+                });
+                if (chatId % 50_000 == 0) {
+                    log.info("Seeded {} of {} chats", chatId, chats);
+                }
+            }
+        }
+        seeded = chats;
+        return failed.get();
+    }
+
+    private boolean add(long chatId) {
+        Random random = new Random(chatId);
+        String tickers = random.ints(tickersPerChat, 0, bases.size())
+                .mapToObj(index -> "\"" + bases.get(index) + "\"")
+                .collect(Collectors.joining(",", "[", "]"));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(scrapperUrl + "/watchlist/" + chatId + "/add"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(tickers))
+                .build();
+        try {
+            return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (Exception e) {
+            log.debug("Seeding chat {} failed: {}", chatId, e.getMessage());
+            return false;
+        }
+    }
+}
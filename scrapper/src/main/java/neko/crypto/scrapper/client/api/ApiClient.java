@@ -1,13 +1,35 @@
 package neko.crypto.scrapper.client.api;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import okhttp3.OkHttpClient;
+import okhttp3.Response;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
 @Configuration
 public class ApiClient {
+    // Теги host и endpoint - без query: у бирж несколько фиксированных путей, символы в путь не попадают
     @Bean
-    public OkHttpClient okHttpClient() {
-        return new OkHttpClient();
+    public OkHttpClient okHttpClient(MeterRegistry meterRegistry) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(chain -> {
+                    Timer.Sample sample = Timer.start(meterRegistry);
+                    String status = "IO_ERROR";
+                    try {
+                        Response response = chain.proceed(chain.request());
+                        status = String.valueOf(response.code());
+                        return response;
+                    } finally {
+                        sample.stop(Timer.builder("exchange.requests")
+                                .description("Exchange REST call latency")
+                                .tag("host", chain.request().url().host())
+                                .tag("endpoint", chain.request().url().encodedPath())
+                                .tag("status", status)
+                                .publishPercentileHistogram()
+                                .register(meterRegistry));
+                    }
+                })
+                .build();
     }
-}
\ No newline at end of file
+}
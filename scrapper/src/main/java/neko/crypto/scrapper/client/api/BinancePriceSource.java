@@ -0,0 +1,59 @@
+package neko.crypto.scrapper.client.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collection;
+
+// Binance /api/v3/ticker/price: один символ, список до 100 символов или весь рынок
+@Component
+@Slf4j
+public class BinancePriceSource implements PriceSource {
+    // Больше символов не помещаем в параметр symbols, а берём весь рынок одним запросом
+    private static final int MAX_SYMBOLS_PER_REQUEST = 100;
+
+    private final OkHttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String apiUrl;
+
+    public BinancePriceSource(OkHttpClient client, ObjectMapper objectMapper, @Value("${binance.api.url}") String apiUrl) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.apiUrl = apiUrl;
+    }
+
+    @Override
+    public String name() {
+        return "binance";
+    }
+
+    // Ответ (объект или массив) разбирается потоково
+    @Override
+    public int fetchPrices(Collection<String> symbols, TickerPriceParser.PriceSink sink) throws IOException {
+        HttpUrl.Builder url = HttpUrl.get(apiUrl).newBuilder().addPathSegments("api/v3/ticker/price");
+        if (symbols.size() == 1) {
+            url.addQueryParameter("symbol", symbols.iterator().next());
+        } else if (!symbols.isEmpty() && symbols.size() <= MAX_SYMBOLS_PER_REQUEST) {
+            url.addQueryParameter("symbols", objectMapper.valueToTree(symbols).toString());
+        }
+        log.debug("Sending request to Binance API: {}", url);
+        Request request = new Request.Builder().url(url.build()).build();
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                String errorBody = response.body() != null ? response.body().string() : "No response body";
+                throw new IOException("Binance API returned " + response.code() + " " + response.message() + ", body: " + errorBody);
+            }
+            try (JsonParser parser = objectMapper.getFactory().createParser(response.body().byteStream())) {
+                return TickerPriceParser.parse(parser, sink);
+            }
+        }
+    }
+}
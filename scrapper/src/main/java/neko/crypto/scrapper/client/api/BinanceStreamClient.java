@@ -0,0 +1,168 @@
+package neko.crypto.scrapper.client.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.service.PriceTable;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@Component
+@Slf4j
+public class BinanceStreamClient extends WebSocketListener {
+    private static final String ALL_MINI_TICKERS = "!miniTicker@arr";
+    private static final long MAX_RECONNECT_DELAY_MS = 60_000;
+
+    private final OkHttpClient client;
+    private final ObjectMapper objectMapper;
+    private final PriceTable priceTable;
+    private final boolean enabled;
+    private final String streamUrl;
+    private final Duration staleAfter;
+    private final ScheduledExecutorService reconnectExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "binance-stream-reconnect");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicInteger reconnectAttempts = new AtomicInteger();
+    private final AtomicInteger requestId = new AtomicInteger();
+
+    private volatile WebSocket webSocket;
+    private volatile long lastMessageAt;
+    private volatile boolean running;
+
+    public BinanceStreamClient(OkHttpClient client, ObjectMapper objectMapper, PriceTable priceTable,
+                               @Value("${binance.stream.enabled:true}") boolean enabled,
+                               @Value("${binance.stream.url}") String streamUrl,
+                               @Value("${binance.stream.stale-after:10s}") Duration staleAfter) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.priceTable = priceTable;
+        this.enabled = enabled;
+        this.streamUrl = streamUrl;
+        this.staleAfter = staleAfter;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled) {
+            log.info("Binance price stream is disabled, prices will be fetched over REST");
+            return;
+        }
+        running = true;
+        connect();
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        reconnectExecutor.shutdownNow();
+        WebSocket socket = webSocket;
+        if (socket != null) {
+            socket.close(1000, "Shutdown");
+        }
+    }
+
+    public boolean isStale() {
+        return System.currentTimeMillis() - lastMessageAt > staleAfter.toMillis();
+    }
+
+    private void connect() {
+        log.info("Connecting to Binance price stream: {}", streamUrl);
+        Request request = new Request.Builder().url(streamUrl).build();
+        webSocket = client.newWebSocket(request, this);
+    }
+
+    private void scheduleReconnect() {
+        if (!running) {
+            return;
+        }
+        int attempt = reconnectAttempts.getAndIncrement();
+        long delay = Math.min(MAX_RECONNECT_DELAY_MS, 1000L << Math.min(attempt, 6));
+        log.info("Reconnecting to Binance price stream in {} ms (attempt {})", delay, attempt + 1);
+        reconnectExecutor.schedule(this::connect, delay, TimeUnit.MILLISECONDS);
+    }
+
+    // Соединение может "зависнуть" без onFailure, поэтому переподключаемся, если данных давно нет
+    @Scheduled(fixedDelayString = "${binance.stream.watchdog-interval:30000}")
+    public void checkStale() {
+        WebSocket socket = webSocket;
+        if (running && socket != null && isStale()) {
+            log.warn("Binance price stream is stale, last message {} ms ago", System.currentTimeMillis() - lastMessageAt);
+            socket.cancel();
+        }
+    }
+
+    @Override
+    public void onOpen(WebSocket webSocket, Response response) {
+        log.info("Binance price stream connected");
+        reconnectAttempts.set(0);
+        String subscribe = objectMapper.createObjectNode()
+                .put("method", "SUBSCRIBE")
+                .put("id", requestId.incrementAndGet())
+                .set("params", objectMapper.createArrayNode().add(ALL_MINI_TICKERS))
+                .toString();
+        webSocket.send(subscribe);
+    }
+
+    @Override
+    public void onMessage(WebSocket webSocket, String text) {
+        lastMessageAt = System.currentTimeMillis();
+        try {
+            JsonNode json = objectMapper.readTree(text);
+            if (json.isArray()) {
+                for (JsonNode ticker : json) {
+                    applyMiniTicker(ticker);
+                }
+            } else if (json.has("e")) {
+                applyMiniTicker(json);
+            } else {
+                log.debug("Binance stream control message: {}", text);
+            }
+        } catch (IOException e) {
+            log.warn("Failed to parse Binance stream message: {}", e.getMessage());
+        }
+    }
+
+    // Символы, которых нет в таблице цен (не USDT пары), пропускаются
+    private void applyMiniTicker(JsonNode ticker) {
+        JsonNode symbol = ticker.get("s");
+        JsonNode close = ticker.get("c");
+        if (symbol == null || close == null) {
+            return;
+        }
+        priceTable.update(symbol.asText(), close.asDouble(), lastMessageAt);
+    }
+
+    @Override
+    public void onClosing(WebSocket webSocket, int code, String reason) {
+        webSocket.close(code, null);
+    }
+
+    @Override
+    public void onClosed(WebSocket webSocket, int code, String reason) {
+        log.warn("Binance price stream closed: {} {}", code, reason);
+        scheduleReconnect();
+    }
+
+    @Override
+    public void onFailure(WebSocket webSocket, Throwable t, Response response) {
+        log.error("Binance price stream failure: {}", t.getMessage());
+        scheduleReconnect();
+    }
+}
@@ -0,0 +1,61 @@
+package neko.crypto.scrapper.client.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collection;
+
+// Bybit /v5/market/tickers, спот: один символ или весь рынок - списка символов API не принимает.
+// Символы USDT пар совпадают с Binance (BTCUSDT), цена - поле lastPrice
+@Component
+@Slf4j
+public class BybitPriceSource implements PriceSource {
+    private final OkHttpClient client;
+    private final ObjectMapper objectMapper;
+    private final String apiUrl;
+
+    public BybitPriceSource(OkHttpClient client, ObjectMapper objectMapper, @Value("${bybit.api.url:https://api.bybit.com}") String apiUrl) {
+        this.client = client;
+        this.objectMapper = objectMapper;
+        this.apiUrl = apiUrl;
+    }
+
+    @Override
+    public String name() {
+        return "bybit";
+    }
+
+    @Override
+    public int fetchPrices(Collection<String> symbols, TickerPriceParser.PriceSink sink) throws IOException {
+        HttpUrl.Builder url = HttpUrl.get(apiUrl).newBuilder()
+                .addPathSegments("v5/market/tickers")
+                .addQueryParameter("category", "spot");
+        if (symbols.size() == 1) {
+            url.addQueryParameter("symbol", symbols.iterator().next());
+        }
+        log.debug("Sending request to Bybit API: {}", url);
+        Request request = new Request.Builder().url(url.build()).build();
+        try (Response response = client.newCall(request).execute()) {
+            if (!response.isSuccessful() || response.body() == null) {
+                String errorBody = response.body() != null ? response.body().string() : "No response body";
+                throw new IOException("Bybit API returned " + response.code() + " " + response.message() + ", body: " + errorBody);
+            }
+            // Ошибки Bybit приходят с HTTP 200 и retCode в теле, списка цен тогда нет
+            try (JsonParser parser = objectMapper.getFactory().createParser(response.body().byteStream())) {
+                int accepted = TickerPriceParser.parse(parser, "lastPrice", sink);
+                if (accepted == 0) {
+                    throw new IOException("Bybit API returned no prices for " + (symbols.isEmpty() ? "the market" : symbols));
+                }
+                return accepted;
+            }
+        }
+    }
+}
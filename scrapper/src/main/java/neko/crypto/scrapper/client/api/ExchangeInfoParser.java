@@ -0,0 +1,72 @@
+package neko.crypto.scrapper.client.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.util.HashSet;
+import java.util.Set;
+
+// Потоковый разбор exchangeInfo: из каждого символа читаются только symbol, status и quoteAsset,
+// фильтры, разрешения и прочие вложенные структуры пропускаются без построения дерева
+public final class ExchangeInfoParser {
+    private static final String TRADING = "TRADING";
+    private static final String USDT = "USDT";
+
+    private ExchangeInfoParser() {
+    }
+
+    public static Set<String> parseTradingUsdtPairs(JsonParser parser) throws IOException {
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Unexpected exchangeInfo format");
+        }
+        Set<String> pairs = new HashSet<>();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+            if ("symbols".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    String symbol = parseSymbol(parser);
+                    if (symbol != null) {
+                        pairs.add(symbol);
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return pairs;
+    }
+
+    // null, если пара не торгуется или котируется не в USDT
+    private static String parseSymbol(JsonParser parser) throws IOException {
+        String symbol = null;
+        boolean trading = false;
+        boolean usdtQuote = false;
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String name = parser.currentName();
+            parser.nextToken();
+            switch (name) {
+                case "symbol" -> symbol = parser.getText();
+                case "status" -> trading = textEquals(parser, TRADING);
+                case "quoteAsset" -> usdtQuote = textEquals(parser, USDT);
+                default -> parser.skipChildren();
+            }
+        }
+        return trading && usdtQuote ? symbol : null;
+    }
+
+    private static boolean textEquals(JsonParser parser, String expected) throws IOException {
+        if (parser.currentToken() != JsonToken.VALUE_STRING || parser.getTextLength() != expected.length()) {
+            return false;
+        }
+        char[] chars = parser.getTextCharacters();
+        int offset = parser.getTextOffset();
+        for (int i = 0; i < expected.length(); i++) {
+            if (chars[offset + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,15 @@
+package neko.crypto.scrapper.client.api;
+
+import java.io.IOException;
+import java.util.Collection;
+
+// REST источник цен USDT пар. Цены отдаются в sink, а не сразу в таблицу цен:
+// при хедже в таблицу попадает только ответ, который пришёл первым
+public interface PriceSource {
+    // Имя в настройке prices.sources и в тегах метрик
+    String name();
+
+    // symbols пустой - весь рынок; источник может вернуть больше, чем просили.
+    // IOException - источник не ответил или ответил ошибкой
+    int fetchPrices(Collection<String> symbols, TickerPriceParser.PriceSink sink) throws IOException;
+}
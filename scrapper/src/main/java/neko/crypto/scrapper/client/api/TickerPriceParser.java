@@ -0,0 +1,53 @@
+package neko.crypto.scrapper.client.api;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+
+// Потоковый разбор ответов с ценами: один объект или массив {"symbol": ..., "price": ...}, без промежуточных объектов.
+// Объекты-обёртки вокруг списка (как у Bybit) пропускаются: цена принимается только из объекта, где есть оба поля
+public final class TickerPriceParser {
+    private TickerPriceParser() {
+    }
+
+    @FunctionalInterface
+    public interface PriceSink {
+        // true, если цена принята
+        boolean accept(String symbol, double price);
+    }
+
+    public static int parse(JsonParser parser, PriceSink sink) throws IOException {
+        return parse(parser, "price", sink);
+    }
+
+    // priceField - имя поля с ценой: price у Binance, lastPrice у Bybit
+    public static int parse(JsonParser parser, String priceField, PriceSink sink) throws IOException {
+        int accepted = 0;
+        String symbol = null;
+        double price = Double.NaN;
+        JsonToken token;
+        while ((token = parser.nextToken()) != null) {
+            if (token == JsonToken.START_OBJECT) {
+                symbol = null;
+                price = Double.NaN;
+            } else if (token == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                parser.nextToken();
+                if ("symbol".equals(field)) {
+                    symbol = parser.getText();
+                } else if (priceField.equals(field)) {
+                    price = parser.getValueAsDouble(Double.NaN);
+                }
+            } else if (token == JsonToken.END_OBJECT) {
+                if (symbol != null && !Double.isNaN(price) && sink.accept(symbol, price)) {
+                    accepted++;
+                }
+                // Закрытие обёртки не должно повторно принять цену последнего элемента
+                symbol = null;
+                price = Double.NaN;
+            }
+        }
+        return accepted;
+    }
+}
@@ -0,0 +1,60 @@
+package neko.crypto.scrapper.controller;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.model.AlertDirection;
+import neko.crypto.scrapper.model.FiredAlert;
+import neko.crypto.scrapper.model.PriceAlert;
+import neko.crypto.scrapper.service.AlertService;
+import org.springframework.context.MessageSource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Locale;
+
+@RestController
+@RequestMapping("/api/crypto/alerts")
+@RequiredArgsConstructor
+@Slf4j
+public class AlertController {
+    private final AlertService alertService;
+    private final MessageSource messageSource;
+
+    @PostMapping("/{chatId}/add/{ticker}")
+    public ResponseEntity<String> addAlert(@PathVariable Long chatId, @PathVariable String ticker,
+                                           @RequestParam AlertDirection direction, @RequestParam double threshold) {
+        log.debug("Received POST /api/crypto/alerts/{}/add/{} direction={} threshold={}", chatId, ticker, direction, threshold);
+        try {
+            PriceAlert alert = alertService.addAlert(chatId, ticker, direction, threshold);
+            return ResponseEntity.ok(String.valueOf(alert.getId()));
+        } catch (IllegalArgumentException e) {
+            log.error("Error adding alert {} for chatId {}: {}", ticker, chatId, e.getMessage());
+            return ResponseEntity.badRequest().body(messageSource.getMessage("api.alert.add.error", new Object[]{ticker, e.getMessage()}, Locale.getDefault()));
+        }
+    }
+
+    @GetMapping("/{chatId}")
+    public ResponseEntity<List<PriceAlert>> getAlerts(@PathVariable Long chatId) {
+        log.debug("Received GET /api/crypto/alerts/{}", chatId);
+        return ResponseEntity.ok(alertService.getAlerts(chatId));
+    }
+
+    @DeleteMapping("/{chatId}/remove/{alertId}")
+    public ResponseEntity<Boolean> removeAlert(@PathVariable Long chatId, @PathVariable Long alertId) {
+        log.debug("Received DELETE /api/crypto/alerts/{}/remove/{}", chatId, alertId);
+        return ResponseEntity.ok(alertService.removeAlert(chatId, alertId));
+    }
+
+    @PostMapping("/fired/drain")
+    public ResponseEntity<List<FiredAlert>> drainFiredAlerts(@RequestParam(defaultValue = "500") int max) {
+        return ResponseEntity.ok(alertService.drainFiredAlerts(max));
+    }
+
+    @PostMapping("/fired/ack")
+    public ResponseEntity<Void> ackFiredAlerts(@RequestBody List<Long> ids) {
+        log.debug("Received POST /api/crypto/alerts/fired/ack for {} alerts", ids.size());
+        alertService.ackFiredAlerts(ids);
+        return ResponseEntity.ok().build();
+    }
+}
@@ -1,15 +1,38 @@
 package neko.crypto.scrapper.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.model.Candle;
+import neko.crypto.scrapper.model.ChatWatchlist;
+import neko.crypto.scrapper.model.CryptoPrice;
+import neko.crypto.scrapper.model.CandleResolution;
+import neko.crypto.scrapper.model.PairSnapshot;
+import neko.crypto.scrapper.model.Tick;
 import neko.crypto.scrapper.service.CryptoService;
+import neko.crypto.scrapper.service.PriceHistory;
+import neko.crypto.scrapper.service.PriceStreamPublisher;
+import neko.crypto.scrapper.service.TickJournal;
 import neko.crypto.scrapper.service.WatchlistService;
 import org.springframework.context.MessageSource;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -18,15 +41,29 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 @Slf4j
 public class CryptoController {
+    private static final int MAX_TICKS = 10_000;
+    private static final int MAX_BULK_TICKERS = 50;
+    // Период уведомлений: от минуты до суток, 0 - по умолчанию
+    private static final int MIN_INTERVAL_SECONDS = 60;
+    private static final int MAX_INTERVAL_SECONDS = 86400;
+    // Порог изменения цены для уведомлений: до 100%, 0 - по умолчанию
+    private static final double MAX_THRESHOLD_PERCENT = 100;
+    private static final String APPLICATION_CBOR_SEQ_VALUE = "application/cbor-seq";
+    private static final CBORMapper CBOR_MAPPER = new CBORMapper();
+
     private final CryptoService cryptoService;
     private final WatchlistService watchlistService;
+    private final PriceHistory priceHistory;
+    private final TickJournal tickJournal;
+    private final PriceStreamPublisher priceStreamPublisher;
     private final MessageSource messageSource;
+    private final ObjectMapper objectMapper;
 
     @GetMapping("/price/{ticker}")
     public ResponseEntity<String> getPrice(@PathVariable String ticker, @RequestParam(defaultValue = "false") boolean refresh) {
         log.debug("Received GET /api/crypto/price/{} with refresh={}", ticker, refresh);
         try {
-            String price = cryptoService.getPrice(ticker);
+            String price = String.valueOf(cryptoService.getPrice(ticker));
             log.info("Successfully fetched price for ticker {}: ${}", ticker, price);
             return ResponseEntity.ok(price);
         } catch (RuntimeException e) {
@@ -35,6 +72,83 @@ public class CryptoController {
         }
     }
 
+    // Типизированные ответы для бота; текстовые варианты выше остаются для остальных клиентов
+    @GetMapping(value = "/price/{ticker}", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<?> getQuote(@PathVariable String ticker) {
+        log.debug("Received CBOR GET /api/crypto/price/{}", ticker);
+        try {
+            return ResponseEntity.ok(cryptoService.getQuote(ticker));
+        } catch (RuntimeException e) {
+            log.error("Error fetching price for ticker {}: {}", ticker, e.getMessage());
+            return ResponseEntity.badRequest().body(messageSource.getMessage("api.price.error", new Object[]{ticker, e.getMessage()}, Locale.getDefault()));
+        }
+    }
+
+    @GetMapping(value = "/prices", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<List<CryptoPrice>> getQuotes(@RequestParam List<String> tickers) {
+        log.debug("Received CBOR GET /api/crypto/prices for {} tickers", tickers.size());
+        return ResponseEntity.ok(cryptoService.getQuotes(tickers));
+    }
+
+    @GetMapping(value = "/prices/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPrices() {
+        log.debug("Received GET /api/crypto/prices/stream");
+        return priceStreamPublisher.subscribe();
+    }
+
+    @GetMapping("/prices")
+    public ResponseEntity<Map<String, String>> getPrices(@RequestParam List<String> tickers) {
+        log.debug("Received GET /api/crypto/prices for {} tickers", tickers.size());
+        Map<String, String> prices = new LinkedHashMap<>();
+        cryptoService.getPrices(tickers, (symbol, price) -> prices.put(symbol, String.valueOf(price)));
+        log.info("Fetched {} prices for {} requested tickers", prices.size(), tickers.size());
+        return ResponseEntity.ok(prices);
+    }
+
+    @GetMapping("/history/{ticker}")
+    public ResponseEntity<?> getHistory(@PathVariable String ticker, @RequestParam(defaultValue = "5m") String resolution,
+                                        @RequestParam(defaultValue = "12") int limit) {
+        log.debug("Received GET /api/crypto/history/{}?resolution={}&limit={}", ticker, resolution, limit);
+        try {
+            List<Candle> candles = priceHistory.getCandles(ticker, CandleResolution.fromCode(resolution), Math.max(1, limit));
+            log.info("Built {} {} candles for ticker {}", candles.size(), resolution, ticker);
+            return ResponseEntity.ok(candles);
+        } catch (IllegalArgumentException e) {
+            log.error("Error building history for ticker {}: {}", ticker, e.getMessage());
+            return ResponseEntity.badRequest().body(messageSource.getMessage("api.history.error", new Object[]{ticker, e.getMessage()}, Locale.getDefault()));
+        }
+    }
+
+    // Границы в epoch millis; по умолчанию последний час
+    @GetMapping("/ticks/{ticker}")
+    public ResponseEntity<?> getTicks(@PathVariable String ticker, @RequestParam(required = false) Long from,
+                                      @RequestParam(required = false) Long to, @RequestParam(defaultValue = "1000") int limit) {
+        long end = to != null ? to : System.currentTimeMillis();
+        long start = from != null ? from : end - 3_600_000;
+        log.debug("Received GET /api/crypto/ticks/{}?from={}&to={}&limit={}", ticker, start, end, limit);
+        try {
+            List<Tick> ticks = tickJournal.getTicks(ticker, start, end, Math.clamp(limit, 1, MAX_TICKS));
+            log.info("Read {} journal ticks for ticker {}", ticks.size(), ticker);
+            return ResponseEntity.ok(ticks);
+        } catch (IllegalArgumentException | IllegalStateException e) {
+            log.error("Error reading ticks for ticker {}: {}", ticker, e.getMessage());
+            return ResponseEntity.badRequest().body(messageSource.getMessage("api.ticks.error", new Object[]{ticker, e.getMessage()}, Locale.getDefault()));
+        }
+    }
+
+    @GetMapping("/cache/stats")
+    public ResponseEntity<Map<String, Object>> getCacheStats() {
+        CacheStats stats = cryptoService.getCacheStats();
+        return ResponseEntity.ok(Map.of(
+                "hitCount", stats.hitCount(),
+                "missCount", stats.missCount(),
+                "hitRate", stats.hitRate(),
+                "loadSuccessCount", stats.loadSuccessCount(),
+                "loadFailureCount", stats.loadFailureCount(),
+                "averageLoadPenaltyMillis", stats.averageLoadPenalty() / 1_000_000.0,
+                "evictionCount", stats.evictionCount()));
+    }
+
     @PostMapping("/watchlist/{chatId}/add/{ticker}")
     public ResponseEntity<String> addToWatchlist(@PathVariable Long chatId, @PathVariable String ticker) {
         log.debug("Received POST /api/crypto/watchlist/{}/add/{}", chatId, ticker);
@@ -56,6 +170,48 @@ public class CryptoController {
         return ResponseEntity.ok(removed);
     }
 
+    @PostMapping("/watchlist/{chatId}/add")
+    public ResponseEntity<?> addToWatchlist(@PathVariable Long chatId, @RequestBody List<String> tickers) {
+        log.debug("Received POST /api/crypto/watchlist/{}/add with {} tickers", chatId, tickers.size());
+        if (tickers.isEmpty() || tickers.size() > MAX_BULK_TICKERS) {
+            return ResponseEntity.badRequest().body(messageSource.getMessage("api.watchlist.bulk.error",
+                    new Object[]{MAX_BULK_TICKERS}, Locale.getDefault()));
+        }
+        return ResponseEntity.ok(watchlistService.addToWatchlist(chatId.longValue(), tickers));
+    }
+
+    @PostMapping("/watchlist/{chatId}/remove")
+    public ResponseEntity<?> removeFromWatchlist(@PathVariable Long chatId, @RequestBody List<String> tickers) {
+        log.debug("Received POST /api/crypto/watchlist/{}/remove with {} tickers", chatId, tickers.size());
+        if (tickers.isEmpty() || tickers.size() > MAX_BULK_TICKERS) {
+            return ResponseEntity.badRequest().body(messageSource.getMessage("api.watchlist.bulk.error",
+                    new Object[]{MAX_BULK_TICKERS}, Locale.getDefault()));
+        }
+        return ResponseEntity.ok(watchlistService.removeFromWatchlist(chatId.longValue(), tickers));
+    }
+
+    @PostMapping("/watchlist/{chatId}/interval/{seconds}")
+    public ResponseEntity<?> setInterval(@PathVariable Long chatId, @PathVariable int seconds) {
+        log.debug("Received POST /api/crypto/watchlist/{}/interval/{}", chatId, seconds);
+        if (seconds != 0 && (seconds < MIN_INTERVAL_SECONDS || seconds > MAX_INTERVAL_SECONDS)) {
+            return ResponseEntity.badRequest().body(messageSource.getMessage("api.interval.error",
+                    new Object[]{MIN_INTERVAL_SECONDS, MAX_INTERVAL_SECONDS}, Locale.getDefault()));
+        }
+        watchlistService.setInterval(chatId, seconds);
+        return ResponseEntity.ok(seconds);
+    }
+
+    @PostMapping("/watchlist/{chatId}/threshold/{percent}")
+    public ResponseEntity<?> setThreshold(@PathVariable Long chatId, @PathVariable double percent) {
+        log.debug("Received POST /api/crypto/watchlist/{}/threshold/{}", chatId, percent);
+        if (!(percent >= 0 && percent <= MAX_THRESHOLD_PERCENT)) {
+            return ResponseEntity.badRequest().body(messageSource.getMessage("api.threshold.error",
+                    new Object[]{MAX_THRESHOLD_PERCENT}, Locale.getDefault()));
+        }
+        watchlistService.setThreshold(chatId, percent);
+        return ResponseEntity.ok(percent);
+    }
+
     @GetMapping("/watchlist/{chatId}")
     public ResponseEntity<String> getWatchlist(@PathVariable Long chatId) {
         log.debug("Received GET /api/crypto/watchlist/{}", chatId);
@@ -65,6 +221,18 @@ public class CryptoController {
         return ResponseEntity.ok(response);
     }
 
+    @GetMapping(value = "/watchlist/{chatId}", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<ChatWatchlist> getTypedWatchlist(@PathVariable Long chatId) {
+        log.debug("Received CBOR GET /api/crypto/watchlist/{}", chatId);
+        return ResponseEntity.ok(new ChatWatchlist(chatId, List.copyOf(watchlistService.getWatchlist(chatId)),
+                watchlistService.getInterval(chatId), watchlistService.getThreshold(chatId)));
+    }
+
+    @GetMapping(value = "/watchlist/chatIds", produces = MediaType.APPLICATION_CBOR_VALUE)
+    public ResponseEntity<long[]> getTypedChatIds() {
+        return ResponseEntity.ok(watchlistService.getAllChatIds().stream().mapToLong(Long::longValue).toArray());
+    }
+
     @GetMapping("/watchlist/chatIds")
     public ResponseEntity<String> getAllChatIds() {
         Set<Long> chatIds = watchlistService.getAllChatIds();
@@ -72,18 +240,58 @@ public class CryptoController {
         return ResponseEntity.ok(result);
     }
 
+    @GetMapping("/watchlist/tickers")
+    public ResponseEntity<Set<String>> getWatchedTickers() {
+        log.debug("Received GET /api/crypto/watchlist/tickers");
+        return ResponseEntity.ok(watchlistService.getWatchedTickers());
+    }
+
+    @GetMapping(value = "/watchlist/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportWatchlists() {
+        log.debug("Received GET /api/crypto/watchlist/export");
+        StreamingResponseBody body = writeWatchlists(objectMapper.writer().withRootValueSeparator("\n"));
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    // CBOR sequence (RFC 8742): записи идут подряд без разделителей
+    @GetMapping(value = "/watchlist/export", produces = APPLICATION_CBOR_SEQ_VALUE)
+    public ResponseEntity<StreamingResponseBody> exportWatchlistsCbor() {
+        log.debug("Received CBOR GET /api/crypto/watchlist/export");
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(APPLICATION_CBOR_SEQ_VALUE))
+                .body(writeWatchlists(CBOR_MAPPER.writer()));
+    }
+
+    private StreamingResponseBody writeWatchlists(ObjectWriter objectWriter) {
+        return outputStream -> {
+            try (SequenceWriter writer = objectWriter.writeValues(outputStream)) {
+                watchlistService.exportWatchlists(watchlist -> {
+                    try {
+                        writer.write(watchlist);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
+
+    // Снимок пар меняется раз в час, поэтому клиент может переспрашивать с If-None-Match
     @GetMapping("/pairs")
-    public ResponseEntity<String> getUsdtPairs(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size) {
+    public ResponseEntity<String> getUsdtPairs(@RequestParam(defaultValue = "0") int page, @RequestParam(defaultValue = "20") int size,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
         log.debug("Received GET /api/crypto/pairs?page={}&size={}", page, size);
-        List<String> pairs = watchlistService.getUsdtPairs(page, size);
-        String result = String.join("\n", pairs);
-        return ResponseEntity.ok(result);
+        PairSnapshot snapshot = watchlistService.getPairSnapshot();
+        if (snapshot.getEtag().equals(ifNoneMatch)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(snapshot.getEtag()).build();
+        }
+        String result = String.join("\n", snapshot.page(page, size));
+        return ResponseEntity.ok().eTag(snapshot.getEtag()).body(result);
     }
 
     @GetMapping("/pairs/count")
     public ResponseEntity<String> getUsdtPairsCount() {
         log.debug("Received GET /api/crypto/pairs/count");
-        String count = watchlistService.getUsdtPairsCount();
-        return ResponseEntity.ok(count);
+        PairSnapshot snapshot = watchlistService.getPairSnapshot();
+        return ResponseEntity.ok().eTag(snapshot.getEtag()).body(String.valueOf(snapshot.size()));
     }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package neko.crypto.scrapper.model;
+
+public enum AlertDirection {
+    ABOVE,
+    BELOW;
+
+    public boolean isSatisfiedBy(double price, double threshold) {
+        return this == ABOVE ? price >= threshold : price <= threshold;
+    }
+}
@@ -0,0 +1,30 @@
+package neko.crypto.scrapper.model;
+
+import java.time.Duration;
+
+public enum CandleResolution {
+    M1("1m", Duration.ofMinutes(1)),
+    M5("5m", Duration.ofMinutes(5)),
+    H1("1h", Duration.ofHours(1));
+
+    private final String code;
+    private final Duration duration;
+
+    CandleResolution(String code, Duration duration) {
+        this.code = code;
+        this.duration = duration;
+    }
+
+    public static CandleResolution fromCode(String code) {
+        for (CandleResolution resolution : values()) {
+            if (resolution.code.equalsIgnoreCase(code)) {
+                return resolution;
+            }
+        }
+        throw new IllegalArgumentException("Unknown resolution: " + code + ", use 1m, 5m or 1h");
+    }
+
+    public long toMillis() {
+        return duration.toMillis();
+    }
+}
@@ -0,0 +1,20 @@
+package neko.crypto.scrapper.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import lombok.Data;
+
+// Настройки чата, которые живут вместе с его watchlist
+@Entity
+@Data
+public class ChatSettings {
+
+    @Id
+    private Long chatId;
+
+    // Период уведомлений о ценах в секундах, 0 - значение бота по умолчанию
+    private int notificationInterval;
+
+    // Порог изменения цены в процентах для режима delta, 0 - значение бота по умолчанию
+    private double notificationThreshold;
+}
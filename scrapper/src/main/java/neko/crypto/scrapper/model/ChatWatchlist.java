@@ -0,0 +1,7 @@
+package neko.crypto.scrapper.model;
+
+import java.util.List;
+
+// interval - период уведомлений в секундах, threshold - порог изменения цены в процентах; 0 - значения бота по умолчанию
+public record ChatWatchlist(long chatId, List<String> tickers, int interval, double threshold) {
+}
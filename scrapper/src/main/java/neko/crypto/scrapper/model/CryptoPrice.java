@@ -1,9 +1,7 @@
 package neko.crypto.scrapper.model;
 
-import lombok.Data;
-
-@Data
-public class CryptoPrice {
-    private String ticker;
-    private Double price;
-}
\ No newline at end of file
+public record CryptoPrice(String ticker, double price, long updatedAt) {
+    public boolean hasPrice() {
+        return !Double.isNaN(price);
+    }
+}
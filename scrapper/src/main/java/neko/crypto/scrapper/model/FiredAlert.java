@@ -0,0 +1,5 @@
+package neko.crypto.scrapper.model;
+
+public record FiredAlert(long id, long chatId, String ticker, AlertDirection direction, double threshold,
+                         double price, long firedAt) {
+}
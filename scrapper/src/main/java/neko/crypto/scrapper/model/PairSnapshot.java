@@ -0,0 +1,53 @@
+package neko.crypto.scrapper.model;
+
+import lombok.Getter;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+// Неизменяемый снимок торговых пар: собирается целиком и публикуется одной записью ссылки
+@Getter
+public final class PairSnapshot {
+    public static final PairSnapshot EMPTY = new PairSnapshot(new String[0], 0);
+
+    private final Set<String> pairs;
+    private final List<String> sorted;
+    private final long version;
+    private final String etag;
+
+    private PairSnapshot(String[] sortedPairs, long version) {
+        this.pairs = Set.of(sortedPairs);
+        this.sorted = List.of(sortedPairs);
+        this.version = version;
+        this.etag = "\"" + Integer.toHexString(Arrays.hashCode(sortedPairs)) + "-" + sortedPairs.length + "\"";
+    }
+
+    public static PairSnapshot of(Collection<String> pairs, long version) {
+        String[] sortedPairs = pairs.stream().distinct().sorted().toArray(String[]::new);
+        return new PairSnapshot(sortedPairs, version);
+    }
+
+    public boolean contains(String pair) {
+        return pairs.contains(pair);
+    }
+
+    // Тикер от пользователя: btc, BTC и btcusdt означают одну пару
+    public boolean containsTicker(String ticker) {
+        return pairs.contains(Tickers.toUsdtSymbol(ticker));
+    }
+
+    // subList у неизменяемого списка - представление, без копирования
+    public List<String> page(int page, int size) {
+        if (page < 0 || size <= 0 || (long) page * size >= sorted.size()) {
+            return List.of();
+        }
+        int start = page * size;
+        return sorted.subList(start, Math.min(start + size, sorted.size()));
+    }
+
+    public int size() {
+        return sorted.size();
+    }
+}
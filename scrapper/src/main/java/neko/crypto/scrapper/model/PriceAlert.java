@@ -0,0 +1,30 @@
+package neko.crypto.scrapper.model;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.EnumType;
+import jakarta.persistence.Enumerated;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import lombok.Data;
+
+@Entity
+@Data
+@Table(indexes = @Index(columnList = "chatId"))
+public class PriceAlert {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long chatId;
+
+    private String ticker;
+
+    @Enumerated(EnumType.STRING)
+    private AlertDirection direction;
+
+    private double threshold;
+}
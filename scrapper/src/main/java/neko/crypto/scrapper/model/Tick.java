@@ -0,0 +1,4 @@
+package neko.crypto.scrapper.model;
+
+public record Tick(long timestamp, double price) {
+}
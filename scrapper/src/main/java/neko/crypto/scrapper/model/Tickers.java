@@ -0,0 +1,17 @@
+package neko.crypto.scrapper.model;
+
+import java.util.Locale;
+
+// Тикер от пользователя: btc, BTC, " btc " и btcusdt означают одну пару BTCUSDT.
+// PriceTable.indexOf повторяет это правило без аллокаций и должен оставаться с ним согласован
+public final class Tickers {
+    public static final String USDT = "USDT";
+
+    private Tickers() {
+    }
+
+    public static String toUsdtSymbol(String ticker) {
+        String upperTicker = ticker.trim().toUpperCase(Locale.ROOT);
+        return upperTicker.contains(USDT) ? upperTicker : upperTicker + USDT;
+    }
+}
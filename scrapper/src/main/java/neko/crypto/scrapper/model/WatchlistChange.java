@@ -0,0 +1,9 @@
+package neko.crypto.scrapper.model;
+
+public enum WatchlistChange {
+    ADDED,
+    EXISTS,
+    REMOVED,
+    NOT_FOUND,
+    INVALID
+}
@@ -0,0 +1,7 @@
+package neko.crypto.scrapper.repository;
+
+import neko.crypto.scrapper.model.ChatSettings;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ChatSettingsRepository extends JpaRepository<ChatSettings, Long> {
+}
@@ -0,0 +1,13 @@
+package neko.crypto.scrapper.repository;
+
+import neko.crypto.scrapper.model.PriceAlert;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface PriceAlertRepository extends JpaRepository<PriceAlert, Long> {
+    List<PriceAlert> findByChatIdOrderById(Long chatId);
+    Optional<PriceAlert> findByIdAndChatId(Long id, Long chatId);
+    long countByChatId(Long chatId);
+}
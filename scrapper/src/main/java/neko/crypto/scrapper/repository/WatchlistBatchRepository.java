@@ -0,0 +1,41 @@
+package neko.crypto.scrapper.repository;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+// Пакетные изменения вотчлиста на JDBC: JPA отправил бы по запросу на строку
+@Repository
+@RequiredArgsConstructor
+public class WatchlistBatchRepository {
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+    private final MeterRegistry meterRegistry;
+
+    // Результат на строку: 1 - вставлена, 0 - уже была
+    public int[] insertIfAbsent(long chatId, List<String> tickers) {
+        return timer("insert").record(() -> jdbcTemplate.batchUpdate("INSERT INTO watchlist (chat_id, ticker) VALUES (?, ?) ON CONFLICT DO NOTHING",
+                tickers, tickers.size(), (statement, ticker) -> {
+                    statement.setLong(1, chatId);
+                    statement.setString(2, ticker);
+                })[0]);
+    }
+
+    public List<String> delete(long chatId, Collection<String> tickers) {
+        return timer("delete").record(() -> namedJdbcTemplate.queryForList("DELETE FROM watchlist WHERE chat_id = :chatId AND ticker IN (:tickers) RETURNING ticker",
+                Map.of("chatId", chatId, "tickers", tickers), String.class));
+    }
+
+    private Timer timer(String operation) {
+        return Timer.builder("watchlist.batch.queries")
+                .tag("operation", operation)
+                .register(meterRegistry);
+    }
+}
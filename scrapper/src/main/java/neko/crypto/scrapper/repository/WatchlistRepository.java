@@ -1,16 +1,36 @@
 package neko.crypto.scrapper.repository;
 
+import jakarta.persistence.QueryHint;
 import neko.crypto.scrapper.model.Watchlist;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.Set;
+import java.util.stream.Stream;
 
 public interface WatchlistRepository extends JpaRepository<Watchlist, Watchlist.WatchlistId> {
     Set<Watchlist> findByChatId(Long chatId);
-    boolean existsByChatIdAndTicker(Long chatId, String ticker);
-    void deleteByChatIdAndTicker(Long chatId, String ticker);
+
+    @Modifying
+    @Query(value = "INSERT INTO watchlist (chat_id, ticker) VALUES (:chatId, :ticker) ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertIfAbsent(@Param("chatId") long chatId, @Param("ticker") String ticker);
+
+    @Modifying
+    @Query("DELETE FROM Watchlist w WHERE w.chatId = :chatId AND w.ticker = :ticker")
+    int deleteByChatIdAndTicker(@Param("chatId") long chatId, @Param("ticker") String ticker);
 
     @Query("SELECT DISTINCT w.chatId FROM Watchlist w")
     Set<Long> findDistinctChatIds();
+
+    // Курсор с fetch size, чтобы не загружать всю таблицу в память
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT w FROM Watchlist w ORDER BY w.chatId, w.ticker")
+    Stream<Watchlist> streamAllOrderedByChatId();
 }
\ No newline at end of file
@@ -0,0 +1,166 @@
+package neko.crypto.scrapper.service;
+
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.model.AlertDirection;
+import neko.crypto.scrapper.model.FiredAlert;
+import neko.crypto.scrapper.model.PriceAlert;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Пороговые уведомления по каждому тикеру лежат в отсортированных деревьях.
+// Инвариант: все ABOVE выше последней цены, все BELOW ниже неё, поэтому на тике
+// срабатывают ровно те, что попали между старой и новой ценой: O(log n + k).
+// Выданное боту сработавшее уведомление ждёт подтверждения; без него оно выдаётся повторно
+@Component
+@Slf4j
+public class AlertEngine implements PriceListener {
+    private final PriceTable priceTable;
+    private final AtomicReferenceArray<TickerAlerts> alerts;
+    // Без ограничения ёмкости: каждое уведомление срабатывает один раз и уходит из деревьев,
+    // поэтому очередь не длиннее числа сохранённых уведомлений (alerts.max-per-chat на чат)
+    private final Queue<FiredAlert> fired = new ConcurrentLinkedQueue<>();
+    private final Map<Long, Lease> unacked = new ConcurrentHashMap<>();
+    private final long redeliverAfterMillis;
+
+    public AlertEngine(PriceTable priceTable, @Value("${alerts.redeliver-after:30s}") Duration redeliverAfter) {
+        this.priceTable = priceTable;
+        this.alerts = new AtomicReferenceArray<>(priceTable.capacity());
+        this.redeliverAfterMillis = redeliverAfter.toMillis();
+        priceTable.addListener(this);
+    }
+
+    public void add(int index, PriceAlert alert) {
+        TickerAlerts tickerAlerts = alerts.get(index);
+        if (tickerAlerts == null) {
+            // Тики до первого уведомления по тикеру сюда не доходили: отсчёт идёт от последней цены в таблице
+            alerts.compareAndSet(index, null, new TickerAlerts(priceTable.freshPrice(index, Long.MAX_VALUE)));
+            tickerAlerts = alerts.get(index);
+        }
+        tickerAlerts.add(alert);
+    }
+
+    public boolean remove(int index, PriceAlert alert) {
+        unacked.remove(alert.getId());
+        TickerAlerts tickerAlerts = alerts.get(index);
+        return tickerAlerts != null && tickerAlerts.remove(alert);
+    }
+
+    @Override
+    public void onPrice(int index, double price, long timestamp) {
+        TickerAlerts tickerAlerts = alerts.get(index);
+        if (tickerAlerts != null) {
+            tickerAlerts.onPrice(price, timestamp);
+        }
+    }
+
+    // Сначала повторно выдаются уведомления, подтверждение которых не пришло вовремя, затем новые
+    public synchronized int drainFired(Collection<FiredAlert> target, int maxAlerts) {
+        long now = System.currentTimeMillis();
+        int drained = 0;
+        for (Iterator<Lease> leases = unacked.values().iterator(); leases.hasNext() && drained < maxAlerts; ) {
+            Lease lease = leases.next();
+            if (lease.redeliverAt() <= now) {
+                log.info("Alert {} for chatId {} was not acknowledged, delivering it again", lease.alert().id(), lease.alert().chatId());
+                unacked.put(lease.alert().id(), new Lease(lease.alert(), now + redeliverAfterMillis));
+                target.add(lease.alert());
+                drained++;
+            }
+        }
+        FiredAlert alert;
+        while (drained < maxAlerts && (alert = fired.poll()) != null) {
+            unacked.put(alert.id(), new Lease(alert, now + redeliverAfterMillis));
+            target.add(alert);
+            drained++;
+        }
+        return drained;
+    }
+
+    // Возвращает число уведомлений, которые действительно ждали подтверждения
+    public int ack(Collection<Long> ids) {
+        int acked = 0;
+        for (Long id : ids) {
+            if (unacked.remove(id) != null) {
+                acked++;
+            }
+        }
+        return acked;
+    }
+
+    private void fire(PriceAlert alert, double price, long timestamp) {
+        fired.add(new FiredAlert(alert.getId(), alert.getChatId(), alert.getTicker(),
+                alert.getDirection(), alert.getThreshold(), price, timestamp));
+    }
+
+    private record Lease(FiredAlert alert, long redeliverAt) {
+    }
+
+    private final class TickerAlerts {
+        private final TreeMap<Double, List<PriceAlert>> above = new TreeMap<>();
+        private final TreeMap<Double, List<PriceAlert>> below = new TreeMap<>();
+        private double lastPrice;
+
+        TickerAlerts(double lastPrice) {
+            this.lastPrice = lastPrice;
+        }
+
+        synchronized void add(PriceAlert alert) {
+            if (!Double.isNaN(lastPrice) && alert.getDirection().isSatisfiedBy(lastPrice, alert.getThreshold())) {
+                fire(alert, lastPrice, System.currentTimeMillis());
+                return;
+            }
+            side(alert.getDirection()).computeIfAbsent(alert.getThreshold(), key -> new ArrayList<>(1)).add(alert);
+        }
+
+        synchronized boolean remove(PriceAlert alert) {
+            TreeMap<Double, List<PriceAlert>> side = side(alert.getDirection());
+            List<PriceAlert> sameThreshold = side.get(alert.getThreshold());
+            if (sameThreshold == null || !sameThreshold.removeIf(existing -> existing.getId().equals(alert.getId()))) {
+                return false;
+            }
+            if (sameThreshold.isEmpty()) {
+                side.remove(alert.getThreshold());
+            }
+            return true;
+        }
+
+        synchronized void onPrice(double price, long timestamp) {
+            double previous = lastPrice;
+            lastPrice = price;
+            if (Double.isNaN(previous) || price > previous) {
+                fireCrossed(above.headMap(price, true), price, timestamp);
+            }
+            if (Double.isNaN(previous) || price < previous) {
+                fireCrossed(below.tailMap(price, true), price, timestamp);
+            }
+        }
+
+        private void fireCrossed(NavigableMap<Double, List<PriceAlert>> crossed, double price, long timestamp) {
+            if (crossed.isEmpty()) {
+                return;
+            }
+            for (List<PriceAlert> sameThreshold : crossed.values()) {
+                for (PriceAlert alert : sameThreshold) {
+                    fire(alert, price, timestamp);
+                }
+            }
+            crossed.clear();
+        }
+
+        private TreeMap<Double, List<PriceAlert>> side(AlertDirection direction) {
+            return direction == AlertDirection.ABOVE ? above : below;
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package neko.crypto.scrapper.service;
+
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.model.AlertDirection;
+import neko.crypto.scrapper.model.FiredAlert;
+import neko.crypto.scrapper.model.PriceAlert;
+import neko.crypto.scrapper.repository.PriceAlertRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+@Service
+@Slf4j
+public class AlertService {
+    private final PriceAlertRepository alertRepository;
+    private final AlertEngine alertEngine;
+    private final PriceTable priceTable;
+    private final int maxAlertsPerChat;
+
+    public AlertService(PriceAlertRepository alertRepository, AlertEngine alertEngine, PriceTable priceTable,
+                        @Value("${alerts.max-per-chat:50}") int maxAlertsPerChat) {
+        this.alertRepository = alertRepository;
+        this.alertEngine = alertEngine;
+        this.priceTable = priceTable;
+        this.maxAlertsPerChat = maxAlertsPerChat;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void loadAlerts() {
+        log.info("Loading price alerts into alert engine");
+        int loaded = 0;
+        for (PriceAlert alert : alertRepository.findAll()) {
+            // Тикер мог быть сохранён до загрузки пар с Binance, поэтому регистрируем его явно
+            int index = priceTable.register(alert.getTicker());
+            if (index >= 0) {
+                alertEngine.add(index, alert);
+                loaded++;
+            }
+        }
+        log.info("Loaded {} price alerts", loaded);
+    }
+
+    public PriceAlert addAlert(Long chatId, String ticker, AlertDirection direction, double threshold) {
+        log.debug("Adding alert for chatId {}: {} {} {}", chatId, ticker, direction, threshold);
+        int index = priceTable.indexOf(ticker);
+        if (index < 0 || !priceTable.isListed(index)) {
+            log.warn("Invalid ticker {} for alert", ticker);
+            throw new IllegalArgumentException("Invalid ticker: " + ticker);
+        }
+        if (!(threshold > 0) || Double.isInfinite(threshold)) {
+            throw new IllegalArgumentException("Invalid threshold: " + threshold);
+        }
+        if (alertRepository.countByChatId(chatId) >= maxAlertsPerChat) {
+            throw new IllegalArgumentException("Too many alerts, the limit is " + maxAlertsPerChat);
+        }
+
+        PriceAlert alert = new PriceAlert();
+        alert.setChatId(chatId);
+        alert.setTicker(priceTable.symbol(index));
+        alert.setDirection(direction);
+        alert.setThreshold(threshold);
+        PriceAlert saved = alertRepository.save(alert);
+        alertEngine.add(index, saved);
+        log.info("Alert {} added for chatId {}: {} {} {}", saved.getId(), chatId, saved.getTicker(), direction, threshold);
+        return saved;
+    }
+
+    public List<PriceAlert> getAlerts(Long chatId) {
+        return alertRepository.findByChatIdOrderById(chatId);
+    }
+
+    public boolean removeAlert(Long chatId, Long alertId) {
+        Optional<PriceAlert> alert = alertRepository.findByIdAndChatId(alertId, chatId);
+        if (alert.isEmpty()) {
+            log.info("Alert {} not found for chatId {}", alertId, chatId);
+            return false;
+        }
+        alertEngine.remove(priceTable.indexOf(alert.get().getTicker()), alert.get());
+        alertRepository.delete(alert.get());
+        log.info("Alert {} removed for chatId {}", alertId, chatId);
+        return true;
+    }
+
+    // Выданные уведомления остаются в базе до подтверждения ботом: потерянный ответ или сбой бота
+    // приводят к повторной выдаче, а не к потере
+    public List<FiredAlert> drainFiredAlerts(int maxAlerts) {
+        List<FiredAlert> drained = new ArrayList<>();
+        alertEngine.drainFired(drained, maxAlerts);
+        if (!drained.isEmpty()) {
+            log.debug("Handed {} fired alerts to the bot", drained.size());
+        }
+        return drained;
+    }
+
+    // Бот подтверждает уведомления, принятые им на доставку; удаляются только они
+    public void ackFiredAlerts(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        alertRepository.deleteAllByIdInBatch(ids);
+        int acked = alertEngine.ack(ids);
+        log.info("Delivered {} fired alerts", acked);
+    }
+}
@@ -1,78 +1,228 @@
 package neko.crypto.scrapper.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import lombok.RequiredArgsConstructor;
+import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import lombok.extern.slf4j.Slf4j;
-import okhttp3.OkHttpClient;
-import okhttp3.Request;
-import okhttp3.Response;
-import org.springframework.cache.annotation.Cacheable;
+import neko.crypto.scrapper.client.api.BinanceStreamClient;
+import neko.crypto.scrapper.model.CryptoPrice;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.IntPredicate;
+import java.util.function.ObjDoubleConsumer;
 
 @Service
-@RequiredArgsConstructor
 @Slf4j
 public class CryptoService {
-    private final OkHttpClient client;
-    private final ObjectMapper objectMapper;
-    private final WatchlistService watchlistService;
+    private final PriceSourceRouter priceSources;
+    private final PriceTable priceTable;
+    private final BinanceStreamClient streamClient;
+    private final long staleAfterMillis;
+    private final AsyncLoadingCache<String, CryptoPrice> priceCache;
+    private final Counter tableLookups;
+    private final Counter cacheLookups;
 
-    @Cacheable(value = "cryptoPrices", key = "#ticker")
-    public String getPrice(String ticker) {
-        String upperTicker = ticker.toUpperCase();
-        String usdtTicker;
-        //String usdtTicker = upperTicker + "USDT";
+    public CryptoService(PriceSourceRouter priceSources, PriceTable priceTable,
+                         BinanceStreamClient streamClient, MeterRegistry meterRegistry,
+                         @Value("${binance.stream.stale-after:10s}") Duration staleAfter,
+                         @Value("${prices.cache.expire-after:30s}") Duration expireAfter,
+                         @Value("${prices.cache.refresh-after:20s}") Duration refreshAfter,
+                         @Value("${prices.cache.invalid-expire-after:5s}") Duration invalidExpireAfter) {
+        this.priceSources = priceSources;
+        this.priceTable = priceTable;
+        this.streamClient = streamClient;
+        this.staleAfterMillis = staleAfter.toMillis();
+        // Ключ - нормализованный символ из таблицы цен, поэтому btc, BTC и btcusdt попадают в одну запись
+        this.priceCache = Caffeine.newBuilder()
+                .maximumSize(priceTable.capacity())
+                .expireAfter(new PriceExpiry(expireAfter.toNanos(), invalidExpireAfter.toNanos()))
+                .refreshAfterWrite(refreshAfter)
+                .executor(Executors.newVirtualThreadPerTaskExecutor())
+                .recordStats()
+                .buildAsync(new PriceLoader());
+        CaffeineCacheMetrics.monitor(meterRegistry, priceCache.synchronous(), "cryptoPrices");
+        // Откуда взята цена: свежая из таблицы или через кеш с REST загрузкой
+        this.tableLookups = Counter.builder("prices.lookups").tag("source", "table").register(meterRegistry);
+        this.cacheLookups = Counter.builder("prices.lookups").tag("source", "cache").register(meterRegistry);
+    }
 
-        if (upperTicker.contains("USDT")) usdtTicker = upperTicker;
-        else usdtTicker = upperTicker + "USDT";
+    // Только цена: свежая читается из таблицы без создания CryptoPrice
+    public double getPrice(String ticker) {
+        int index = listedIndex(ticker);
+        double price = priceTable.freshPrice(index, staleAfterMillis);
+        if (!Double.isNaN(price)) {
+            tableLookups.increment();
+            return price;
+        }
+        return loadQuote(ticker, index).price();
+    }
 
-        log.info("Fetching price for ticker: {}, cache key: {}", ticker, upperTicker);
+    public CryptoPrice getQuote(String ticker) {
+        int index = listedIndex(ticker);
+        CryptoPrice quote = priceTable.freshQuote(index, staleAfterMillis);
+        if (quote != null) {
+            tableLookups.increment();
+            return quote;
+        }
+        return loadQuote(ticker, index);
+    }
 
-        // Проверяем валидность тикера через validUsdtPairs
-        if (!watchlistService.isValidUsdtPair(usdtTicker)) {
-            log.warn("Invalid ticker: {} not found in USDT trading pairs", usdtTicker);
+    // Индекс есть у всех когда-либо загруженных USDT пар, валидны только торгуемые сейчас
+    private int listedIndex(String ticker) {
+        log.debug("Fetching price for ticker: {}", ticker);
+        int index = priceTable.indexOf(ticker);
+        if (index < 0 || !priceTable.isListed(index)) {
+            log.warn("Invalid ticker: {} not found in USDT trading pairs", ticker);
             throw new RuntimeException("Invalid ticker: " + ticker);
         }
+        return index;
+    }
 
-        // Запрашиваем цену для usdtTicker
-        log.info("Attempting to fetch price for ticker: {}", usdtTicker);
-        String price = fetchPrice(usdtTicker);
-        if (price != null) {
-            log.info("Successfully fetched price for ticker {}: ${}", usdtTicker, price);
-            return price;
+    private CryptoPrice loadQuote(String ticker, int index) {
+        cacheLookups.increment();
+        // Ни стрим, ни массовое обновление не дали свежей цены: одновременные запросы ждут одну загрузку
+        CryptoPrice quote = priceCache.get(priceTable.symbol(index)).join();
+        if (!quote.hasPrice()) {
+            log.warn("Failed to fetch price for ticker: {}", ticker);
+            throw new RuntimeException("Failed to fetch price for " + ticker + ": Ticker not found");
         }
+        return quote;
+    }
 
-        log.warn("Failed to fetch price for ticker: {}", usdtTicker);
-        throw new RuntimeException("Failed to fetch price for " + ticker + ": Ticker not found");
+    // Цены пачки по символам без CryptoPrice на каждую свежую цену; возвращает число найденных
+    public int getPrices(Collection<String> tickers, ObjDoubleConsumer<String> consumer) {
+        return resolve(tickers, index -> {
+            double price = priceTable.freshPrice(index, staleAfterMillis);
+            if (Double.isNaN(price)) {
+                return false;
+            }
+            consumer.accept(priceTable.symbol(index), price);
+            return true;
+        }, loaded -> consumer.accept(loaded.ticker(), loaded.price()));
     }
 
-    private String fetchPrice(String ticker) {
-        String url = "https://api.binance.com/api/v3/ticker/price?symbol=" + ticker;
-        log.info("Sending request to Binance API: {}", url);
-        Request request = new Request.Builder().url(url).build();
-        try {
-            Response response = client.newCall(request).execute();
-            if (!response.isSuccessful()) {
-                String errorBody = response.body() != null ? response.body().string() : "No response body";
-                log.error("Binance API returned error for ticker {}: {} - {}, body: {}", ticker, response.code(), response.message(), errorBody);
-                return null; // Возвращаем null, чтобы попробовать другой тикер
+    public List<CryptoPrice> getQuotes(Collection<String> tickers) {
+        List<CryptoPrice> quotes = new ArrayList<>(tickers.size());
+        resolve(tickers, index -> {
+            CryptoPrice quote = priceTable.freshQuote(index, staleAfterMillis);
+            return quote != null && quotes.add(quote);
+        }, quotes::add);
+        return quotes;
+    }
+
+    // fresh забирает свежую цену из таблицы по индексу и возвращает false, если её нет;
+    // такие символы загружаются через кеш одной пачкой и отдаются в loaded
+    private int resolve(Collection<String> tickers, IntPredicate fresh, Consumer<CryptoPrice> loaded) {
+        log.info("Fetching prices for {} tickers", tickers.size());
+        int resolved = 0;
+        List<String> missing = new ArrayList<>();
+        for (String ticker : tickers) {
+            int index = priceTable.indexOf(ticker);
+            if (index < 0 || !priceTable.isListed(index)) {
+                log.warn("Invalid ticker in batch request: {} not found in USDT trading pairs", ticker);
+                continue;
+            }
+            if (fresh.test(index)) {
+                resolved++;
+            } else {
+                missing.add(priceTable.symbol(index));
             }
-            String body = response.body().string();
-            log.info("Binance API response for {}: {}", ticker, body);
-            JsonNode json = objectMapper.readTree(body);
-            if (json.has("price")) {
-                double price = json.get("price").asDouble();
-                log.info("Parsed price for {}: ${}", ticker, price);
-                return String.valueOf(price);
+        }
+
+        tableLookups.increment(resolved);
+        cacheLookups.increment(missing.size());
+        if (!missing.isEmpty()) {
+            for (CryptoPrice quote : priceCache.getAll(missing).join().values()) {
+                if (quote.hasPrice()) {
+                    loaded.accept(quote);
+                    resolved++;
+                }
             }
-            log.warn("Price not found in Binance response for ticker: {}", ticker);
-            return null;
-        } catch (IOException e) {
-            log.error("Failed to fetch price for {}: {}", ticker, e.getMessage(), e);
-            return null;
         }
+        log.info("Resolved {} of {} requested prices, {} taken from the price cache", resolved, tickers.size(), missing.size());
+        return resolved;
+    }
+
+    public CacheStats getCacheStats() {
+        return priceCache.synchronous().stats();
+    }
+
+    // Пока стрим жив, массовое обновление не нужно
+    @Scheduled(fixedDelayString = "${prices.refresh-interval:10000}")
+    public void refreshAllPrices() {
+        if (!streamClient.isStale()) {
+            return;
+        }
+        log.info("Binance price stream is stale, refreshing all prices over REST");
+        // Явный список торгуемых пар, а не весь рынок: пары, которых нет у ответившей биржи, дозапрашиваются у другой
+        int updated = fetchPrices(priceTable.listedSymbols());
+        log.info("Refreshed {} prices over REST", updated);
+    }
+
+    // Загрузчик кэша: запрашивает источники цен и возвращает то, что попало в таблицу цен.
+    // Отсутствующая цена тоже кэшируется, но на короткое время
+    private final class PriceLoader implements CacheLoader<String, CryptoPrice> {
+        @Override
+        public CryptoPrice load(String symbol) {
+            log.info("Price table is stale for {}, fetching price over REST", symbol);
+            fetchPrices(List.of(symbol));
+            return readLoaded(symbol);
+        }
+
+        @Override
+        public Map<String, CryptoPrice> loadAll(Set<? extends String> symbols) {
+            log.info("Price table is stale for {} symbols, fetching prices over REST", symbols.size());
+            fetchPrices(List.copyOf(symbols));
+            Map<String, CryptoPrice> loaded = new HashMap<>();
+            for (String symbol : symbols) {
+                loaded.put(symbol, readLoaded(symbol));
+            }
+            return loaded;
+        }
+
+        private CryptoPrice readLoaded(String symbol) {
+            int index = priceTable.indexOf(symbol);
+            double price = index >= 0 ? priceTable.freshPrice(index, staleAfterMillis) : Double.NaN;
+            return new CryptoPrice(symbol, price, System.currentTimeMillis());
+        }
+    }
+
+    private record PriceExpiry(long expireAfterNanos, long invalidExpireAfterNanos) implements Expiry<String, CryptoPrice> {
+        @Override
+        public long expireAfterCreate(String symbol, CryptoPrice price, long currentTime) {
+            return price.hasPrice() ? expireAfterNanos : invalidExpireAfterNanos;
+        }
+
+        @Override
+        public long expireAfterUpdate(String symbol, CryptoPrice price, long currentTime, long currentDuration) {
+            return expireAfterCreate(symbol, price, currentTime);
+        }
+
+        @Override
+        public long expireAfterRead(String symbol, CryptoPrice price, long currentTime, long currentDuration) {
+            return currentDuration;
+        }
+    }
+
+    // Цены первого удачно ответившего источника сразу пишутся в таблицу цен
+    private int fetchPrices(List<String> symbols) {
+        long now = System.currentTimeMillis();
+        return priceSources.fetchPrices(symbols, (symbol, price) -> priceTable.update(symbol, price, now));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,137 @@
+package neko.crypto.scrapper.service;
+
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.model.Candle;
+import neko.crypto.scrapper.model.CandleResolution;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// История цен отслеживаемых пар: кольцевой буфер OHLC корзин фиксированной длины на каждый тикер.
+// Память на тикер постоянна: capacity * 20 байт (int номер корзины + четыре float), тики не создают объектов.
+// История пишется только для тикеров из вотчлистов, поэтому общий объём зависит от отслеживаемого набора, а не от запросов
+@Component
+@Slf4j
+public class PriceHistory implements PriceListener {
+    private final PriceTable priceTable;
+    private final WatchlistIndex watchlistIndex;
+    private final AtomicReferenceArray<TickRing> rings;
+    private final long bucketMillis;
+    private final int capacity;
+
+    public PriceHistory(PriceTable priceTable, WatchlistIndex watchlistIndex,
+                        @Value("${history.bucket:15s}") Duration bucket,
+                        @Value("${history.capacity:5760}") int capacity) {
+        this.priceTable = priceTable;
+        this.watchlistIndex = watchlistIndex;
+        this.rings = new AtomicReferenceArray<>(priceTable.capacity());
+        this.bucketMillis = bucket.toMillis();
+        this.capacity = capacity;
+        priceTable.addListener(this);
+    }
+
+    // Символ регистрируется заранее: список пар с биржи может прийти позже загрузки вотчлистов
+    public synchronized void track(String symbol) {
+        int index = priceTable.register(symbol);
+        if (index >= 0 && rings.get(index) == null) {
+            rings.set(index, new TickRing());
+            log.info("Started recording price history for {}", symbol);
+        }
+    }
+
+    // Вызывается после удаления тикера из вотчлиста. Проверка идёт под той же блокировкой, что и track,
+    // а индекс обновляется до track, поэтому одновременное добавление тикера не останется без истории
+    public synchronized void release(String symbol) {
+        int index = priceTable.indexOf(symbol);
+        if (index >= 0 && rings.get(index) != null && !watchlistIndex.isWatched(symbol)) {
+            rings.set(index, null);
+            log.info("Stopped recording price history for {}", symbol);
+        }
+    }
+
+    @Override
+    public void onPrice(int index, double price, long timestamp) {
+        TickRing ring = rings.get(index);
+        if (ring != null) {
+            ring.add(timestamp, (float) price);
+        }
+    }
+
+    public List<Candle> getCandles(String ticker, CandleResolution resolution, int limit) {
+        int index = priceTable.indexOf(ticker);
+        if (index < 0 || !priceTable.isListed(index)) {
+            throw new IllegalArgumentException("Invalid ticker: " + ticker);
+        }
+        if (resolution.toMillis() % bucketMillis != 0) {
+            throw new IllegalArgumentException("Resolution " + resolution + " is not a multiple of history bucket");
+        }
+        TickRing ring = rings.get(index);
+        if (ring == null) {
+            throw new IllegalArgumentException("History is recorded only for tickers on a watchlist");
+        }
+        return ring.candles((int) (resolution.toMillis() / bucketMillis), limit, System.currentTimeMillis());
+    }
+
+    // float хранит цену с точностью ~7 знаков; без этого 0.1f превратилось бы в 0.10000000149
+    private static double widen(double floatValue) {
+        return Double.parseDouble(Float.toString((float) floatValue));
+    }
+
+    private final class TickRing {
+        private final int[] buckets = new int[capacity];
+        private final float[] open = new float[capacity];
+        private final float[] high = new float[capacity];
+        private final float[] low = new float[capacity];
+        private final float[] close = new float[capacity];
+
+        synchronized void add(long timestamp, float price) {
+            int bucket = (int) (timestamp / bucketMillis);
+            int slot = Math.floorMod(bucket, capacity);
+            if (buckets[slot] == bucket) {
+                high[slot] = Math.max(high[slot], price);
+                low[slot] = Math.min(low[slot], price);
+                close[slot] = price;
+            } else if (buckets[slot] < bucket) {
+                buckets[slot] = bucket;
+                open[slot] = price;
+                high[slot] = price;
+                low[slot] = price;
+                close[slot] = price;
+            }
+        }
+
+        // Свечи собираются из корзин при чтении; пустые интервалы пропускаются
+        synchronized List<Candle> candles(int bucketsPerCandle, int limit, long now) {
+            int maxCandles = Math.min(limit, capacity / bucketsPerCandle);
+            long lastCandle = now / bucketMillis / bucketsPerCandle;
+            List<Candle> candles = new ArrayList<>(maxCandles);
+            for (long candle = lastCandle - maxCandles + 1; candle <= lastCandle; candle++) {
+                double candleOpen = Double.NaN;
+                double candleHigh = Double.NEGATIVE_INFINITY;
+                double candleLow = Double.POSITIVE_INFINITY;
+                double candleClose = Double.NaN;
+                for (long bucket = candle * bucketsPerCandle; bucket < (candle + 1) * bucketsPerCandle; bucket++) {
+                    int slot = (int) Math.floorMod(bucket, (long) capacity);
+                    if (buckets[slot] != bucket) {
+                        continue;
+                    }
+                    if (Double.isNaN(candleOpen)) {
+                        candleOpen = open[slot];
+                    }
+                    candleHigh = Math.max(candleHigh, high[slot]);
+                    candleLow = Math.min(candleLow, low[slot]);
+                    candleClose = close[slot];
+                }
+                if (!Double.isNaN(candleOpen)) {
+                    candles.add(new Candle(candle * bucketsPerCandle * bucketMillis,
+                            widen(candleOpen), widen(candleHigh), widen(candleLow), widen(candleClose)));
+                }
+            }
+            return candles;
+        }
+    }
+}
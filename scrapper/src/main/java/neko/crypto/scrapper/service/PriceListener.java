@@ -0,0 +1,6 @@
+package neko.crypto.scrapper.service;
+
+@FunctionalInterface
+public interface PriceListener {
+    void onPrice(int index, double price, long timestamp);
+}
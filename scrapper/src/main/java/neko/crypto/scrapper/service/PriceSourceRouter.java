@@ -0,0 +1,301 @@
+package neko.crypto.scrapper.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.client.api.PriceSource;
+import neko.crypto.scrapper.client.api.TickerPriceParser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Выбор REST источника цен. Источники ранжируются по p95 задержки и доле ошибок за последние запросы;
+// если первый не ответил за свой p95, параллельно уходит хедж-запрос к следующему, а при ошибке следующий
+// спрашивается сразу. В sink попадает первый удачный ответ, проигравший дорабатывает ради статистики.
+// Списки пар у бирж разные: символы, которых в ответе не оказалось, дозапрашиваются у следующих источников
+@Component
+@Slf4j
+public class PriceSourceRouter {
+    private final List<Source> sources = new ArrayList<>();
+    private final boolean hedgeEnabled;
+    private final long minHedgeDelayNanos;
+    private final long timeoutNanos;
+    private final long probeIntervalNanos;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    public PriceSourceRouter(List<PriceSource> available, MeterRegistry meterRegistry,
+                             @Value("${prices.sources:binance}") String[] names,
+                             @Value("${prices.sources.hedge.enabled:true}") boolean hedgeEnabled,
+                             @Value("${prices.sources.hedge.min-delay:50ms}") Duration minHedgeDelay,
+                             @Value("${prices.sources.hedge.initial-delay:300ms}") Duration initialHedgeDelay,
+                             @Value("${prices.sources.timeout:5s}") Duration timeout,
+                             @Value("${prices.sources.probe-interval:30s}") Duration probeInterval) {
+        // Порядок в prices.sources - начальный ранг, пока по источникам нет статистики
+        for (String name : names) {
+            PriceSource source = available.stream()
+                    .filter(candidate -> candidate.name().equals(name.trim()))
+                    .findFirst()
+                    .orElseThrow(() -> new IllegalArgumentException("Unknown price source in prices.sources: " + name));
+            sources.add(new Source(source, sources.size(), initialHedgeDelay.toNanos(), meterRegistry));
+        }
+        if (sources.isEmpty()) {
+            throw new IllegalArgumentException("prices.sources must name at least one price source");
+        }
+        this.hedgeEnabled = hedgeEnabled;
+        this.minHedgeDelayNanos = minHedgeDelay.toNanos();
+        this.timeoutNanos = timeout.toNanos();
+        this.probeIntervalNanos = probeInterval.toNanos();
+        log.info("Price sources in initial order: {}", Arrays.toString(names));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    // Возвращает число цен, принятых sink, 0 - ни один источник не ответил вовремя.
+    // Пустой symbols - весь рынок: покрытие тогда не проверяется, годится любой удачный ответ
+    public int fetchPrices(Collection<String> symbols, TickerPriceParser.PriceSink sink) {
+        List<Source> ranked = ranked();
+        probeIdle(ranked, symbols);
+        Set<String> missing = new HashSet<>(symbols);
+        BlockingQueue<Result> results = new LinkedBlockingQueue<>();
+        long startedAt = System.nanoTime();
+        long deadline = startedAt + timeoutNanos;
+        int next = 0;
+        int running = 0;
+        int accepted = 0;
+        boolean answered = false;
+        Source last = ranked.get(next++);
+        long lastLaunchedAt = launch(last, symbols, results);
+        running++;
+        try {
+            while (running > 0) {
+                long now = System.nanoTime();
+                boolean canHedge = hedgeEnabled && next < ranked.size();
+                long waitUntil = canHedge ? Math.min(deadline, lastLaunchedAt + hedgeDelay(last)) : deadline;
+                Result result = results.poll(Math.max(0, waitUntil - now), TimeUnit.NANOSECONDS);
+                if (result == null) {
+                    if (System.nanoTime() - deadline >= 0) {
+                        break;
+                    }
+                    if (canHedge) {
+                        // Последний запущенный источник не уложился в свой p95
+                        log.debug("Price source {} is slower than its p95 {} ms, hedging", last.name,
+                                TimeUnit.NANOSECONDS.toMillis(hedgeDelay(last)));
+                        last = ranked.get(next++);
+                        last.hedges.increment();
+                        lastLaunchedAt = launch(last, answered ? List.copyOf(missing) : symbols, results);
+                        running++;
+                    }
+                    continue;
+                }
+                running--;
+                if (result.error == null) {
+                    // После первого ответа от остальных берутся только недостающие символы
+                    accepted += result.buffer.drainTo(sink, missing, answered);
+                    if (!answered) {
+                        result.source.wins.increment();
+                        answered = true;
+                    }
+                    if (missing.isEmpty()) {
+                        return accepted;
+                    }
+                    result.source.partial.increment();
+                    log.debug("Price source {} returned no price for {} of {} requested symbols",
+                            result.source.name, missing.size(), symbols.size());
+                } else {
+                    log.warn("Price source {} failed: {}", result.source.name, result.error.getMessage());
+                }
+                if (next < ranked.size() && running == 0) {
+                    // Ошибка или неполный ответ: следующий источник без ожидания p95
+                    last = ranked.get(next++);
+                    lastLaunchedAt = launch(last, answered ? List.copyOf(missing) : symbols, results);
+                    running++;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (answered) {
+            log.warn("No price source returned {} of {} requested symbols, e.g. {}", missing.size(), symbols.size(),
+                    missing.iterator().next());
+            return accepted;
+        }
+        log.error("No price source answered for {} within {} ms", symbols.isEmpty() ? "the market" : symbols,
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt));
+        return 0;
+    }
+
+    private long launch(Source source, Collection<String> symbols, BlockingQueue<Result> results) {
+        long launchedAt = System.nanoTime();
+        executor.execute(() -> results.add(source.fetch(symbols)));
+        return launchedAt;
+    }
+
+    private long hedgeDelay(Source source) {
+        return Math.max(minHedgeDelayNanos, source.p95Nanos);
+    }
+
+    // Источник, который давно не спрашивали, получает фоновый запрос: иначе после восстановления
+    // он так и остался бы внизу рейтинга со старой статистикой
+    private void probeIdle(List<Source> ranked, Collection<String> symbols) {
+        long now = System.nanoTime();
+        for (int i = 1; i < ranked.size(); i++) {
+            Source source = ranked.get(i);
+            long lastUsed = source.lastUsedAt.get();
+            if (now - lastUsed >= probeIntervalNanos && source.lastUsedAt.compareAndSet(lastUsed, now)) {
+                log.debug("Probing idle price source {}", source.name);
+                executor.execute(() -> source.fetch(symbols));
+            }
+        }
+    }
+
+    private List<Source> ranked() {
+        List<Source> ranked = new ArrayList<>(sources);
+        ranked.sort(Comparator.comparingDouble(Source::score).thenComparingInt(source -> source.order));
+        return ranked;
+    }
+
+    private record Result(Source source, PriceBuffer buffer, IOException error) {
+    }
+
+    // Статистика источника: окно последних удачных задержек для p95 и экспоненциально сглаженная доля ошибок
+    private static final class Source {
+        private static final int WINDOW = 256;
+        private static final int RECOMPUTE_EVERY = 16;
+        private static final double ERROR_ALPHA = 0.05;
+
+        private final PriceSource source;
+        private final String name;
+        private final int order;
+        private final long[] latencies = new long[WINDOW];
+        private final Timer successTimer;
+        private final Timer errorTimer;
+        private final Counter hedges;
+        private final Counter wins;
+        private final Counter partial;
+        private int samples;
+        private volatile long p95Nanos;
+        private volatile double errorRate;
+        private final AtomicLong lastUsedAt = new AtomicLong(System.nanoTime());
+
+        private Source(PriceSource source, int order, long initialP95Nanos, MeterRegistry meterRegistry) {
+            this.source = source;
+            this.name = source.name();
+            this.order = order;
+            this.p95Nanos = initialP95Nanos;
+            this.successTimer = requestTimer(meterRegistry, "success");
+            this.errorTimer = requestTimer(meterRegistry, "error");
+            this.hedges = meterRegistry.counter("prices.source.hedges", "source", name);
+            this.wins = meterRegistry.counter("prices.source.wins", "source", name);
+            this.partial = meterRegistry.counter("prices.source.partial", "source", name);
+            Gauge.builder("prices.source.p95", this, stats -> stats.p95Nanos / 1e9)
+                    .description("Rolling p95 latency used as the hedge delay")
+                    .baseUnit("seconds")
+                    .tag("source", name)
+                    .register(meterRegistry);
+            Gauge.builder("prices.source.error.rate", this, stats -> stats.errorRate)
+                    .description("Smoothed share of failed requests")
+                    .tag("source", name)
+                    .register(meterRegistry);
+        }
+
+        private Timer requestTimer(MeterRegistry meterRegistry, String outcome) {
+            return Timer.builder("prices.source.requests")
+                    .description("Price source REST call latency")
+                    .tag("source", name)
+                    .tag("outcome", outcome)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry);
+        }
+
+        private Result fetch(Collection<String> symbols) {
+            lastUsedAt.set(System.nanoTime());
+            PriceBuffer buffer = new PriceBuffer();
+            long startedAt = System.nanoTime();
+            try {
+                source.fetchPrices(symbols, buffer);
+                long elapsed = System.nanoTime() - startedAt;
+                successTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                record(elapsed, false);
+                return new Result(this, buffer, null);
+            } catch (IOException | RuntimeException e) {
+                long elapsed = System.nanoTime() - startedAt;
+                errorTimer.record(elapsed, TimeUnit.NANOSECONDS);
+                record(elapsed, true);
+                return new Result(this, buffer, e instanceof IOException io ? io : new IOException(e.getMessage(), e));
+            }
+        }
+
+        private synchronized void record(long latencyNanos, boolean failed) {
+            errorRate += ERROR_ALPHA * ((failed ? 1 : 0) - errorRate);
+            if (failed) {
+                return;
+            }
+            latencies[samples % WINDOW] = latencyNanos;
+            samples++;
+            if (samples % RECOMPUTE_EVERY == 0 || samples < RECOMPUTE_EVERY) {
+                long[] window = Arrays.copyOf(latencies, Math.min(samples, WINDOW));
+                Arrays.sort(window);
+                p95Nanos = window[(int) Math.ceil(window.length * 0.95) - 1];
+            }
+        }
+
+        // Ожидаемое время до удачного ответа: p95, растянутый на долю ошибок
+        private double score() {
+            return p95Nanos / (1 - Math.min(errorRate, 0.95));
+        }
+    }
+
+    // Цены одного ответа до решения, чей ответ победил
+    private static final class PriceBuffer implements TickerPriceParser.PriceSink {
+        private String[] symbols = new String[64];
+        private double[] prices = new double[64];
+        private int size;
+
+        @Override
+        public boolean accept(String symbol, double price) {
+            if (size == symbols.length) {
+                symbols = Arrays.copyOf(symbols, size * 2);
+                prices = Arrays.copyOf(prices, size * 2);
+            }
+            symbols[size] = symbol;
+            prices[size] = price;
+            size++;
+            return true;
+        }
+
+        // Снимает отданные символы с missing; onlyMissing - остальные цены ответа пропускаются
+        private int drainTo(TickerPriceParser.PriceSink sink, Set<String> missing, boolean onlyMissing) {
+            int accepted = 0;
+            for (int i = 0; i < size; i++) {
+                if (!missing.remove(symbols[i]) && onlyMissing) {
+                    continue;
+                }
+                if (sink.accept(symbols[i], prices[i])) {
+                    accepted++;
+                }
+            }
+            return accepted;
+        }
+    }
+}
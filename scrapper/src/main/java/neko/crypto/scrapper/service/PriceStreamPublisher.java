@@ -0,0 +1,113 @@
+package neko.crypto.scrapper.service;
+
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.model.CryptoPrice;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Рассылка цен подписчикам по SSE: при подписке весь снимок (snapshot), дальше пачки изменений (delta).
+// Тик только помечает индекс в битовой маске, пачка собирается раз в flush-interval.
+@Component
+@Slf4j
+public class PriceStreamPublisher implements PriceListener {
+    private final PriceTable priceTable;
+    private final AtomicLongArray dirty;
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+    private final long heartbeatMillis;
+    private long lastSentAt = System.currentTimeMillis();
+
+    public PriceStreamPublisher(PriceTable priceTable,
+                                @Value("${prices.stream.heartbeat:10s}") Duration heartbeat) {
+        this.priceTable = priceTable;
+        this.dirty = new AtomicLongArray((priceTable.capacity() + 63) >>> 6);
+        this.heartbeatMillis = heartbeat.toMillis();
+        priceTable.addListener(this);
+    }
+
+    @Override
+    public void onPrice(int index, double price, long timestamp) {
+        long bit = 1L << index;
+        int word = index >>> 6;
+        long current = dirty.get(word);
+        if ((current & bit) == 0) {
+            dirty.getAndUpdate(word, value -> value | bit);
+        }
+    }
+
+    // Снимок и подписка под тем же монитором, что и рассылка: изменения после снимка придут следующей пачкой
+    public synchronized SseEmitter subscribe() {
+        SseEmitter emitter = new SseEmitter(0L);
+        List<CryptoPrice> snapshot = new ArrayList<>(priceTable.size());
+        for (int index = 0; index < priceTable.size(); index++) {
+            CryptoPrice quote = quote(index);
+            if (quote != null) {
+                snapshot.add(quote);
+            }
+        }
+        try {
+            emitter.send(SseEmitter.event().name("snapshot").data(snapshot, MediaType.APPLICATION_JSON));
+        } catch (IOException e) {
+            emitter.completeWithError(e);
+            return emitter;
+        }
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(error -> subscribers.remove(emitter));
+        subscribers.add(emitter);
+        log.info("Price stream subscriber added with snapshot of {} prices, {} subscribers", snapshot.size(), subscribers.size());
+        return emitter;
+    }
+
+    @Scheduled(fixedDelayString = "${prices.stream.flush-interval:500}")
+    public synchronized void flush() {
+        List<CryptoPrice> delta = new ArrayList<>();
+        for (int word = 0; word < dirty.length(); word++) {
+            long bits = dirty.getAndSet(word, 0);
+            while (bits != 0) {
+                int index = (word << 6) + Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                CryptoPrice quote = quote(index);
+                if (quote != null) {
+                    delta.add(quote);
+                }
+            }
+        }
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        SseEmitter.SseEventBuilder event;
+        if (!delta.isEmpty()) {
+            event = SseEmitter.event().name("delta").data(delta, MediaType.APPLICATION_JSON);
+        } else if (now - lastSentAt >= heartbeatMillis) {
+            // Подписчик по тишине отличает живой поток от зависшего соединения
+            event = SseEmitter.event().comment("ping");
+        } else {
+            return;
+        }
+        lastSentAt = now;
+        for (SseEmitter emitter : subscribers) {
+            try {
+                emitter.send(event);
+            } catch (IOException | IllegalStateException e) {
+                log.info("Dropping price stream subscriber: {}", e.getMessage());
+                subscribers.remove(emitter);
+                emitter.completeWithError(e);
+            }
+        }
+    }
+
+    private CryptoPrice quote(int index) {
+        return priceTable.isListed(index) ? priceTable.freshQuote(index, Long.MAX_VALUE) : null;
+    }
+}
@@ -0,0 +1,246 @@
+package neko.crypto.scrapper.service;
+
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.model.CryptoPrice;
+import neko.crypto.scrapper.model.Tickers;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+// Цены всех USDT пар в примитивных массивах по постоянному индексу символа.
+// Слот защищён seqlock-ом: читатели не блокируются и перечитывают слот, если попали на запись.
+@Component
+@Slf4j
+public class PriceTable {
+    private static final VarHandle SEQUENCE = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final String USDT = Tickers.USDT;
+
+    private final int capacity;
+    private final String[] symbols;
+    private final int[] slots;
+    private final int mask;
+    private final double[] prices;
+    private final long[] updatedAt;
+    private final long[] sequences;
+    private volatile int size;
+    private volatile boolean[] listed;
+    private volatile PriceListener[] listeners = new PriceListener[0];
+
+    public PriceTable(@Value("${prices.table.capacity:4096}") int capacity) {
+        this.capacity = capacity;
+        this.symbols = new String[capacity];
+        this.slots = new int[Integer.highestOneBit(Math.max(capacity * 2 - 1, 1)) << 1];
+        this.mask = slots.length - 1;
+        this.prices = new double[capacity];
+        this.updatedAt = new long[capacity];
+        this.sequences = new long[capacity];
+        this.listed = new boolean[capacity];
+    }
+
+    // Индекс выдаётся один раз и больше не меняется
+    public synchronized int register(String symbol) {
+        int existing = indexOf(symbol);
+        if (existing >= 0) {
+            return existing;
+        }
+        if (size == capacity) {
+            log.warn("Price table is full ({} symbols), {} is not registered", capacity, symbol);
+            return -1;
+        }
+        int index = size;
+        symbols[index] = symbol;
+        int slot = hash(symbol, 0, symbol.length(), false) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = index + 1;
+        size = index + 1;
+        return index;
+    }
+
+    // Тикер в любом регистре, с суффиксом USDT или без него: то же правило, что Tickers.toUsdtSymbol, но без аллокаций
+    public int indexOf(String ticker) {
+        int published = size;
+        int begin = 0;
+        int end = ticker.length();
+        while (begin < end && ticker.charAt(begin) <= ' ') {
+            begin++;
+        }
+        while (end > begin && ticker.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (begin == end) {
+            return -1;
+        }
+        boolean appendUsdt = !containsUsdt(ticker, begin, end);
+        int slot = hash(ticker, begin, end, appendUsdt) & mask;
+        while (true) {
+            int entry = slots[slot];
+            if (entry == 0) {
+                return -1;
+            }
+            int index = entry - 1;
+            if (index < published && matches(symbols[index], ticker, begin, end, appendUsdt)) {
+                return index;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    // Индексы делистингованных пар сохраняются, но перестают считаться валидными
+    public void retainListed(Collection<String> listedSymbols) {
+        boolean[] updated = new boolean[capacity];
+        for (String symbol : listedSymbols) {
+            int index = indexOf(symbol);
+            if (index >= 0) {
+                updated[index] = true;
+            }
+        }
+        listed = updated;
+    }
+
+    public boolean isListed(int index) {
+        return listed[index];
+    }
+
+    public List<String> listedSymbols() {
+        boolean[] current = listed;
+        int published = size;
+        List<String> result = new ArrayList<>(published);
+        for (int index = 0; index < published; index++) {
+            if (current[index]) {
+                result.add(symbols[index]);
+            }
+        }
+        return result;
+    }
+
+    public synchronized void addListener(PriceListener listener) {
+        PriceListener[] updated = Arrays.copyOf(listeners, listeners.length + 1);
+        updated[listeners.length] = listener;
+        listeners = updated;
+    }
+
+    public String symbol(int index) {
+        return symbols[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    public boolean update(String symbol, double price, long timestamp) {
+        int index = indexOf(symbol);
+        if (index < 0) {
+            return false;
+        }
+        update(index, price, timestamp);
+        return true;
+    }
+
+    public void update(int index, double price, long timestamp) {
+        long sequence;
+        do {
+            sequence = (long) SEQUENCE.getVolatile(sequences, index);
+        } while ((sequence & 1) != 0 || !SEQUENCE.compareAndSet(sequences, index, sequence, sequence + 1));
+        prices[index] = price;
+        updatedAt[index] = timestamp;
+        SEQUENCE.setRelease(sequences, index, sequence + 2);
+        for (PriceListener listener : listeners) {
+            try {
+                listener.onPrice(index, price, timestamp);
+            } catch (RuntimeException e) {
+                log.error("Price listener failed for {}: {}", symbols[index], e.getMessage(), e);
+            }
+        }
+    }
+
+    // NaN, если цены ещё нет или она старше maxAgeMillis
+    public double freshPrice(int index, long maxAgeMillis) {
+        long now = System.currentTimeMillis();
+        while (true) {
+            long sequence = (long) SEQUENCE.getAcquire(sequences, index);
+            if ((sequence & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            double price = prices[index];
+            long timestamp = updatedAt[index];
+            VarHandle.acquireFence();
+            if ((long) SEQUENCE.getVolatile(sequences, index) == sequence) {
+                return sequence == 0 || now - timestamp > maxAgeMillis ? Double.NaN : price;
+            }
+        }
+    }
+
+    // То же чтение, но вместе со временем обновления; null вместо NaN
+    public CryptoPrice freshQuote(int index, long maxAgeMillis) {
+        long now = System.currentTimeMillis();
+        while (true) {
+            long sequence = (long) SEQUENCE.getAcquire(sequences, index);
+            if ((sequence & 1) != 0) {
+                Thread.onSpinWait();
+                continue;
+            }
+            double price = prices[index];
+            long timestamp = updatedAt[index];
+            VarHandle.acquireFence();
+            if ((long) SEQUENCE.getVolatile(sequences, index) == sequence) {
+                return sequence == 0 || now - timestamp > maxAgeMillis ? null : new CryptoPrice(symbols[index], price, timestamp);
+            }
+        }
+    }
+
+    public long sequence(int index) {
+        return (long) SEQUENCE.getAcquire(sequences, index);
+    }
+
+    private static boolean containsUsdt(String ticker, int begin, int end) {
+        for (int i = begin; i <= end - USDT.length(); i++) {
+            if (ticker.regionMatches(true, i, USDT, 0, USDT.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean matches(String symbol, String ticker, int begin, int end, boolean appendUsdt) {
+        int length = end - begin;
+        if (symbol.length() != length + (appendUsdt ? USDT.length() : 0)) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (symbol.charAt(i) != upper(ticker.charAt(begin + i))) {
+                return false;
+            }
+        }
+        return !appendUsdt || symbol.startsWith(USDT, length);
+    }
+
+    private static int hash(String ticker, int begin, int end, boolean appendUsdt) {
+        int hash = 0;
+        for (int i = begin; i < end; i++) {
+            hash = 31 * hash + upper(ticker.charAt(i));
+        }
+        if (appendUsdt) {
+            for (int i = 0; i < USDT.length(); i++) {
+                hash = 31 * hash + USDT.charAt(i);
+            }
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static char upper(char c) {
+        return c >= 'a' && c <= 'z' ? (char) (c - ('a' - 'A')) : c;
+    }
+}
@@ -0,0 +1,210 @@
+package neko.crypto.scrapper.service;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.model.Tick;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Stream;
+
+// Журнал всех тиков на диске: сегменты append-only, пишутся через MappedByteBuffer.
+// Символы хранятся числовыми id из словаря symbols.dict, поскольку индексы PriceTable между запусками не стабильны.
+@Component
+@Slf4j
+public class TickJournal implements PriceListener {
+    private static final String DICTIONARY = "symbols.dict";
+
+    private final PriceTable priceTable;
+    private final boolean enabled;
+    private final Path directory;
+    private final long segmentBytes;
+    private final long segmentDurationMillis;
+    private final long retentionBytes;
+    private final long retentionAgeMillis;
+
+    private final List<TickSegment> segments = new CopyOnWriteArrayList<>();
+    private final Map<String, Integer> symbolIds = new HashMap<>();
+    // id в журнале + 1 для каждого индекса PriceTable, 0 - ещё не выдан
+    private final int[] journalIds;
+    private TickSegment active;
+    private long lastTimestamp;
+
+    public TickJournal(PriceTable priceTable,
+                       @Value("${journal.enabled:true}") boolean enabled,
+                       @Value("${journal.dir:./data/ticks}") String directory,
+                       @Value("${journal.segment-size:64MB}") DataSize segmentSize,
+                       @Value("${journal.segment-duration:1h}") Duration segmentDuration,
+                       @Value("${journal.retention.max-size:2GB}") DataSize retentionSize,
+                       @Value("${journal.retention.max-age:7d}") Duration retentionAge) {
+        this.priceTable = priceTable;
+        this.enabled = enabled;
+        this.directory = Path.of(directory);
+        this.segmentBytes = segmentSize.toBytes();
+        this.segmentDurationMillis = segmentDuration.toMillis();
+        this.retentionBytes = retentionSize.toBytes();
+        this.retentionAgeMillis = retentionAge.toMillis();
+        this.journalIds = new int[priceTable.capacity()];
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        if (!enabled) {
+            log.info("Tick journal is disabled");
+            return;
+        }
+        Files.createDirectories(directory);
+        Path dictionary = directory.resolve(DICTIONARY);
+        if (Files.exists(dictionary)) {
+            for (String symbol : Files.readAllLines(dictionary, StandardCharsets.US_ASCII)) {
+                symbolIds.put(symbol, symbolIds.size());
+            }
+        }
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(directory)) {
+            files = listing.filter(path -> path.getFileName().toString().matches("ticks-\\d{13}\\.dat")).sorted().toList();
+        }
+        for (Path file : files) {
+            try {
+                segments.add(TickSegment.open(file));
+            } catch (IOException e) {
+                log.error("Skipping damaged journal segment {}: {}", file, e.getMessage());
+            }
+        }
+        if (!segments.isEmpty()) {
+            active = segments.getLast();
+            lastTimestamp = active.lastTimestamp();
+        }
+        log.info("Tick journal opened in {}: {} segments, {} symbols", directory, segments.size(), symbolIds.size());
+        priceTable.addListener(this);
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        for (TickSegment segment : segments) {
+            try {
+                segment.close();
+            } catch (IOException e) {
+                log.warn("Failed to close journal segment {}: {}", segment.dataFile(), e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public synchronized void onPrice(int index, double price, long timestamp) {
+        try {
+            // Время в журнале не убывает: на этом держится бинарный поиск по индексу сегмента
+            long journalTimestamp = Math.max(timestamp, lastTimestamp);
+            TickSegment segment = activeSegment(journalTimestamp);
+            if (!segment.append(journalId(index), journalTimestamp, price)) {
+                segment = roll(journalTimestamp);
+                segment.append(journalId(index), journalTimestamp, price);
+            }
+            lastTimestamp = journalTimestamp;
+        } catch (IOException e) {
+            log.error("Failed to append tick for {} to journal: {}", priceTable.symbol(index), e.getMessage());
+        }
+    }
+
+    private TickSegment activeSegment(long timestamp) throws IOException {
+        if (active == null || timestamp - active.createdAt() >= segmentDurationMillis) {
+            return roll(timestamp);
+        }
+        return active;
+    }
+
+    private TickSegment roll(long timestamp) throws IOException {
+        long createdAt = active != null ? Math.max(timestamp, active.createdAt() + 1) : timestamp;
+        TickSegment segment = TickSegment.create(directory, createdAt, segmentBytes);
+        if (active != null) {
+            active.force();
+        }
+        segments.add(segment);
+        active = segment;
+        log.info("Rolled tick journal to segment {}", segment.dataFile().getFileName());
+        return segment;
+    }
+
+    private int journalId(int index) throws IOException {
+        int id = journalIds[index] - 1;
+        if (id >= 0) {
+            return id;
+        }
+        String symbol = priceTable.symbol(index);
+        Integer existing = symbolIds.get(symbol);
+        if (existing == null) {
+            existing = symbolIds.size();
+            Files.writeString(directory.resolve(DICTIONARY), symbol + "\n", StandardCharsets.US_ASCII,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            symbolIds.put(symbol, existing);
+        }
+        journalIds[index] = existing + 1;
+        return existing;
+    }
+
+    public List<Tick> getTicks(String ticker, long from, long to, int limit) {
+        if (!enabled) {
+            throw new IllegalStateException("Tick journal is disabled");
+        }
+        int index = priceTable.indexOf(ticker);
+        if (index < 0) {
+            throw new IllegalArgumentException("Invalid ticker: " + ticker);
+        }
+        Integer symbolId;
+        synchronized (this) {
+            symbolId = symbolIds.get(priceTable.symbol(index));
+        }
+        List<Tick> ticks = new ArrayList<>();
+        if (symbolId == null) {
+            return ticks;
+        }
+        for (TickSegment segment : segments) {
+            if (segment.lastTimestamp() < from || segment.firstTimestamp() > to) {
+                continue;
+            }
+            segment.scan(symbolId, from, to, ticks, limit);
+            if (ticks.size() >= limit) {
+                break;
+            }
+        }
+        return ticks;
+    }
+
+    // Удаляются самые старые сегменты, пока журнал не уложится в лимиты размера и возраста
+    @Scheduled(fixedDelayString = "${journal.retention.check-interval:60000}")
+    public synchronized void applyRetention() {
+        if (!enabled) {
+            return;
+        }
+        long totalBytes = segments.stream().mapToLong(TickSegment::diskBytes).sum();
+        long oldestAllowed = System.currentTimeMillis() - retentionAgeMillis;
+        while (segments.size() > 1) {
+            TickSegment oldest = segments.getFirst();
+            if (totalBytes <= retentionBytes && oldest.lastTimestamp() >= oldestAllowed) {
+                break;
+            }
+            segments.removeFirst();
+            totalBytes -= oldest.diskBytes();
+            try {
+                oldest.delete();
+                log.info("Deleted journal segment {} by retention", oldest.dataFile().getFileName());
+            } catch (IOException e) {
+                log.warn("Failed to delete journal segment {}: {}", oldest.dataFile(), e.getMessage());
+            }
+        }
+    }
+}
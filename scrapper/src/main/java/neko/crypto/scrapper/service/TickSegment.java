@@ -0,0 +1,232 @@
+package neko.crypto.scrapper.service;
+
+import neko.crypto.scrapper.model.Tick;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+// Один сегмент журнала: файл фиксированного размера, отображённый в память, и разреженный индекс по времени.
+// Заголовок: magic, версия, число записей. Запись: int id символа, long время, double цена.
+final class TickSegment implements AutoCloseable {
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 20;
+    static final int INDEX_INTERVAL = 1024;
+    private static final int MAGIC = 0x5449434B;
+    private static final int VERSION = 1;
+    private static final int COUNT_OFFSET = 8;
+    private static final int INDEX_ENTRY_SIZE = 12;
+
+    private final Path dataFile;
+    private final Path indexFile;
+    private final long createdAt;
+    private final int maxRecords;
+    private final FileChannel dataChannel;
+    private final FileChannel indexChannel;
+    private final MappedByteBuffer buffer;
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(INDEX_ENTRY_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+
+    // Индекс: время и номер каждой INDEX_INTERVAL-й записи; count публикует записи читателям
+    private long[] indexTimestamps = new long[64];
+    private int[] indexPositions = new int[64];
+    private volatile int indexSize;
+    private volatile int count;
+    private volatile long lastTimestamp;
+
+    private TickSegment(Path dataFile, long createdAt, int maxRecords, FileChannel dataChannel, FileChannel indexChannel,
+                        MappedByteBuffer buffer) {
+        this.dataFile = dataFile;
+        this.indexFile = indexPath(dataFile);
+        this.createdAt = createdAt;
+        this.maxRecords = maxRecords;
+        this.dataChannel = dataChannel;
+        this.indexChannel = indexChannel;
+        this.buffer = buffer;
+    }
+
+    static TickSegment create(Path directory, long createdAt, long sizeBytes) throws IOException {
+        Path dataFile = directory.resolve(String.format("ticks-%013d.dat", createdAt));
+        int maxRecords = (int) Math.min(Integer.MAX_VALUE, (sizeBytes - HEADER_SIZE) / RECORD_SIZE);
+        long fileSize = HEADER_SIZE + (long) maxRecords * RECORD_SIZE;
+        FileChannel dataChannel = FileChannel.open(dataFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        // Файл разреженный: место на диске занимают только записанные страницы
+        MappedByteBuffer buffer = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(0, MAGIC);
+        buffer.putInt(4, VERSION);
+        buffer.putInt(COUNT_OFFSET, 0);
+        FileChannel indexChannel = FileChannel.open(indexPath(dataFile), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        return new TickSegment(dataFile, createdAt, maxRecords, dataChannel, indexChannel, buffer);
+    }
+
+    static TickSegment open(Path dataFile) throws IOException {
+        String name = dataFile.getFileName().toString();
+        long createdAt = Long.parseLong(name.substring("ticks-".length(), name.length() - ".dat".length()));
+        FileChannel dataChannel = FileChannel.open(dataFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        long fileSize = dataChannel.size();
+        MappedByteBuffer buffer = dataChannel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        if (fileSize < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            dataChannel.close();
+            throw new IOException("Not a tick journal segment: " + dataFile);
+        }
+        int maxRecords = (int) ((fileSize - HEADER_SIZE) / RECORD_SIZE);
+        FileChannel indexChannel = FileChannel.open(indexPath(dataFile), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        TickSegment segment = new TickSegment(dataFile, createdAt, maxRecords, dataChannel, indexChannel, buffer);
+        segment.recover();
+        return segment;
+    }
+
+    private static Path indexPath(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        return dataFile.resolveSibling(name.substring(0, name.length() - ".dat".length()) + ".idx");
+    }
+
+    // Индекс читается с диска; записи, не попавшие в него до остановки, доиндексируются сканированием хвоста
+    private void recover() throws IOException {
+        int records = Math.min(Math.max(buffer.getInt(COUNT_OFFSET), 0), maxRecords);
+        ByteBuffer entries = ByteBuffer.allocate((int) indexChannel.size()).order(ByteOrder.LITTLE_ENDIAN);
+        indexChannel.read(entries, 0);
+        entries.flip();
+        int valid = 0;
+        while (entries.remaining() >= INDEX_ENTRY_SIZE) {
+            long timestamp = entries.getLong();
+            int position = entries.getInt();
+            if (position >= records || position != valid * INDEX_INTERVAL) {
+                break;
+            }
+            addIndexEntry(timestamp, position);
+            valid++;
+        }
+        indexChannel.truncate((long) valid * INDEX_ENTRY_SIZE);
+        indexChannel.position(indexChannel.size());
+        for (int position = valid * INDEX_INTERVAL; position < records; position += INDEX_INTERVAL) {
+            writeIndexEntry(timestampAt(position), position);
+        }
+        count = records;
+        lastTimestamp = records > 0 ? timestampAt(records - 1) : 0;
+    }
+
+    // Вызывается только писателем журнала
+    boolean append(int symbolId, long timestamp, double price) throws IOException {
+        int position = count;
+        if (position == maxRecords) {
+            return false;
+        }
+        int offset = HEADER_SIZE + position * RECORD_SIZE;
+        buffer.putInt(offset, symbolId);
+        buffer.putLong(offset + 4, timestamp);
+        buffer.putDouble(offset + 12, price);
+        buffer.putInt(COUNT_OFFSET, position + 1);
+        if (position % INDEX_INTERVAL == 0) {
+            writeIndexEntry(timestamp, position);
+        }
+        lastTimestamp = timestamp;
+        count = position + 1;
+        return true;
+    }
+
+    private void writeIndexEntry(long timestamp, int position) throws IOException {
+        indexEntry.clear();
+        indexEntry.putLong(timestamp).putInt(position).flip();
+        while (indexEntry.hasRemaining()) {
+            indexChannel.write(indexEntry);
+        }
+        addIndexEntry(timestamp, position);
+    }
+
+    private void addIndexEntry(long timestamp, int position) {
+        int size = indexSize;
+        if (size == indexTimestamps.length) {
+            indexTimestamps = Arrays.copyOf(indexTimestamps, size * 2);
+            indexPositions = Arrays.copyOf(indexPositions, size * 2);
+        }
+        indexTimestamps[size] = timestamp;
+        indexPositions[size] = position;
+        indexSize = size + 1;
+    }
+
+    // Бинарный поиск по разреженному индексу, затем последовательный просмотр записей до верхней границы
+    int scan(int symbolId, long from, long to, List<Tick> result, int limit) {
+        int records = count;
+        int size = indexSize;
+        long[] timestamps = indexTimestamps;
+        int[] positions = indexPositions;
+        int low = 0;
+        int high = size - 1;
+        int start = 0;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < from) {
+                start = positions[mid];
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        int added = 0;
+        for (int position = start; position < records && result.size() < limit; position++) {
+            int offset = HEADER_SIZE + position * RECORD_SIZE;
+            long timestamp = buffer.getLong(offset + 4);
+            if (timestamp > to) {
+                break;
+            }
+            if (timestamp >= from && buffer.getInt(offset) == symbolId) {
+                result.add(new Tick(timestamp, buffer.getDouble(offset + 12)));
+                added++;
+            }
+        }
+        return added;
+    }
+
+    private long timestampAt(int position) {
+        return buffer.getLong(HEADER_SIZE + position * RECORD_SIZE + 4);
+    }
+
+    long firstTimestamp() {
+        return count > 0 ? timestampAt(0) : createdAt;
+    }
+
+    long lastTimestamp() {
+        return count > 0 ? lastTimestamp : createdAt;
+    }
+
+    long createdAt() {
+        return createdAt;
+    }
+
+    long diskBytes() {
+        return HEADER_SIZE + (long) count * RECORD_SIZE;
+    }
+
+    Path dataFile() {
+        return dataFile;
+    }
+
+    void force() {
+        buffer.force();
+    }
+
+    @Override
+    public void close() throws IOException {
+        force();
+        dataChannel.close();
+        indexChannel.close();
+    }
+
+    void delete() throws IOException {
+        dataChannel.close();
+        indexChannel.close();
+        Files.deleteIfExists(dataFile);
+        Files.deleteIfExists(indexFile);
+    }
+}
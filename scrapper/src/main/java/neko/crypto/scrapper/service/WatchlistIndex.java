@@ -0,0 +1,40 @@
+package neko.crypto.scrapper.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Обратный индекс тикер -> chatId, обновляется вместе с watchlist
+@Component
+public class WatchlistIndex {
+    private final ConcurrentHashMap<String, Set<Long>> chatsByTicker = new ConcurrentHashMap<>();
+
+    public void add(long chatId, String ticker) {
+        chatsByTicker.compute(ticker, (key, chats) -> {
+            Set<Long> result = chats != null ? chats : ConcurrentHashMap.newKeySet();
+            result.add(chatId);
+            return result;
+        });
+    }
+
+    public void remove(long chatId, String ticker) {
+        chatsByTicker.computeIfPresent(ticker, (key, chats) -> {
+            chats.remove(chatId);
+            return chats.isEmpty() ? null : chats;
+        });
+    }
+
+    public boolean isWatched(String ticker) {
+        return chatsByTicker.containsKey(ticker);
+    }
+
+    public Set<String> getTickers() {
+        return Set.copyOf(chatsByTicker.keySet());
+    }
+
+    public Set<Long> getChatIds(String ticker) {
+        Set<Long> chats = chatsByTicker.get(ticker);
+        return chats != null ? Set.copyOf(chats) : Set.of();
+    }
+}
@@ -1,167 +1,451 @@
 package neko.crypto.scrapper.service;
 
-import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import jakarta.transaction.Transactional;
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
+import neko.crypto.scrapper.client.api.ExchangeInfoParser;
+import neko.crypto.scrapper.model.ChatSettings;
+import neko.crypto.scrapper.model.ChatWatchlist;
+import neko.crypto.scrapper.model.PairSnapshot;
+import neko.crypto.scrapper.model.Tickers;
 import neko.crypto.scrapper.model.Watchlist;
+import neko.crypto.scrapper.model.WatchlistChange;
+import neko.crypto.scrapper.repository.ChatSettingsRepository;
+import neko.crypto.scrapper.repository.WatchlistBatchRepository;
 import neko.crypto.scrapper.repository.WatchlistRepository;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import okhttp3.Response;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 @Slf4j
 public class WatchlistService {
-    private final Set<String> validUsdtPairs = new HashSet<>();
+    private volatile PairSnapshot pairSnapshot = PairSnapshot.EMPTY;
+    private String exchangeInfoEtag;
     private final OkHttpClient client;
     private final ObjectMapper objectMapper;
     private final WatchlistRepository watchlistRepository;
+    private final EntityManager entityManager;
+    private final PriceTable priceTable;
+    private final WatchlistIndex watchlistIndex;
+    private final WatchlistStore watchlistStore;
+    private final WatchlistBatchRepository watchlistBatchRepository;
+    private final PriceHistory priceHistory;
+    private final TransactionTemplate transactionTemplate;
+    private final ChatSettingsRepository chatSettingsRepository;
+    private final String binanceApiUrl;
+    // Только чаты с собственными настройками уведомлений, остальные получают значения бота
+    private final Map<Long, Integer> intervals = new ConcurrentHashMap<>();
+    private final Map<Long, Double> thresholds = new ConcurrentHashMap<>();
 
     @Autowired
-    public WatchlistService(@Lazy OkHttpClient client, @Lazy ObjectMapper objectMapper, WatchlistRepository watchlistRepository) {
+    public WatchlistService(@Lazy OkHttpClient client, @Lazy ObjectMapper objectMapper, WatchlistRepository watchlistRepository,
+                            EntityManager entityManager, PriceTable priceTable, WatchlistIndex watchlistIndex,
+                            WatchlistStore watchlistStore, WatchlistBatchRepository watchlistBatchRepository, PriceHistory priceHistory,
+                            TransactionTemplate transactionTemplate, ChatSettingsRepository chatSettingsRepository,
+                            @Value("${binance.api.url}") String binanceApiUrl) {
         this.client = client;
         this.objectMapper = objectMapper;
         this.watchlistRepository = watchlistRepository;
+        this.entityManager = entityManager;
+        this.priceTable = priceTable;
+        this.watchlistIndex = watchlistIndex;
+        this.watchlistStore = watchlistStore;
+        this.watchlistBatchRepository = watchlistBatchRepository;
+        this.priceHistory = priceHistory;
+        this.transactionTemplate = transactionTemplate;
+        this.chatSettingsRepository = chatSettingsRepository;
+        this.binanceApiUrl = binanceApiUrl;
         //initializeUsdtPairs();
     }
 
     private void initializeUsdtPairs() {
         log.info("Initializing USDT trading pairs from Binance API");
-        String url = "https://api.binance.com/api/v3/exchangeInfo";
-        Request request = new Request.Builder().url(url).build();
-        try {
-            Response response = client.newCall(request).execute();
-            if (!response.isSuccessful()) {
+        // OkHttp сам добавляет Accept-Encoding: gzip и прозрачно распаковывает ответ
+        Request.Builder request = new Request.Builder().url(binanceApiUrl + "/api/v3/exchangeInfo");
+        if (exchangeInfoEtag != null) {
+            request.header("If-None-Match", exchangeInfoEtag);
+        }
+        try (Response response = client.newCall(request.build()).execute()) {
+            if (response.code() == 304) {
+                log.info("Exchange info is not modified, keeping {} USDT trading pairs", pairSnapshot.size());
+                return;
+            }
+            if (!response.isSuccessful() || response.body() == null) {
                 String errorBody = response.body() != null ? response.body().string() : "No response body";
                 log.error("Failed to fetch exchange info: {} - {}, body: {}", response.code(), response.message(), errorBody);
                 return;
             }
-            String body = response.body().string();
-            //log.debug("Binance exchange info response: {}", body);
-            JsonNode json = objectMapper.readTree(body);
-            JsonNode symbols = json.get("symbols");
-            if (symbols != null && symbols.isArray()) {
-                for (JsonNode symbol : symbols) {
-                    String pair = symbol.get("symbol").asText();
-                    if (pair.endsWith("USDT")) {
-                        validUsdtPairs.add(pair);
-                    }
-                }
-                log.info("Loaded {} USDT trading pairs: {}", validUsdtPairs.size(), validUsdtPairs);
-            } else {
+            Set<String> pairs;
+            try (JsonParser parser = objectMapper.getFactory().createParser(response.body().byteStream())) {
+                pairs = ExchangeInfoParser.parseTradingUsdtPairs(parser);
+            }
+            exchangeInfoEtag = response.header("ETag");
+            if (pairs.isEmpty()) {
                 log.warn("No symbols found in Binance exchange info response");
+                return;
+            }
+            if (pairs.equals(pairSnapshot.getPairs())) {
+                log.info("USDT trading pairs are unchanged ({} pairs), snapshot is kept", pairs.size());
+                return;
+            }
+
+            // Новый снимок собирается в стороне и публикуется целиком, делистингованные пары в него не попадают
+            PairSnapshot snapshot = PairSnapshot.of(pairs, pairSnapshot.getVersion() + 1);
+            for (String pair : snapshot.getSorted()) {
+                priceTable.register(pair);
             }
+            priceTable.retainListed(snapshot.getPairs());
+            pairSnapshot = snapshot;
+            log.info("Loaded {} USDT trading pairs, snapshot version {}", snapshot.size(), snapshot.getVersion());
+            log.debug("USDT trading pairs: {}", snapshot.getSorted());
         } catch (IOException e) {
             log.error("Failed to initialize USDT trading pairs: {}", e.getMessage(), e);
         }
     }
 
+    @Transactional
     public void addToWatchlist(Long chatId, String ticker) {
         log.debug("Adding ticker {} to watchlist for chatId: {}", ticker, chatId);
-        String upperTicker = ticker.toUpperCase();
-        String usdtTicker;
-        if (upperTicker.contains("USDT")) {
-            usdtTicker = upperTicker;
-        } else {
-            usdtTicker = upperTicker + "USDT";
-        }
+        String usdtTicker = Tickers.toUsdtSymbol(ticker);
 
-        if (!validUsdtPairs.contains(usdtTicker)) {
+        if (!pairSnapshot.contains(usdtTicker)) {
             log.warn("Invalid ticker {}: {} not found in USDT trading pairs", ticker, usdtTicker);
             throw new IllegalArgumentException("Invalid ticker: " + ticker);
         }
 
-        if (watchlistRepository.existsByChatIdAndTicker(chatId, usdtTicker)) {
+        int index = priceTable.register(usdtTicker);
+        if (index < 0) {
+            throw new IllegalArgumentException("Price table is full, cannot watch " + ticker);
+        }
+        if (watchlistStore.contains(chatId, index)) {
             log.debug("Ticker {} already exists in watchlist for chatId: {}", usdtTicker, chatId);
             return;
         }
 
-        Watchlist watchlist = new Watchlist();
-        watchlist.setChatId(chatId);
-        watchlist.setTicker(usdtTicker);
-        watchlistRepository.save(watchlist);
+        // Один запрос вместо exists + save; гонку двух добавлений разрешает ON CONFLICT
+        watchlistRepository.insertIfAbsent(chatId, usdtTicker);
+        afterCommit(() -> {
+            watchlistStore.add(chatId, index);
+            watchlistIndex.add(chatId, usdtTicker);
+            priceHistory.track(usdtTicker);
+        });
         log.info("Ticker {} added to watchlist for chatId: {}", ticker, chatId);
     }
 
     @Transactional
     public boolean removeFromWatchlist(Long chatId, String ticker) {
         log.debug("Removing ticker {} from watchlist for chatId: {}", ticker, chatId);
-        String upperTicker = ticker.toUpperCase();
-        String usdtTicker;
-        if (upperTicker.contains("USDT")) {
-            usdtTicker = upperTicker;
-        } else {
-            usdtTicker = upperTicker + "USDT";
-        }
+        String usdtTicker = Tickers.toUsdtSymbol(ticker);
 
-        if (!watchlistRepository.existsByChatIdAndTicker(chatId, usdtTicker)) {
+        int index = priceTable.indexOf(usdtTicker);
+        boolean known = index >= 0 && watchlistStore.contains(chatId, index);
+        if (!known && watchlistStore.isLoaded()) {
             log.info("Ticker {} not found in watchlist for chatId: {}", usdtTicker, chatId);
             return false;
         }
 
-        watchlistRepository.deleteByChatIdAndTicker(chatId, usdtTicker);
+        int deleted = watchlistRepository.deleteByChatIdAndTicker(chatId, usdtTicker);
+        afterCommit(() -> {
+            if (index >= 0) {
+                watchlistStore.remove(chatId, index);
+            }
+            watchlistIndex.remove(chatId, usdtTicker);
+            priceHistory.release(usdtTicker);
+        });
+        if (deleted == 0) {
+            log.info("Ticker {} not found in watchlist for chatId: {}", usdtTicker, chatId);
+            return false;
+        }
         log.info("Ticker {} removed from watchlist for chatId: {}", usdtTicker, chatId);
         return true;
     }
 
+    // Пара проверяется по снимку один раз на тикер, в базу уходит один пакет
+    @Transactional
+    public Map<String, WatchlistChange> addToWatchlist(long chatId, Collection<String> tickers) {
+        log.debug("Adding {} tickers to watchlist for chatId: {}", tickers.size(), chatId);
+        PairSnapshot snapshot = pairSnapshot;
+        Map<String, WatchlistChange> result = new LinkedHashMap<>();
+        List<String> inserts = new ArrayList<>();
+        for (String ticker : tickers) {
+            String usdtTicker = Tickers.toUsdtSymbol(ticker);
+            if (result.containsKey(usdtTicker)) {
+                continue;
+            }
+            int index = snapshot.contains(usdtTicker) ? priceTable.register(usdtTicker) : -1;
+            if (index < 0) {
+                result.put(usdtTicker, WatchlistChange.INVALID);
+            } else if (watchlistStore.contains(chatId, index)) {
+                result.put(usdtTicker, WatchlistChange.EXISTS);
+            } else {
+                result.put(usdtTicker, WatchlistChange.ADDED);
+                inserts.add(usdtTicker);
+            }
+        }
+        if (!inserts.isEmpty()) {
+            int[] counts = watchlistBatchRepository.insertIfAbsent(chatId, inserts);
+            for (int i = 0; i < inserts.size(); i++) {
+                if (counts[i] == 0) {
+                    result.put(inserts.get(i), WatchlistChange.EXISTS);
+                }
+            }
+            afterCommit(() -> {
+                for (String usdtTicker : inserts) {
+                    watchlistStore.add(chatId, priceTable.indexOf(usdtTicker));
+                    watchlistIndex.add(chatId, usdtTicker);
+                    priceHistory.track(usdtTicker);
+                }
+            });
+        }
+        log.info("Watchlist add for chatId {}: {}", chatId, result);
+        return result;
+    }
+
+    @Transactional
+    public Map<String, WatchlistChange> removeFromWatchlist(long chatId, Collection<String> tickers) {
+        log.debug("Removing {} tickers from watchlist for chatId: {}", tickers.size(), chatId);
+        Map<String, WatchlistChange> result = new LinkedHashMap<>();
+        Set<String> deletes = new LinkedHashSet<>();
+        for (String ticker : tickers) {
+            String usdtTicker = Tickers.toUsdtSymbol(ticker);
+            int index = priceTable.indexOf(usdtTicker);
+            result.put(usdtTicker, WatchlistChange.NOT_FOUND);
+            if (!watchlistStore.isLoaded() || index >= 0 && watchlistStore.contains(chatId, index)) {
+                deletes.add(usdtTicker);
+            }
+        }
+        if (!deletes.isEmpty()) {
+            List<String> removed = watchlistBatchRepository.delete(chatId, deletes);
+            for (String usdtTicker : removed) {
+                result.put(usdtTicker, WatchlistChange.REMOVED);
+            }
+            afterCommit(() -> {
+                for (String usdtTicker : removed) {
+                    int index = priceTable.indexOf(usdtTicker);
+                    if (index >= 0) {
+                        watchlistStore.remove(chatId, index);
+                    }
+                    watchlistIndex.remove(chatId, usdtTicker);
+                    priceHistory.release(usdtTicker);
+                }
+            });
+        }
+        log.info("Watchlist remove for chatId {}: {}", chatId, result);
+        return result;
+    }
+
+    // Память меняется только после коммита: откат не должен оставить в памяти тикер, которого нет в базе,
+    // а читатели не должны видеть изменение раньше, чем его увидит выгрузка из базы
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+
     public Set<String> getWatchlist(Long chatId) {
         log.debug("Fetching watchlist for chatId: {}", chatId);
-        Set<String> watchlist = watchlistRepository.findByChatId(chatId)
-                .stream()
-                .map(Watchlist::getTicker)
-                .collect(Collectors.toSet());
+        if (!watchlistStore.isLoaded()) {
+            return watchlistRepository.findByChatId(chatId).stream()
+                    .map(Watchlist::getTicker)
+                    .collect(Collectors.toSet());
+        }
+        int[] tickers = watchlistStore.get(chatId);
+        Set<String> watchlist = new LinkedHashSet<>(tickers.length);
+        for (int ticker : tickers) {
+            watchlist.add(priceTable.symbol(ticker));
+        }
         log.info("Watchlist for chatId {}: {}", chatId, watchlist);
         return watchlist;
     }
 
-    public boolean isValidUsdtPair(String ticker) {
-        if (!ticker.contains("USDT")) {
-            ticker = ticker + "USDT";
+    public int exportWatchlists(Consumer<ChatWatchlist> consumer) {
+        log.debug("Exporting all watchlists");
+        if (!watchlistStore.isLoaded()) {
+            // Потоковый запрос требует транзакции, а вызов изнутри бина мимо прокси её не откроет
+            return transactionTemplate.execute(status -> streamWatchlists(consumer));
+        }
+        int chats = watchlistStore.forEach((chatId, tickers) -> {
+            List<String> symbols = new ArrayList<>(tickers.length);
+            for (int ticker : tickers) {
+                symbols.add(priceTable.symbol(ticker));
+            }
+            consumer.accept(new ChatWatchlist(chatId, symbols, getInterval(chatId), getThreshold(chatId)));
+        });
+        log.info("Exported watchlists for {} chats", chats);
+        return chats;
+    }
+
+    // Один проход по таблице: строки отсортированы по chatId и группируются на лету
+    private int streamWatchlists(Consumer<ChatWatchlist> consumer) {
+        int chats = 0;
+        try (Stream<Watchlist> rows = watchlistRepository.streamAllOrderedByChatId()) {
+            Long currentChatId = null;
+            List<String> tickers = new ArrayList<>();
+            for (Watchlist row : (Iterable<Watchlist>) rows::iterator) {
+                entityManager.detach(row);
+                if (currentChatId != null && !currentChatId.equals(row.getChatId())) {
+                    consumer.accept(new ChatWatchlist(currentChatId, tickers, getInterval(currentChatId), getThreshold(currentChatId)));
+                    chats++;
+                    tickers = new ArrayList<>();
+                }
+                currentChatId = row.getChatId();
+                tickers.add(row.getTicker());
+            }
+            if (currentChatId != null) {
+                consumer.accept(new ChatWatchlist(currentChatId, tickers, getInterval(currentChatId), getThreshold(currentChatId)));
+                chats++;
+            }
         }
-        return validUsdtPairs.contains(ticker.toUpperCase());
+        log.info("Streamed watchlists for {} chats from database", chats);
+        return chats;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void loadWatchlists() {
+        log.info("Loading watchlists into memory");
+        int chats = streamWatchlists(watchlist -> watchlist.tickers().forEach(ticker -> {
+            int index = priceTable.register(ticker);
+            if (index >= 0) {
+                watchlistStore.add(watchlist.chatId(), index);
+            }
+            watchlistIndex.add(watchlist.chatId(), ticker);
+        }));
+        for (ChatSettings settings : chatSettingsRepository.findAll()) {
+            if (settings.getNotificationInterval() > 0) {
+                intervals.put(settings.getChatId(), settings.getNotificationInterval());
+            }
+            if (settings.getNotificationThreshold() > 0) {
+                thresholds.put(settings.getChatId(), settings.getNotificationThreshold());
+            }
+        }
+        watchlistStore.markLoaded();
+        watchlistIndex.getTickers().forEach(priceHistory::track);
+        log.info("Watchlists loaded for {} chats, {} with own notification interval, {} with own threshold",
+                chats, intervals.size(), thresholds.size());
+    }
+
+    public int getInterval(long chatId) {
+        return intervals.getOrDefault(chatId, 0);
+    }
+
+    public double getThreshold(long chatId) {
+        return thresholds.getOrDefault(chatId, 0.0);
+    }
+
+    // 0 возвращает чат к периоду по умолчанию
+    @Transactional
+    public void setInterval(long chatId, int seconds) {
+        updateSettings(chatId, settings -> settings.setNotificationInterval(seconds));
+        afterCommit(() -> {
+            if (seconds == 0) {
+                intervals.remove(chatId);
+            } else {
+                intervals.put(chatId, seconds);
+            }
+        });
+        log.info("Notification interval for chatId {} set to {}s", chatId, seconds);
+    }
+
+    // 0 возвращает чат к порогу по умолчанию
+    @Transactional
+    public void setThreshold(long chatId, double percent) {
+        updateSettings(chatId, settings -> settings.setNotificationThreshold(percent));
+        afterCommit(() -> {
+            if (percent == 0) {
+                thresholds.remove(chatId);
+            } else {
+                thresholds.put(chatId, percent);
+            }
+        });
+        log.info("Notification threshold for chatId {} set to {}%", chatId, percent);
+    }
+
+    // Строка настроек существует, только пока у чата есть хотя бы одно значение не по умолчанию
+    private void updateSettings(long chatId, Consumer<ChatSettings> update) {
+        ChatSettings settings = chatSettingsRepository.findById(chatId).orElseGet(() -> {
+            ChatSettings created = new ChatSettings();
+            created.setChatId(chatId);
+            return created;
+        });
+        update.accept(settings);
+        if (settings.getNotificationInterval() == 0 && settings.getNotificationThreshold() == 0) {
+            chatSettingsRepository.deleteById(chatId);
+        } else {
+            chatSettingsRepository.save(settings);
+        }
+    }
+
+    public Set<String> getWatchedTickers() {
+        Set<String> tickers = watchlistIndex.getTickers();
+        log.debug("Found {} distinct watched tickers", tickers.size());
+        return tickers;
+    }
+
+    public boolean isValidUsdtPair(String ticker) {
+        return pairSnapshot.containsTicker(ticker);
     }
 
     public Set<Long> getAllChatIds() {
         log.debug("Fetching all distinct chatIds with watchlists");
-        Set<Long> chatIds = watchlistRepository.findDistinctChatIds();
+        if (!watchlistStore.isLoaded()) {
+            return watchlistRepository.findDistinctChatIds();
+        }
+        Set<Long> chatIds = new HashSet<>(watchlistStore.size() * 2);
+        watchlistStore.forEach((chatId, tickers) -> chatIds.add(chatId));
         log.info("Found {} distinct chatIds: {}", chatIds.size(), chatIds);
         return chatIds;
     }
 
+    public PairSnapshot getPairSnapshot() {
+        return pairSnapshot;
+    }
+
     public List<String> getUsdtPairs(int page, int size) {
         log.debug("Fetching USDT pairs for page: {}, size: {}", page, size);
-        List<String> sortedPairs = new ArrayList<>(validUsdtPairs);
-        sortedPairs.sort(String::compareTo); // Сортировка для предсказуемого порядка
-        int start = page * size;
-        int end = Math.min(start + size, sortedPairs.size());
-        if (start >= sortedPairs.size()) {
-            log.warn("Requested page {} is out of bounds, total pairs: {}", page, sortedPairs.size());
-            return new ArrayList<>();
-        }
-        List<String> result = sortedPairs.subList(start, end);
-        log.info("Returning {} USDT pairs for page {}: {}", result.size(), page, result);
+        PairSnapshot snapshot = pairSnapshot;
+        List<String> result = snapshot.page(page, size);
+        if (result.isEmpty()) {
+            log.warn("Requested page {} is out of bounds, total pairs: {}", page, snapshot.size());
+        }
+        log.debug("Returning {} USDT pairs for page {}", result.size(), page);
         return result;
     }
 
-    public String getUsdtPairsCount() {
-        log.debug("Fetching total count of USDT pairs");
-        int count = validUsdtPairs.size();
-        log.info("Total USDT pairs count: {}", count);
-        return String.valueOf(count);
-    }
-
     @Scheduled(fixedRate = 3600000) // update every 1h
     public void updateValidUsdtPairs() {
         initializeUsdtPairs();
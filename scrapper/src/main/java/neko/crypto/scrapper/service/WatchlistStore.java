@@ -0,0 +1,212 @@
+package neko.crypto.scrapper.service;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+// Вотчлисты в памяти: chatId -> отсортированный int[] индексов PriceTable.
+// Открытая адресация на примитивных массивах: на миллион чатов ~24 МБ таблицы плюс сами массивы тикеров.
+// Массивы тикеров не изменяются после публикации, поэтому читатели получают их без копирования.
+@Component
+public class WatchlistStore {
+    private static final int[] EMPTY = new int[0];
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final StampedLock lock = new StampedLock();
+    private Table table = new Table(INITIAL_CAPACITY);
+    private int size;
+    private volatile boolean loaded;
+
+    @FunctionalInterface
+    public interface ChatConsumer {
+        void accept(long chatId, int[] tickers);
+    }
+
+    public int[] get(long chatId) {
+        long stamp = lock.tryOptimisticRead();
+        int[] tickers = table.get(chatId);
+        if (!lock.validate(stamp)) {
+            stamp = lock.readLock();
+            try {
+                tickers = table.get(chatId);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+        return tickers != null ? tickers : EMPTY;
+    }
+
+    public boolean contains(long chatId, int ticker) {
+        return Arrays.binarySearch(get(chatId), ticker) >= 0;
+    }
+
+    public boolean add(long chatId, int ticker) {
+        long stamp = lock.writeLock();
+        try {
+            int[] tickers = table.get(chatId);
+            if (tickers == null) {
+                if (size + 1 > table.capacity() * 3 / 4) {
+                    table = table.resize(table.capacity() * 2);
+                }
+                table.put(chatId, new int[]{ticker});
+                size++;
+                return true;
+            }
+            int position = Arrays.binarySearch(tickers, ticker);
+            if (position >= 0) {
+                return false;
+            }
+            int insert = -position - 1;
+            int[] updated = new int[tickers.length + 1];
+            System.arraycopy(tickers, 0, updated, 0, insert);
+            updated[insert] = ticker;
+            System.arraycopy(tickers, insert, updated, insert + 1, tickers.length - insert);
+            table.put(chatId, updated);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public boolean remove(long chatId, int ticker) {
+        long stamp = lock.writeLock();
+        try {
+            int[] tickers = table.get(chatId);
+            int position = tickers != null ? Arrays.binarySearch(tickers, ticker) : -1;
+            if (position < 0) {
+                return false;
+            }
+            if (tickers.length == 1) {
+                table.remove(chatId);
+                size--;
+                return true;
+            }
+            int[] updated = new int[tickers.length - 1];
+            System.arraycopy(tickers, 0, updated, 0, position);
+            System.arraycopy(tickers, position + 1, updated, position, tickers.length - position - 1);
+            table.put(chatId, updated);
+            return true;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    // Обход по копии таблицы: запись не блокируется, пока потребитель пишет ответ в сеть
+    public int forEach(ChatConsumer consumer) {
+        long[] keys;
+        int[][] values;
+        long stamp = lock.readLock();
+        try {
+            keys = table.keys.clone();
+            values = table.values.clone();
+        } finally {
+            lock.unlockRead(stamp);
+        }
+        int chats = 0;
+        for (int slot = 0; slot < keys.length; slot++) {
+            if (values[slot] != null) {
+                consumer.accept(keys[slot], values[slot]);
+                chats++;
+            }
+        }
+        return chats;
+    }
+
+    public int size() {
+        long stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    public void markLoaded() {
+        loaded = true;
+    }
+
+    // Линейное пробирование; слот занят, если в нём есть массив тикеров
+    private static final class Table {
+        private final long[] keys;
+        private final int[][] values;
+        private final int mask;
+
+        Table(int capacity) {
+            keys = new long[capacity];
+            values = new int[capacity][];
+            mask = capacity - 1;
+        }
+
+        int capacity() {
+            return keys.length;
+        }
+
+        int[] get(long chatId) {
+            int slot = hash(chatId) & mask;
+            for (int probes = 0; probes <= mask; probes++) {
+                int[] tickers = values[slot];
+                if (tickers == null) {
+                    return null;
+                }
+                if (keys[slot] == chatId) {
+                    return tickers;
+                }
+                slot = (slot + 1) & mask;
+            }
+            return null;
+        }
+
+        void put(long chatId, int[] tickers) {
+            int slot = hash(chatId) & mask;
+            while (values[slot] != null && keys[slot] != chatId) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = chatId;
+            values[slot] = tickers;
+        }
+
+        // Удаление со сдвигом хвоста цепочки, без надгробий
+        void remove(long chatId) {
+            int slot = hash(chatId) & mask;
+            while (values[slot] != null && keys[slot] != chatId) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] == null) {
+                return;
+            }
+            int hole = slot;
+            int next = (hole + 1) & mask;
+            while (values[next] != null) {
+                int home = hash(keys[next]) & mask;
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    keys[hole] = keys[next];
+                    values[hole] = values[next];
+                    hole = next;
+                }
+                next = (next + 1) & mask;
+            }
+            keys[hole] = 0;
+            values[hole] = null;
+        }
+
+        Table resize(int capacity) {
+            Table resized = new Table(capacity);
+            for (int slot = 0; slot < keys.length; slot++) {
+                if (values[slot] != null) {
+                    resized.put(keys[slot], values[slot]);
+                }
+            }
+            return resized;
+        }
+
+        private static int hash(long chatId) {
+            long h = chatId * 0x9E3779B97F4A7C15L;
+            return (int) (h ^ (h >>> 32));
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package neko.crypto.scrapper.client.api;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import neko.crypto.scrapper.service.CryptoService;
+import neko.crypto.scrapper.service.PriceSourceRouter;
+import neko.crypto.scrapper.service.PriceTable;
+import okhttp3.OkHttpClient;
+import okhttp3.WebSocket;
+import okhttp3.WebSocketListener;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Стрим против локальной заглушки Binance на MockWebServer: подписка, приём цен, переподключение и переход на REST
+class BinanceStreamClientTest {
+    private static final Duration STALE_AFTER = Duration.ofMillis(300);
+    private static final long FRAME_TIMEOUT_SECONDS = 5;
+
+    private final MockWebServer server = new MockWebServer();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final PriceTable priceTable = new PriceTable(16);
+    private final BinanceExchange exchange = new BinanceExchange();
+    private final RecordingPriceSource restSource = new RecordingPriceSource();
+    private BinanceStreamClient streamClient;
+    private PriceSourceRouter router;
+
+    @BeforeEach
+    void startExchange() throws IOException {
+        // Первое соединение и два переподключения
+        for (int i = 0; i < 3; i++) {
+            server.enqueue(new MockResponse().withWebSocketUpgrade(exchange));
+        }
+        server.start();
+        priceTable.register("BTCUSDT");
+        priceTable.register("ETHUSDT");
+        priceTable.retainListed(List.of("BTCUSDT", "ETHUSDT"));
+        String streamUrl = server.url("/ws").toString().replaceFirst("^http", "ws");
+        streamClient = new BinanceStreamClient(new OkHttpClient(), objectMapper, priceTable, true, streamUrl, STALE_AFTER);
+        router = new PriceSourceRouter(List.of(restSource), meterRegistry, new String[] {restSource.name()}, false,
+                Duration.ofMillis(50), Duration.ofMillis(100), Duration.ofSeconds(5), Duration.ofHours(1));
+    }
+
+    @AfterEach
+    void stopExchange() throws IOException {
+        streamClient.stop();
+        router.shutdown();
+        server.shutdown();
+    }
+
+    @Test
+    void subscribesToAllMiniTickersOnConnect() throws Exception {
+        streamClient.start();
+
+        JsonNode subscribe = objectMapper.readTree(exchange.nextFrame());
+        assertThat(subscribe.get("method").asText()).isEqualTo("SUBSCRIBE");
+        assertThat(subscribe.get("params")).hasSize(1);
+        assertThat(subscribe.get("params").get(0).asText()).isEqualTo("!miniTicker@arr");
+        assertThat(subscribe.get("id").asInt()).isEqualTo(1);
+    }
+
+    @Test
+    void writesMiniTickersIntoPriceTable() throws Exception {
+        streamClient.start();
+        exchange.nextFrame();
+        WebSocket socket = exchange.socket();
+
+        socket.send("{\"result\":null,\"id\":1}");
+        socket.send("[" + miniTicker("BTCUSDT", "65000.50") + "," + miniTicker("ETHUSDT", "3100.25") + ","
+                + miniTicker("ETHBTC", "0.047") + "]");
+
+        int btc = priceTable.indexOf("BTCUSDT");
+        int eth = priceTable.indexOf("ETHUSDT");
+        await(() -> priceTable.freshPrice(eth, 10_000) == 3100.25);
+        assertThat(priceTable.freshPrice(btc, 10_000)).isEqualTo(65000.50);
+        // Пары не к USDT в таблицу не попадают
+        assertThat(priceTable.indexOf("ETHBTC")).isNegative();
+        assertThat(streamClient.isStale()).isFalse();
+    }
+
+    @Test
+    void reconnectsAndResubscribesAfterServerCloses() throws Exception {
+        streamClient.start();
+        exchange.nextFrame();
+
+        exchange.socket().close(1001, "Going away");
+
+        JsonNode resubscribe = objectMapper.readTree(exchange.nextFrame());
+        assertThat(resubscribe.get("method").asText()).isEqualTo("SUBSCRIBE");
+        assertThat(resubscribe.get("id").asInt()).isEqualTo(2);
+        assertThat(server.getRequestCount()).isEqualTo(2);
+
+        exchange.socket().send("[" + miniTicker("BTCUSDT", "64000") + "]");
+        int btc = priceTable.indexOf("BTCUSDT");
+        await(() -> priceTable.freshPrice(btc, 10_000) == 64000);
+    }
+
+    @Test
+    void fallsBackToRestWhenWatchdogFindsStreamStale() throws Exception {
+        CryptoService cryptoService = new CryptoService(router, priceTable, streamClient, meterRegistry, STALE_AFTER,
+                Duration.ofSeconds(30), Duration.ofSeconds(20), Duration.ofSeconds(5));
+        streamClient.start();
+        exchange.nextFrame();
+        exchange.socket().send("[" + miniTicker("BTCUSDT", "65000") + "]");
+        await(() -> !streamClient.isStale());
+
+        // Пока стрим жив, REST не спрашивается
+        cryptoService.refreshAllPrices();
+        assertThat(restSource.requests).isEmpty();
+
+        await(streamClient::isStale);
+        streamClient.checkStale();
+        cryptoService.refreshAllPrices();
+
+        assertThat(restSource.requests).hasSize(1);
+        assertThat(restSource.requests.get(0)).containsExactlyInAnyOrder("BTCUSDT", "ETHUSDT");
+        assertThat(priceTable.freshPrice(priceTable.indexOf("ETHUSDT"), 10_000)).isEqualTo(RecordingPriceSource.PRICE);
+        // Сторож оборвал зависшее соединение, и клиент подписался заново
+        JsonNode resubscribe = objectMapper.readTree(exchange.nextFrame());
+        assertThat(resubscribe.get("id").asInt()).isEqualTo(2);
+    }
+
+    private static String miniTicker(String symbol, String close) {
+        return "{\"e\":\"24hrMiniTicker\",\"E\":" + System.currentTimeMillis() + ",\"s\":\"" + symbol + "\",\"c\":\""
+                + close + "\",\"o\":\"1\",\"h\":\"1\",\"l\":\"1\",\"v\":\"1\",\"q\":\"1\"}";
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(FRAME_TIMEOUT_SECONDS).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within %d s", FRAME_TIMEOUT_SECONDS).isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Серверная сторона заглушки: запоминает присланные клиентом кадры и соединение последнего из них
+    private static final class BinanceExchange extends WebSocketListener {
+        private final BlockingQueue<String> frames = new LinkedBlockingQueue<>();
+        private volatile WebSocket current;
+
+        @Override
+        public void onMessage(WebSocket webSocket, String text) {
+            current = webSocket;
+            frames.add(text);
+        }
+
+        @Override
+        public void onClosing(WebSocket webSocket, int code, String reason) {
+            webSocket.close(code, null);
+        }
+
+        String nextFrame() throws InterruptedException {
+            String frame = frames.poll(FRAME_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            assertThat(frame).as("no frame from the client within %d s", FRAME_TIMEOUT_SECONDS).isNotNull();
+            return frame;
+        }
+
+        // Соединение, по которому пришёл последний кадр
+        WebSocket socket() {
+            return current;
+        }
+    }
+
+    private static final class RecordingPriceSource implements PriceSource {
+        static final double PRICE = 42.0;
+
+        private final List<Collection<String>> requests = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String name() {
+            return "rest";
+        }
+
+        @Override
+        public int fetchPrices(Collection<String> symbols, TickerPriceParser.PriceSink sink) {
+            requests.add(List.copyOf(symbols));
+            int accepted = 0;
+            for (String symbol : symbols) {
+                if (sink.accept(symbol, PRICE)) {
+                    accepted++;
+                }
+            }
+            return accepted;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package neko.crypto.scrapper.service;
+
+import neko.crypto.scrapper.model.AlertDirection;
+import neko.crypto.scrapper.model.FiredAlert;
+import neko.crypto.scrapper.model.PriceAlert;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AlertEngineTest {
+    private final PriceTable priceTable = new PriceTable(8);
+    private AlertEngine engine;
+    private int btc;
+    private long nextId = 1;
+
+    @BeforeEach
+    void setUp() {
+        btc = priceTable.register("BTCUSDT");
+        engine = new AlertEngine(priceTable, Duration.ofHours(1));
+    }
+
+    @Test
+    void firesAboveAlertWhenPriceCrossesUp() {
+        tick(90);
+        PriceAlert alert = alert(AlertDirection.ABOVE, 100);
+
+        tick(99);
+        assertThat(drain()).isEmpty();
+
+        tick(101);
+        List<FiredAlert> fired = drain();
+        assertThat(fired).hasSize(1);
+        assertThat(fired.get(0).id()).isEqualTo(alert.getId());
+        assertThat(fired.get(0).price()).isEqualTo(101.0);
+        assertThat(fired.get(0).direction()).isEqualTo(AlertDirection.ABOVE);
+    }
+
+    @Test
+    void firesBelowAlertWhenPriceCrossesDown() {
+        tick(110);
+        PriceAlert alert = alert(AlertDirection.BELOW, 100);
+
+        tick(120);
+        assertThat(drain()).isEmpty();
+
+        tick(100);
+        assertThat(ids(drain())).containsExactly(alert.getId());
+    }
+
+    @Test
+    void firesEveryThresholdJumpedOverInOneTick() {
+        tick(90);
+        PriceAlert first = alert(AlertDirection.ABOVE, 100);
+        PriceAlert second = alert(AlertDirection.ABOVE, 105);
+        PriceAlert sameThreshold = alert(AlertDirection.ABOVE, 105);
+        alert(AlertDirection.ABOVE, 120);
+        alert(AlertDirection.BELOW, 80);
+
+        tick(110);
+
+        assertThat(ids(drain())).containsExactly(first.getId(), second.getId(), sameThreshold.getId());
+    }
+
+    @Test
+    void firesEachAlertOnlyOnce() {
+        tick(90);
+        alert(AlertDirection.ABOVE, 100);
+
+        tick(101);
+        tick(95);
+        tick(105);
+
+        assertThat(drain()).hasSize(1);
+    }
+
+    @Test
+    void firesImmediatelyWhenThresholdIsAlreadyPassed() {
+        tick(110);
+
+        PriceAlert alert = alert(AlertDirection.ABOVE, 100);
+
+        assertThat(ids(drain())).containsExactly(alert.getId());
+    }
+
+    @Test
+    void firstPriceFiresAlertsAddedBeforeAnyPrice() {
+        PriceAlert above = alert(AlertDirection.ABOVE, 100);
+        PriceAlert below = alert(AlertDirection.BELOW, 50);
+
+        tick(150);
+
+        assertThat(ids(drain())).containsExactly(above.getId());
+        tick(40);
+        assertThat(ids(drain())).containsExactly(below.getId());
+    }
+
+    @Test
+    void removedAlertDoesNotFire() {
+        tick(90);
+        PriceAlert alert = alert(AlertDirection.ABOVE, 100);
+
+        assertThat(engine.remove(btc, alert)).isTrue();
+        assertThat(engine.remove(btc, alert)).isFalse();
+        tick(110);
+
+        assertThat(drain()).isEmpty();
+    }
+
+    @Test
+    void keepsFiredAlertUntilAcknowledged() {
+        engine = new AlertEngine(priceTable, Duration.ZERO);
+        tick(90);
+        PriceAlert alert = alert(AlertDirection.ABOVE, 100);
+        tick(110);
+
+        assertThat(ids(drain())).containsExactly(alert.getId());
+        // Подтверждение не пришло: уведомление выдаётся снова
+        assertThat(ids(drain())).containsExactly(alert.getId());
+
+        assertThat(engine.ack(List.of(alert.getId()))).isEqualTo(1);
+        assertThat(drain()).isEmpty();
+        assertThat(engine.ack(List.of(alert.getId()))).isZero();
+    }
+
+    @Test
+    void doesNotRedeliverBeforeLeaseExpires() {
+        tick(90);
+        alert(AlertDirection.ABOVE, 100);
+        tick(110);
+
+        assertThat(drain()).hasSize(1);
+        assertThat(drain()).isEmpty();
+    }
+
+    @Test
+    void drainsNoMoreThanRequested() {
+        tick(90);
+        for (int i = 0; i < 5; i++) {
+            alert(AlertDirection.ABOVE, 100 + i);
+        }
+        tick(200);
+
+        List<FiredAlert> target = new ArrayList<>();
+        assertThat(engine.drainFired(target, 3)).isEqualTo(3);
+        assertThat(engine.drainFired(target, 3)).isEqualTo(2);
+        assertThat(target).hasSize(5);
+    }
+
+    private void tick(double price) {
+        priceTable.update(btc, price, System.currentTimeMillis());
+    }
+
+    private PriceAlert alert(AlertDirection direction, double threshold) {
+        PriceAlert alert = new PriceAlert();
+        alert.setId(nextId++);
+        alert.setChatId(42L);
+        alert.setTicker("BTCUSDT");
+        alert.setDirection(direction);
+        alert.setThreshold(threshold);
+        engine.add(btc, alert);
+        return alert;
+    }
+
+    private List<FiredAlert> drain() {
+        List<FiredAlert> fired = new ArrayList<>();
+        engine.drainFired(fired, 100);
+        return fired;
+    }
+
+    private static List<Long> ids(List<FiredAlert> fired) {
+        return fired.stream().map(FiredAlert::id).toList();
+    }
+}
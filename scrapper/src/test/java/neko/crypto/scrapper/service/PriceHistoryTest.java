@@ -0,0 +1,115 @@
+package neko.crypto.scrapper.service;
+
+import neko.crypto.scrapper.model.Candle;
+import neko.crypto.scrapper.model.CandleResolution;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PriceHistoryTest {
+    private static final long MINUTE = 60_000;
+
+    private final PriceTable priceTable = new PriceTable(8);
+    private final WatchlistIndex watchlistIndex = new WatchlistIndex();
+    private final PriceHistory history = new PriceHistory(priceTable, watchlistIndex, Duration.ofSeconds(15), 240);
+    private int btc;
+    private long minute;
+
+    @BeforeEach
+    void setUp() {
+        btc = priceTable.register("BTCUSDT");
+        priceTable.register("ETHUSDT");
+        priceTable.retainListed(List.of("BTCUSDT", "ETHUSDT"));
+        minute = System.currentTimeMillis() / MINUTE * MINUTE;
+    }
+
+    @Test
+    void buildsCandlesFromTicksOfWatchedTicker() {
+        watch(1, "BTCUSDT");
+        tick(minute - MINUTE + 5_000, 8);
+        tick(minute + 1_000, 10);
+        tick(minute + 20_000, 12);
+        tick(minute + 40_000, 9);
+        tick(minute + 50_000, 11);
+
+        List<Candle> candles = history.getCandles("btc", CandleResolution.M1, 10);
+
+        assertThat(candles).containsExactly(
+                new Candle(minute - MINUTE, 8, 8, 8, 8),
+                new Candle(minute, 10, 12, 9, 11));
+        assertThat(history.getCandles("BTCUSDT", CandleResolution.M1, 1)).containsExactly(new Candle(minute, 10, 12, 9, 11));
+    }
+
+    @Test
+    void keepsPricePrecisionOfFloatStorage() {
+        watch(1, "BTCUSDT");
+        tick(minute + 1_000, 0.1);
+
+        assertThat(history.getCandles("BTC", CandleResolution.M1, 1).get(0).close()).isEqualTo(0.1);
+    }
+
+    @Test
+    void recordsNothingForUnwatchedTicker() {
+        tick(minute + 1_000, 10);
+
+        assertThatThrownBy(() -> history.getCandles("BTC", CandleResolution.M1, 10))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("watchlist");
+    }
+
+    @Test
+    void keepsHistoryWhileAnotherChatStillWatchesTicker() {
+        watch(1, "BTCUSDT");
+        watch(2, "BTCUSDT");
+        tick(minute + 1_000, 10);
+
+        unwatch(1, "BTCUSDT");
+
+        assertThat(history.getCandles("BTC", CandleResolution.M1, 10)).hasSize(1);
+    }
+
+    @Test
+    void freesRingWhenTickerLeavesEveryWatchlist() {
+        watch(1, "BTCUSDT");
+        tick(minute + 1_000, 10);
+
+        unwatch(1, "BTCUSDT");
+        tick(minute + 2_000, 11);
+
+        assertThatThrownBy(() -> history.getCandles("BTC", CandleResolution.M1, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        // Вернувшийся в вотчлист тикер начинает историю заново
+        watch(1, "BTCUSDT");
+        assertThat(history.getCandles("BTC", CandleResolution.M1, 10)).isEmpty();
+    }
+
+    @Test
+    void rejectsResolutionNotAlignedWithBucket() {
+        PriceHistory odd = new PriceHistory(priceTable, watchlistIndex, Duration.ofSeconds(7), 240);
+        watchlistIndex.add(1, "BTCUSDT");
+        odd.track("BTCUSDT");
+
+        assertThatThrownBy(() -> odd.getCandles("BTC", CandleResolution.M1, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    // Тот же порядок, что у WatchlistService: индекс обновляется до track и до release
+    private void watch(long chatId, String symbol) {
+        watchlistIndex.add(chatId, symbol);
+        history.track(symbol);
+    }
+
+    private void unwatch(long chatId, String symbol) {
+        watchlistIndex.remove(chatId, symbol);
+        history.release(symbol);
+    }
+
+    private void tick(long timestamp, double price) {
+        priceTable.update(btc, price, timestamp);
+    }
+}
@@ -0,0 +1,262 @@
+package neko.crypto.scrapper.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.tomakehurst.wiremock.WireMockServer;
+import com.github.tomakehurst.wiremock.client.MappingBuilder;
+import com.github.tomakehurst.wiremock.client.ResponseDefinitionBuilder;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import neko.crypto.scrapper.client.api.BinancePriceSource;
+import neko.crypto.scrapper.client.api.BybitPriceSource;
+import neko.crypto.scrapper.client.api.TickerPriceParser;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.equalTo;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.okJson;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlPathEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.options;
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Маршрутизатор с настоящими клиентами Binance и Bybit против локальных WireMock заглушек бирж
+class PriceSourceRouterTest {
+    private static final String BINANCE_PRICES = "/api/v3/ticker/price";
+    private static final String BYBIT_TICKERS = "/v5/market/tickers";
+    private static final Duration MIN_HEDGE_DELAY = Duration.ofMillis(50);
+    private static final Duration INITIAL_HEDGE_DELAY = Duration.ofMillis(100);
+
+    private final WireMockServer binance = new WireMockServer(options().dynamicPort());
+    private final WireMockServer bybit = new WireMockServer(options().dynamicPort());
+    private final OkHttpClient client = new OkHttpClient();
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private PriceSourceRouter router;
+
+    @BeforeEach
+    void startExchanges() {
+        binance.start();
+        bybit.start();
+    }
+
+    @AfterEach
+    void stopExchanges() {
+        if (router != null) {
+            router.shutdown();
+        }
+        binance.stop();
+        bybit.stop();
+    }
+
+    @Test
+    void hedgesToNextSourceOnceP95DelayPasses() {
+        binance.stubFor(binancePrices().willReturn(binanceBody(1.0, "BTCUSDT", "ETHUSDT")
+                .withFixedDelay(1500)));
+        bybit.stubFor(bybitTickers().willReturn(bybitBody(2.0, "BTCUSDT", "ETHUSDT")));
+        router = router("binance,bybit", true);
+
+        long startedAt = System.nanoTime();
+        Map<String, Double> prices = new HashMap<>();
+        int accepted = router.fetchPrices(List.of("BTCUSDT", "ETHUSDT"), collect(prices));
+
+        assertThat(Duration.ofNanos(System.nanoTime() - startedAt)).isLessThan(Duration.ofMillis(1000));
+        assertThat(accepted).isEqualTo(2);
+        assertThat(prices).containsEntry("BTCUSDT", 2.0).containsEntry("ETHUSDT", 2.0);
+        assertThat(counter("prices.source.hedges", "bybit")).isEqualTo(1);
+        assertThat(counter("prices.source.wins", "bybit")).isEqualTo(1);
+        assertThat(counter("prices.source.wins", "binance")).isZero();
+    }
+
+    @Test
+    void failsOverToNextSourceOnError() {
+        binance.stubFor(get(urlPathEqualTo(BINANCE_PRICES)).willReturn(aResponse().withStatus(503)
+                .withBody("{\"code\":-1001,\"msg\":\"Internal error\"}")));
+        bybit.stubFor(bybitTickers().willReturn(bybitBody(2.0, "BTCUSDT", "ETHUSDT")));
+        // Без хеджа следующий источник может быть спрошен только из-за ошибки
+        router = router("binance,bybit", false);
+
+        Map<String, Double> prices = new HashMap<>();
+        int accepted = router.fetchPrices(List.of("BTCUSDT", "ETHUSDT"), collect(prices));
+
+        assertThat(accepted).isEqualTo(2);
+        assertThat(prices).containsEntry("BTCUSDT", 2.0);
+        assertThat(requests("binance", "error")).isEqualTo(1);
+        assertThat(counter("prices.source.wins", "bybit")).isEqualTo(1);
+    }
+
+    @Test
+    void failsOverWhenBybitReportsErrorInBody() {
+        bybit.stubFor(bybitTickers().willReturn(okJson("{\"retCode\":10016,\"retMsg\":\"Server error.\",\"result\":{},"
+                + "\"retExtInfo\":{},\"time\":1}")));
+        binance.stubFor(binancePrices().willReturn(binanceBody(1.0, "BTCUSDT")));
+        router = router("bybit,binance", false);
+
+        Map<String, Double> prices = new HashMap<>();
+        router.fetchPrices(List.of("BTCUSDT"), collect(prices));
+
+        assertThat(prices).containsEntry("BTCUSDT", 1.0);
+        assertThat(requests("bybit", "error")).isEqualTo(1);
+    }
+
+    @Test
+    void returnsZeroWhenEverySourceFails() {
+        binance.stubFor(get(urlPathEqualTo(BINANCE_PRICES)).willReturn(aResponse().withStatus(503)));
+        bybit.stubFor(bybitTickers().willReturn(aResponse().withStatus(502)));
+        router = router("binance,bybit", true);
+
+        Map<String, Double> prices = new HashMap<>();
+
+        assertThat(router.fetchPrices(List.of("BTCUSDT", "ETHUSDT"), collect(prices))).isZero();
+        assertThat(prices).isEmpty();
+    }
+
+    @Test
+    void ranksFasterSourceFirst() {
+        binance.stubFor(binancePrices().willReturn(binanceBody(1.0, "BTCUSDT", "ETHUSDT")
+                .withFixedDelay(400)));
+        bybit.stubFor(bybitTickers().willReturn(bybitBody(2.0, "BTCUSDT", "ETHUSDT")));
+        router = router("binance,bybit", true);
+
+        // Первый запрос хеджируется, и проигравший Binance дорабатывает ради своей статистики
+        router.fetchPrices(List.of("BTCUSDT", "ETHUSDT"), collect(new HashMap<>()));
+        await(() -> requests("binance", "success") == 1);
+        binance.resetRequests();
+
+        Map<String, Double> prices = new HashMap<>();
+        router.fetchPrices(List.of("BTCUSDT", "ETHUSDT"), collect(prices));
+
+        assertThat(prices).containsEntry("BTCUSDT", 2.0);
+        assertThat(binance.findAll(getRequestedFor(urlPathEqualTo(BINANCE_PRICES)))).isEmpty();
+        assertThat(counter("prices.source.wins", "bybit")).isEqualTo(2);
+    }
+
+    @Test
+    void demotesFailingSource() {
+        binance.stubFor(get(urlPathEqualTo(BINANCE_PRICES)).willReturn(aResponse().withStatus(503)));
+        bybit.stubFor(bybitTickers().willReturn(bybitBody(2.0, "BTCUSDT", "ETHUSDT")));
+        router = router("binance,bybit", false);
+        for (int i = 0; i < 3; i++) {
+            router.fetchPrices(List.of("BTCUSDT", "ETHUSDT"), collect(new HashMap<>()));
+        }
+
+        // Binance снова здоров, но уже стоит ниже Bybit и не спрашивается
+        binance.resetAll();
+        binance.stubFor(binancePrices().willReturn(binanceBody(1.0, "BTCUSDT", "ETHUSDT")));
+        Map<String, Double> prices = new HashMap<>();
+        router.fetchPrices(List.of("BTCUSDT", "ETHUSDT"), collect(prices));
+
+        assertThat(prices).containsEntry("BTCUSDT", 2.0);
+        assertThat(binance.findAll(getRequestedFor(urlPathEqualTo(BINANCE_PRICES)))).isEmpty();
+    }
+
+    @Test
+    void fillsSymbolsMissingFromWinningSource() {
+        // У Bybit нет пары XYZUSDT, которая торгуется на Binance
+        bybit.stubFor(bybitTickers().willReturn(bybitBody(2.0, "BTCUSDT", "ETHUSDT")));
+        binance.stubFor(get(urlPathEqualTo(BINANCE_PRICES)).withQueryParam("symbol", equalTo("XYZUSDT"))
+                .willReturn(okJson("{\"symbol\":\"XYZUSDT\",\"price\":\"3.00000000\"}")));
+        router = router("bybit,binance", false);
+
+        Map<String, Double> prices = new HashMap<>();
+        int accepted = router.fetchPrices(List.of("BTCUSDT", "ETHUSDT", "XYZUSDT"), collect(prices));
+
+        assertThat(accepted).isEqualTo(3);
+        assertThat(prices).containsEntry("BTCUSDT", 2.0).containsEntry("ETHUSDT", 2.0).containsEntry("XYZUSDT", 3.0);
+        // Дозапрос только недостающего символа, а не всего списка
+        binance.verify(1, getRequestedFor(urlPathEqualTo(BINANCE_PRICES)).withQueryParam("symbol", equalTo("XYZUSDT")));
+        assertThat(counter("prices.source.partial", "bybit")).isEqualTo(1);
+        assertThat(counter("prices.source.wins", "bybit")).isEqualTo(1);
+    }
+
+    @Test
+    void returnsCoveredPricesWhenNoSourceHasSymbol() {
+        bybit.stubFor(bybitTickers().willReturn(bybitBody(2.0, "BTCUSDT")));
+        binance.stubFor(get(urlPathEqualTo(BINANCE_PRICES)).withQueryParam("symbol", equalTo("XYZUSDT"))
+                .willReturn(aResponse().withStatus(400).withBody("{\"code\":-1121,\"msg\":\"Invalid symbol.\"}")));
+        router = router("bybit,binance", false);
+
+        Map<String, Double> prices = new HashMap<>();
+        int accepted = router.fetchPrices(List.of("BTCUSDT", "XYZUSDT"), collect(prices));
+
+        assertThat(accepted).isEqualTo(1);
+        assertThat(prices).containsOnlyKeys("BTCUSDT");
+    }
+
+    private PriceSourceRouter router(String order, boolean hedgeEnabled) {
+        return new PriceSourceRouter(List.of(
+                new BinancePriceSource(client, objectMapper, binance.baseUrl()),
+                new BybitPriceSource(client, objectMapper, bybit.baseUrl())),
+                meterRegistry, order.split(","), hedgeEnabled, MIN_HEDGE_DELAY, INITIAL_HEDGE_DELAY,
+                Duration.ofSeconds(5), Duration.ofHours(1));
+    }
+
+    private static MappingBuilder binancePrices() {
+        return get(urlPathEqualTo(BINANCE_PRICES));
+    }
+
+    private static ResponseDefinitionBuilder binanceBody(double price, String... symbols) {
+        StringBuilder body = new StringBuilder("[");
+        for (String symbol : symbols) {
+            if (body.length() > 1) {
+                body.append(',');
+            }
+            body.append(String.format(Locale.ROOT, "{\"symbol\":\"%s\",\"price\":\"%.8f\"}", symbol, price));
+        }
+        return okJson(body.append(']').toString());
+    }
+
+    private static MappingBuilder bybitTickers() {
+        return get(urlPathEqualTo(BYBIT_TICKERS)).withQueryParam("category", equalTo("spot"));
+    }
+
+    private static ResponseDefinitionBuilder bybitBody(double price, String... symbols) {
+        StringBuilder list = new StringBuilder();
+        for (String symbol : symbols) {
+            if (!list.isEmpty()) {
+                list.append(',');
+            }
+            list.append(String.format(Locale.ROOT, "{\"symbol\":\"%s\",\"lastPrice\":\"%.8f\",\"volume24h\":\"1\"}", symbol, price));
+        }
+        return okJson("{\"retCode\":0,\"retMsg\":\"OK\",\"result\":{\"category\":\"spot\",\"list\":[" + list
+                + "]},\"retExtInfo\":{},\"time\":1}");
+    }
+
+    private static TickerPriceParser.PriceSink collect(Map<String, Double> prices) {
+        return (symbol, price) -> {
+            prices.put(symbol, price);
+            return true;
+        };
+    }
+
+    private double counter(String name, String source) {
+        return meterRegistry.get(name).tag("source", source).counter().count();
+    }
+
+    private long requests(String source, String outcome) {
+        return meterRegistry.get("prices.source.requests").tag("source", source).tag("outcome", outcome).timer().count();
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within 5 s").isLessThan(deadline);
+            try {
+                Thread.sleep(10);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+}
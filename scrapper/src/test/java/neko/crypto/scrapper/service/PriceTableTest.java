@@ -0,0 +1,149 @@
+package neko.crypto.scrapper.service;
+
+import neko.crypto.scrapper.model.CryptoPrice;
+import neko.crypto.scrapper.model.Tickers;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PriceTableTest {
+    private static final long MAX_AGE = 60_000;
+
+    private final PriceTable priceTable = new PriceTable(8);
+
+    @Test
+    void registersSymbolOnce() {
+        int btc = priceTable.register("BTCUSDT");
+
+        assertThat(priceTable.register("BTCUSDT")).isEqualTo(btc);
+        assertThat(priceTable.register("ETHUSDT")).isNotEqualTo(btc);
+        assertThat(priceTable.size()).isEqualTo(2);
+        assertThat(priceTable.symbol(btc)).isEqualTo("BTCUSDT");
+    }
+
+    @Test
+    void findsTickerInAnyCaseWithOrWithoutUsdtSuffix() {
+        int btc = priceTable.register("BTCUSDT");
+
+        assertThat(priceTable.indexOf("btc")).isEqualTo(btc);
+        assertThat(priceTable.indexOf(" BTC ")).isEqualTo(btc);
+        assertThat(priceTable.indexOf("btcusdt")).isEqualTo(btc);
+        assertThat(priceTable.indexOf("BtcUsdt")).isEqualTo(btc);
+        assertThat(priceTable.indexOf("eth")).isNegative();
+        assertThat(priceTable.indexOf("  ")).isNegative();
+    }
+
+    // indexOf нормализует тикер без аллокаций и должен находить ровно то, что даёт Tickers.toUsdtSymbol
+    @Test
+    void indexOfAgreesWithTickerNormalization() {
+        for (String symbol : List.of("BTCUSDT", "ETHUSDT", "USDTTRY", "1000SATSUSDT")) {
+            priceTable.register(symbol);
+        }
+        for (String ticker : List.of(" btc ", "BtcUsdt", "eth\t", "\nusdttry", "1000sats", "doge", "usdt")) {
+            int index = priceTable.indexOf(ticker);
+            String symbol = Tickers.toUsdtSymbol(ticker);
+            if (index >= 0) {
+                assertThat(priceTable.symbol(index)).isEqualTo(symbol);
+            } else {
+                assertThat(priceTable.indexOf(symbol)).isNegative();
+            }
+        }
+    }
+
+    @Test
+    void rejectsSymbolsBeyondCapacity() {
+        PriceTable small = new PriceTable(2);
+        small.register("BTCUSDT");
+        small.register("ETHUSDT");
+
+        assertThat(small.register("SOLUSDT")).isNegative();
+        assertThat(small.indexOf("SOL")).isNegative();
+        assertThat(small.indexOf("ETH")).isEqualTo(1);
+    }
+
+    @Test
+    void keepsIndexesOfDelistedPairs() {
+        int btc = priceTable.register("BTCUSDT");
+        int eth = priceTable.register("ETHUSDT");
+        priceTable.retainListed(List.of("BTCUSDT", "ETHUSDT"));
+
+        priceTable.retainListed(List.of("BTCUSDT"));
+
+        assertThat(priceTable.isListed(btc)).isTrue();
+        assertThat(priceTable.isListed(eth)).isFalse();
+        assertThat(priceTable.indexOf("ETH")).isEqualTo(eth);
+        assertThat(priceTable.listedSymbols()).containsExactly("BTCUSDT");
+    }
+
+    @Test
+    void returnsNaNUntilFirstUpdateAndAfterPriceGetsStale() {
+        int btc = priceTable.register("BTCUSDT");
+        long now = System.currentTimeMillis();
+
+        assertThat(priceTable.freshPrice(btc, MAX_AGE)).isNaN();
+        assertThat(priceTable.freshQuote(btc, MAX_AGE)).isNull();
+
+        assertThat(priceTable.update("btc", 65000.5, now)).isTrue();
+        assertThat(priceTable.freshPrice(btc, MAX_AGE)).isEqualTo(65000.5);
+        assertThat(priceTable.freshQuote(btc, MAX_AGE)).isEqualTo(new CryptoPrice("BTCUSDT", 65000.5, now));
+
+        priceTable.update(btc, 64000, now - 2 * MAX_AGE);
+        assertThat(priceTable.freshPrice(btc, MAX_AGE)).isNaN();
+        assertThat(priceTable.update("DOGE", 0.1, now)).isFalse();
+    }
+
+    @Test
+    void notifiesEveryListenerEvenIfOneFails() {
+        int btc = priceTable.register("BTCUSDT");
+        List<Double> received = new ArrayList<>();
+        priceTable.addListener((index, price, timestamp) -> {
+            throw new IllegalStateException("broken listener");
+        });
+        priceTable.addListener((index, price, timestamp) -> received.add(price));
+
+        priceTable.update(btc, 1.5, System.currentTimeMillis());
+
+        assertThat(received).containsExactly(1.5);
+    }
+
+    // Писатель кладёт в слот согласованную пару (цена i, время base + i): читатель не должен увидеть их вперемешку
+    @Test
+    void readersNeverSeeTornSlot() throws InterruptedException {
+        int btc = priceTable.register("BTCUSDT");
+        long base = System.currentTimeMillis();
+        priceTable.update(btc, 0, base);
+        AtomicBoolean running = new AtomicBoolean(true);
+        AtomicReference<String> torn = new AtomicReference<>();
+        Thread writer = new Thread(() -> {
+            for (int i = 1; running.get(); i++) {
+                priceTable.update(btc, i % 1_000_000, base + i % 1_000_000);
+            }
+        });
+        List<Thread> readers = new ArrayList<>();
+        for (int r = 0; r < 2; r++) {
+            readers.add(new Thread(() -> {
+                for (int i = 0; i < 500_000 && torn.get() == null; i++) {
+                    CryptoPrice quote = priceTable.freshQuote(btc, Long.MAX_VALUE / 2);
+                    if (quote.updatedAt() - base != (long) quote.price()) {
+                        torn.set(quote.toString());
+                    }
+                }
+            }));
+        }
+        writer.start();
+        readers.forEach(Thread::start);
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        running.set(false);
+        writer.join();
+
+        assertThat(torn.get()).as("torn read").isNull();
+        assertThat(priceTable.sequence(btc) % 2).isZero();
+    }
+}
@@ -0,0 +1,174 @@
+package neko.crypto.scrapper.service;
+
+import neko.crypto.scrapper.model.Tick;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TickSegmentTest {
+    private static final long CREATED_AT = 1_700_000_000_000L;
+    private static final long SEGMENT_BYTES = 1 << 20;
+    private static final int BTC = 0;
+    private static final int ETH = 1;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void scansTicksOfOneSymbolWithinRange() throws IOException {
+        try (TickSegment segment = TickSegment.create(directory, CREATED_AT, SEGMENT_BYTES)) {
+            for (int i = 0; i < 10; i++) {
+                segment.append(i % 2 == 0 ? BTC : ETH, CREATED_AT + i, i);
+            }
+
+            assertThat(scan(segment, BTC, CREATED_AT + 2, CREATED_AT + 6, 100))
+                    .containsExactly(new Tick(CREATED_AT + 2, 2), new Tick(CREATED_AT + 4, 4), new Tick(CREATED_AT + 6, 6));
+            assertThat(scan(segment, ETH, CREATED_AT, CREATED_AT + 100, 2))
+                    .containsExactly(new Tick(CREATED_AT + 1, 1), new Tick(CREATED_AT + 3, 3));
+            assertThat(segment.firstTimestamp()).isEqualTo(CREATED_AT);
+            assertThat(segment.lastTimestamp()).isEqualTo(CREATED_AT + 9);
+        }
+    }
+
+    // Несколько записей индекса: поиск должен начинаться с нужной, а не с начала и не с пропуском записей
+    @Test
+    void startsScanFromSparseIndexEntry() throws IOException {
+        int records = TickSegment.INDEX_INTERVAL * 3 + 10;
+        try (TickSegment segment = TickSegment.create(directory, CREATED_AT, SEGMENT_BYTES)) {
+            appendSequence(segment, records);
+
+            for (int from : new int[] {0, 1, TickSegment.INDEX_INTERVAL - 1, TickSegment.INDEX_INTERVAL,
+                    TickSegment.INDEX_INTERVAL + 1, TickSegment.INDEX_INTERVAL * 3 + 5}) {
+                List<Tick> ticks = scan(segment, BTC, CREATED_AT + from, CREATED_AT + from + 2, 100);
+                assertThat(ticks).as("scan from %d", from).containsExactly(
+                        new Tick(CREATED_AT + from, from), new Tick(CREATED_AT + from + 1, from + 1),
+                        new Tick(CREATED_AT + from + 2, from + 2));
+            }
+            assertThat(scan(segment, BTC, CREATED_AT, CREATED_AT + records, Integer.MAX_VALUE)).hasSize(records);
+        }
+    }
+
+    @Test
+    void refusesAppendWhenSegmentIsFull() throws IOException {
+        try (TickSegment segment = TickSegment.create(directory, CREATED_AT, TickSegment.HEADER_SIZE + 3 * TickSegment.RECORD_SIZE)) {
+            assertThat(segment.append(BTC, CREATED_AT, 1)).isTrue();
+            assertThat(segment.append(BTC, CREATED_AT + 1, 2)).isTrue();
+            assertThat(segment.append(BTC, CREATED_AT + 2, 3)).isTrue();
+            assertThat(segment.append(BTC, CREATED_AT + 3, 4)).isFalse();
+        }
+    }
+
+    @Test
+    void reopensWithRecordsAndKeepsAppending() throws IOException {
+        Path dataFile;
+        try (TickSegment segment = TickSegment.create(directory, CREATED_AT, SEGMENT_BYTES)) {
+            appendSequence(segment, TickSegment.INDEX_INTERVAL + 5);
+            dataFile = segment.dataFile();
+        }
+
+        try (TickSegment reopened = TickSegment.open(dataFile)) {
+            assertThat(reopened.lastTimestamp()).isEqualTo(CREATED_AT + TickSegment.INDEX_INTERVAL + 4);
+            reopened.append(BTC, CREATED_AT + TickSegment.INDEX_INTERVAL + 5, -1);
+            assertThat(scan(reopened, BTC, CREATED_AT + TickSegment.INDEX_INTERVAL, Long.MAX_VALUE, 100)).hasSize(6);
+            assertThat(reopened.diskBytes()).isEqualTo(TickSegment.HEADER_SIZE + (TickSegment.INDEX_INTERVAL + 6L) * TickSegment.RECORD_SIZE);
+        }
+    }
+
+    // Остановка посреди записи индекса оставляет в нём неполную запись
+    @Test
+    void dropsTornIndexEntryOnRecovery() throws IOException {
+        Path dataFile = writeSegment(TickSegment.INDEX_INTERVAL * 2 + 1);
+        Files.write(indexFile(dataFile), new byte[] {1, 2, 3, 4, 5}, StandardOpenOption.APPEND);
+
+        try (TickSegment recovered = TickSegment.open(dataFile)) {
+            assertThat(Files.size(indexFile(dataFile))).isEqualTo(3 * 12L);
+            assertSequence(recovered, TickSegment.INDEX_INTERVAL * 2 + 1);
+        }
+    }
+
+    // Индекс не успел дописаться до остановки: недостающие записи восстанавливаются по данным
+    @Test
+    void rebuildsMissingIndexEntriesFromData() throws IOException {
+        Path dataFile = writeSegment(TickSegment.INDEX_INTERVAL * 3 + 1);
+        try (FileChannel index = FileChannel.open(indexFile(dataFile), StandardOpenOption.WRITE)) {
+            index.truncate(12);
+        }
+
+        try (TickSegment recovered = TickSegment.open(dataFile)) {
+            assertThat(Files.size(indexFile(dataFile))).isEqualTo(4 * 12L);
+            assertSequence(recovered, TickSegment.INDEX_INTERVAL * 3 + 1);
+        }
+    }
+
+    // Записи после сохранённого счётчика не считаются записанными, ссылки индекса на них отбрасываются
+    @Test
+    void ignoresRecordsBeyondPersistedCount() throws IOException {
+        int persisted = TickSegment.INDEX_INTERVAL - 1;
+        Path dataFile = writeSegment(TickSegment.INDEX_INTERVAL * 2);
+        try (FileChannel data = FileChannel.open(dataFile, StandardOpenOption.WRITE)) {
+            data.write(ByteBuffer.allocate(Integer.BYTES).order(ByteOrder.LITTLE_ENDIAN).putInt(0, persisted), 8);
+        }
+
+        try (TickSegment recovered = TickSegment.open(dataFile)) {
+            assertThat(Files.size(indexFile(dataFile))).isEqualTo(12L);
+            assertThat(recovered.lastTimestamp()).isEqualTo(CREATED_AT + persisted - 1);
+            assertSequence(recovered, persisted);
+            // Следующая запись ложится сразу за последней сохранённой
+            recovered.append(BTC, CREATED_AT + persisted, persisted);
+            assertSequence(recovered, persisted + 1);
+        }
+    }
+
+    @Test
+    void rejectsFileWithoutSegmentHeader() throws IOException {
+        Path dataFile = directory.resolve(String.format("ticks-%013d.dat", CREATED_AT));
+        Files.write(dataFile, new byte[64]);
+
+        assertThatThrownBy(() -> TickSegment.open(dataFile)).isInstanceOf(IOException.class);
+    }
+
+    private Path writeSegment(int records) throws IOException {
+        try (TickSegment segment = TickSegment.create(directory, CREATED_AT, SEGMENT_BYTES)) {
+            appendSequence(segment, records);
+            return segment.dataFile();
+        }
+    }
+
+    private static void appendSequence(TickSegment segment, int records) throws IOException {
+        for (int i = 0; i < records; i++) {
+            segment.append(BTC, CREATED_AT + i, i);
+        }
+    }
+
+    private static void assertSequence(TickSegment segment, int records) {
+        List<Tick> ticks = scan(segment, BTC, CREATED_AT, Long.MAX_VALUE, Integer.MAX_VALUE);
+        assertThat(ticks).hasSize(records);
+        for (int i = 0; i < records; i += TickSegment.INDEX_INTERVAL / 2) {
+            assertThat(ticks.get(i)).isEqualTo(new Tick(CREATED_AT + i, i));
+            assertThat(scan(segment, BTC, CREATED_AT + i, CREATED_AT + i, 1)).containsExactly(new Tick(CREATED_AT + i, i));
+        }
+    }
+
+    private static List<Tick> scan(TickSegment segment, int symbolId, long from, long to, int limit) {
+        List<Tick> ticks = new ArrayList<>();
+        segment.scan(symbolId, from, to, ticks, limit);
+        return ticks;
+    }
+
+    private static Path indexFile(Path dataFile) {
+        String name = dataFile.getFileName().toString();
+        return dataFile.resolveSibling(name.replace(".dat", ".idx"));
+    }
+}
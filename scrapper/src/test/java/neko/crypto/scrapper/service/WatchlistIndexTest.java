@@ -0,0 +1,64 @@
+package neko.crypto.scrapper.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WatchlistIndexTest {
+    private final WatchlistIndex index = new WatchlistIndex();
+
+    @Test
+    void collectsChatsPerTicker() {
+        index.add(1, "BTCUSDT");
+        index.add(2, "BTCUSDT");
+        index.add(2, "ETHUSDT");
+
+        assertThat(index.getChatIds("BTCUSDT")).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(index.getChatIds("ETHUSDT")).containsExactly(2L);
+        assertThat(index.getChatIds("SOLUSDT")).isEmpty();
+        assertThat(index.getTickers()).containsExactlyInAnyOrder("BTCUSDT", "ETHUSDT");
+    }
+
+    @Test
+    void dropsTickerWhenLastChatLeaves() {
+        index.add(1, "BTCUSDT");
+        index.add(2, "BTCUSDT");
+
+        index.remove(1, "BTCUSDT");
+        assertThat(index.isWatched("BTCUSDT")).isTrue();
+
+        index.remove(2, "BTCUSDT");
+        assertThat(index.isWatched("BTCUSDT")).isFalse();
+        assertThat(index.getTickers()).isEmpty();
+        // Повторное удаление и удаление чужого тикера ничего не ломают
+        index.remove(2, "BTCUSDT");
+        index.remove(3, "ETHUSDT");
+        assertThat(index.getTickers()).isEmpty();
+    }
+
+    @Test
+    void keepsConcurrentAddsToSameTicker() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            long firstChat = t * 1000L;
+            threads.add(new Thread(() -> {
+                for (long chatId = firstChat; chatId < firstChat + 1000; chatId++) {
+                    index.add(chatId, "BTCUSDT");
+                    // Пустое множество удаляется из индекса; добавление в него же не должно потеряться
+                    index.add(chatId, "ETHUSDT");
+                    index.remove(chatId, "ETHUSDT");
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(index.getChatIds("BTCUSDT")).hasSize(4000);
+        assertThat(index.isWatched("ETHUSDT")).isFalse();
+    }
+}
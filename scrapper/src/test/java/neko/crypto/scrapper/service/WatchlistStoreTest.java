@@ -0,0 +1,107 @@
+package neko.crypto.scrapper.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeSet;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WatchlistStoreTest {
+    private final WatchlistStore store = new WatchlistStore();
+
+    @Test
+    void keepsTickersSortedPerChat() {
+        assertThat(store.add(1, 5)).isTrue();
+        assertThat(store.add(1, 2)).isTrue();
+        assertThat(store.add(1, 9)).isTrue();
+        assertThat(store.add(1, 5)).isFalse();
+
+        assertThat(store.get(1)).containsExactly(2, 5, 9);
+        assertThat(store.contains(1, 9)).isTrue();
+        assertThat(store.contains(1, 3)).isFalse();
+        assertThat(store.get(2)).isEmpty();
+        assertThat(store.size()).isEqualTo(1);
+    }
+
+    @Test
+    void dropsChatWithLastTicker() {
+        store.add(1, 5);
+        store.add(1, 7);
+
+        assertThat(store.remove(1, 5)).isTrue();
+        assertThat(store.size()).isEqualTo(1);
+        assertThat(store.remove(1, 7)).isTrue();
+        assertThat(store.size()).isZero();
+        assertThat(store.get(1)).isEmpty();
+        assertThat(store.remove(1, 7)).isFalse();
+    }
+
+    // Удаление из середины длинных цепочек: сдвинутые хвосты должны оставаться достижимыми
+    @Test
+    void findsRemainingChatsAfterBackshiftRemovals() {
+        int chats = 700;
+        for (long chatId = 0; chatId < chats; chatId++) {
+            store.add(chatId, (int) (chatId % 13));
+        }
+        for (long chatId = 0; chatId < chats; chatId += 3) {
+            assertThat(store.remove(chatId, (int) (chatId % 13))).isTrue();
+        }
+
+        for (long chatId = 0; chatId < chats; chatId++) {
+            assertThat(store.contains(chatId, (int) (chatId % 13))).as("chat %d", chatId).isEqualTo(chatId % 3 != 0);
+        }
+        assertThat(store.size()).isEqualTo(chats - (chats + 2) / 3);
+    }
+
+    // Случайные операции против эталонной HashMap, с ростом таблицы и удалениями вперемешку
+    @Test
+    void matchesReferenceModelUnderRandomOperations() {
+        Map<Long, TreeSet<Integer>> model = new HashMap<>();
+        Random random = new Random(42);
+
+        for (int op = 0; op < 200_000; op++) {
+            long chatId = random.nextInt(3000) - 1500L;
+            int ticker = random.nextInt(6);
+            if (random.nextInt(10) < 6) {
+                boolean added = model.computeIfAbsent(chatId, id -> new TreeSet<>()).add(ticker);
+                assertThat(store.add(chatId, ticker)).isEqualTo(added);
+            } else {
+                TreeSet<Integer> tickers = model.get(chatId);
+                boolean removed = tickers != null && tickers.remove(ticker);
+                if (tickers != null && tickers.isEmpty()) {
+                    model.remove(chatId);
+                }
+                assertThat(store.remove(chatId, ticker)).isEqualTo(removed);
+            }
+        }
+
+        assertThat(store.size()).isEqualTo(model.size());
+        for (long chatId = -1500; chatId < 1500; chatId++) {
+            TreeSet<Integer> expected = model.getOrDefault(chatId, new TreeSet<>());
+            assertThat(Arrays.stream(store.get(chatId)).boxed().toList()).as("chat %d", chatId)
+                    .isEqualTo(expected.stream().toList());
+        }
+        Map<Long, int[]> visited = new HashMap<>();
+        assertThat(store.forEach((chatId, tickers) -> visited.put(chatId, tickers))).isEqualTo(model.size());
+        assertThat(visited.keySet()).isEqualTo(model.keySet());
+        visited.forEach((chatId, tickers) -> assertThat(Arrays.stream(tickers).boxed().toList())
+                .isEqualTo(model.get(chatId).stream().toList()));
+    }
+
+    @Test
+    void publishedArrayIsNotChangedByLaterUpdates() {
+        store.add(1, 1);
+        store.add(1, 3);
+        int[] snapshot = store.get(1);
+
+        store.add(1, 2);
+        store.remove(1, 3);
+
+        assertThat(snapshot).containsExactly(1, 3);
+        assertThat(store.get(1)).containsExactly(1, 2);
+    }
+}